@@ -9,6 +9,8 @@ import fr.tp.inf112.projects.canvas.controller.Observer;
 import fr.tp.inf112.projects.canvas.model.Canvas;
 import fr.tp.inf112.projects.canvas.model.CanvasPersistenceManager;
 import fr.tp.inf112.projects.robotsim.model.Factory;
+import fr.tp.inf112.projects.robotsim.model.notifier.CoalescingFactoryModelChangedNotifier;
+import fr.tp.inf112.projects.robotsim.model.notifier.LocalFactoryModelChangedNotifier;
 
 public class SimulatorController implements CanvasViewerController {
 	
@@ -26,6 +28,18 @@ public class SimulatorController implements CanvasViewerController {
 							   final CanvasPersistenceManager persistenceManager) {
 		this.factoryModel = factoryModel;
 		this.persistenceManager = persistenceManager;
+		
+		coalesceNotifications(factoryModel);
+	}
+
+	/**
+	 * Moves the notifications of the factory to a dispatcher thread, so that the
+	 * viewer is repainted at most once per frame whatever the number of moves.
+	 */
+	private static void coalesceNotifications(final Factory factoryModel) {
+		if (factoryModel != null && factoryModel.getNotifier() == null) {
+			factoryModel.setNotifier(new CoalescingFactoryModelChangedNotifier(new LocalFactoryModelChangedNotifier(factoryModel)));
+		}
 	}
 
 	/**
@@ -57,7 +71,12 @@ public class SimulatorController implements CanvasViewerController {
 	 */
 	@Override
 	public void setCanvas(final Canvas canvasModel) {
+		if (factoryModel != null && factoryModel != canvasModel && factoryModel.getNotifier() instanceof CoalescingFactoryModelChangedNotifier) {
+			((CoalescingFactoryModelChangedNotifier) factoryModel.getNotifier()).shutdown();
+		}
+		
 		factoryModel = (Factory) canvasModel;
+		coalesceNotifications(factoryModel);
 	}
 	
 	/**
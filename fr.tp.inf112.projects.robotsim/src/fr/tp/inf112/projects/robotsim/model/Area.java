@@ -31,6 +31,10 @@ public class Area extends Component {
 	protected void setMachine( final Machine machine ) {
 		this.machine = machine;
 	}
+
+	Machine getMachine() {
+		return machine;
+	}
 	
 	@Override
 	public boolean canBeOverlayed(final PositionedShape shape) {
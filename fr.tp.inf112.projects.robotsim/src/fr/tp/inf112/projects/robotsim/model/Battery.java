@@ -21,6 +21,14 @@ public class Battery implements Serializable {
 		this.level = 0.0f;
 	}
 	
+	float getCapacity() {
+		return capacity;
+	}
+
+	float getLevel() {
+		return level;
+	}
+
 	public float consume(float energy) {
 		level-= energy;
 		
@@ -69,6 +69,7 @@ public abstract class Component implements Figure, Serializable, Runnable {
 
 	protected boolean setxCoordinate(int xCoordinate) {
 		if ( getPositionedShape().setxCoordinate( xCoordinate ) ) {
+			getFactory().componentMoved(this);
 			notifyObservers();
 			
 			return true;
@@ -85,6 +86,7 @@ public abstract class Component implements Figure, Serializable, Runnable {
 
 	protected boolean setyCoordinate(final int yCoordinate) {
 		if (getPositionedShape().setyCoordinate(yCoordinate) ) {
+			getFactory().componentMoved(this);
 			notifyObservers();
 			
 			return true;
@@ -114,6 +116,22 @@ public abstract class Component implements Figure, Serializable, Runnable {
 	public int getHeight() {
 		return getPositionedShape().getHeight();
 	}
+
+	/**
+	 * Width of the box enclosing every shape this component may overlay, used by
+	 * the factory spatial index. Defaults to the width of the component shape.
+	 */
+	protected int getBoundsWidth() {
+		return getWidth();
+	}
+
+	/**
+	 * Height of the box enclosing every shape this component may overlay, used by
+	 * the factory spatial index. Defaults to the height of the component shape.
+	 */
+	protected int getBoundsHeight() {
+		return getHeight();
+	}
 	
 	public boolean behave() {
 		return false;
@@ -130,6 +148,17 @@ public abstract class Component implements Figure, Serializable, Runnable {
 	public boolean overlays(final PositionedShape shape) {
 		return getPositionedShape().overlays(shape);
 	}
+
+	/**
+	 * Same as {@link #overlays(PositionedShape)} for the rectangle of the given
+	 * coordinates and size. Components overriding one method must override both.
+	 */
+	public boolean overlays(final int xCoordinate,
+							final int yCoordinate,
+							final int width,
+							final int height) {
+		return getPositionedShape().overlays(xCoordinate, yCoordinate, width, height);
+	}
 	
 	public boolean canBeOverlayed(final PositionedShape shape) {
 		return false;
@@ -86,8 +86,9 @@ public class Door extends Component {
 			  name);
 		
 		this.room = room;
-		this.room.addDoor(this);
 		this.open = open;
+		// Last, so that the layout change it reports sees the door as it is
+		this.room.addDoor(this);
 	}
 
 	/** No-arg constructor for Jackson */
@@ -104,7 +105,7 @@ public class Door extends Component {
 		return isOpen() ? OPEN_STYLE : ComponentStyle.DEFAULT_BLACK;
 	}
 
-	private boolean isOpen() {
+	boolean isOpen() {
 		return open;
 	}
 
@@ -115,6 +116,7 @@ public class Door extends Component {
 		
 		open = true;
 		
+		getFactory().layoutChanged(this);
 		notifyObservers();
 		
 		return true;
@@ -124,6 +126,7 @@ public class Door extends Component {
 		if (isOpen()) {
 			open = false;
 			
+			getFactory().layoutChanged(this);
 			notifyObservers();
 			
 			return true;
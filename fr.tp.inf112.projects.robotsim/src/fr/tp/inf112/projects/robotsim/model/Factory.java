@@ -1,8 +1,12 @@
 package fr.tp.inf112.projects.robotsim.model;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
@@ -12,8 +16,11 @@ import fr.tp.inf112.projects.canvas.model.Canvas;
 import fr.tp.inf112.projects.canvas.model.Figure;
 import fr.tp.inf112.projects.canvas.model.Style;
 import fr.tp.inf112.projects.robotsim.model.motion.Motion;
+import fr.tp.inf112.projects.robotsim.model.notifier.FactoryLayoutListener;
 import fr.tp.inf112.projects.robotsim.model.notifier.FactoryModelChangedNotifier;
 import fr.tp.inf112.projects.robotsim.model.shapes.PositionedShape;
+import fr.tp.inf112.projects.robotsim.model.simulation.SimulationEngine;
+import fr.tp.inf112.projects.robotsim.model.simulation.ThreadPerComponentSimulationEngine;
 import fr.tp.inf112.projects.robotsim.model.shapes.RectangularShape;
 
 public class Factory extends Component implements Canvas, Observable {
@@ -22,6 +29,18 @@ public class Factory extends Component implements Canvas, Observable {
 	
 	private static final ComponentStyle DEFAULT = new ComponentStyle(5.0f);
 
+	/** Smallest side of a spatial index cell. */
+	private static final int MIN_INDEX_CELL_SIZE = 10;
+
+	/** Upper bound of the number of spatial index cells along each axis, to bound memory on large floors. */
+	private static final int MAX_INDEX_CELLS_PER_AXIS = 256;
+
+	/** Side of the square that must be free for a component to move to a target position. */
+	private static final int MOTION_FOOTPRINT_SIZE = 2;
+
+	/** Shape reused by each thread to query components that only accept shapes, so that queries do not allocate. */
+	private static final ThreadLocal<RectangularShape> QUERY_SHAPES = ThreadLocal.withInitial(() -> new RectangularShape(0, 0, 0, 0));
+
 
 	@com.fasterxml.jackson.annotation.JsonManagedReference
 	private final List<Component> components;
@@ -34,6 +53,23 @@ public class Factory extends Component implements Canvas, Observable {
 
 	@com.fasterxml.jackson.annotation.JsonIgnore
 	private transient FactoryModelChangedNotifier notifier;
+
+	@com.fasterxml.jackson.annotation.JsonIgnore
+	private transient volatile UniformGridIndex spatialIndex;
+
+	@com.fasterxml.jackson.annotation.JsonIgnore
+	private transient SimulationEngine simulationEngine;
+
+	/** Incremented each time an obstacle of the factory is added, removed, moved or changes state. */
+	@com.fasterxml.jackson.annotation.JsonIgnore
+	private transient volatile long layoutVersion;
+
+	/** Guards the increments of the layout version, rather than the factory monitor. */
+	@com.fasterxml.jackson.annotation.JsonIgnore
+	private transient ReentrantLock layoutLock = new ReentrantLock();
+
+	@com.fasterxml.jackson.annotation.JsonIgnore
+	private transient volatile List<FactoryLayoutListener> layoutListeners;
 	
 	
 	public Factory(final int width,
@@ -85,13 +121,22 @@ public class Factory extends Component implements Canvas, Observable {
 			notifier.notifyObservers();
 			return;
 		}
-		for (final Observer observer : getObservers()) {
-			observer.modelChanged();
-		}
+		// Unlike a for-each loop, forEach does not allocate an iterator at every move
+		getObservers().forEach(Observer::modelChanged);
 	}
 	
 	public boolean addComponent(final Component component) {
 		if (components.add(component)) {
+			final UniformGridIndex index = spatialIndex;
+			
+			if (index != null) {
+				index.insert(component);
+			}
+			
+			if (!component.isMobile()) {
+				layoutChanged(component);
+			}
+			
 			notifyObservers();
 			
 			return true;
@@ -102,6 +147,16 @@ public class Factory extends Component implements Canvas, Observable {
 
 	public boolean removeComponent(final Component component) {
 		if (components.remove(component)) {
+			final UniformGridIndex index = spatialIndex;
+			
+			if (index != null) {
+				index.remove(component);
+			}
+			
+			if (!component.isMobile()) {
+				layoutChanged(component);
+			}
+			
 			notifyObservers();
 			
 			return true;
@@ -114,6 +169,113 @@ public class Factory extends Component implements Canvas, Observable {
 		return components;
 	}
 
+	/**
+	 * The spatial index is transient: it is built lazily from the components on
+	 * first use, including after the factory was deserialized.
+	 */
+	private UniformGridIndex getSpatialIndex() {
+		final UniformGridIndex index = spatialIndex;
+		
+		return index == null ? buildSpatialIndex() : index;
+	}
+
+	private synchronized UniformGridIndex buildSpatialIndex() {
+		if (spatialIndex == null) {
+			final int largestSide = Math.max(getWidth(), getHeight());
+			final int cellSize = Math.max(MIN_INDEX_CELL_SIZE, (largestSide + MAX_INDEX_CELLS_PER_AXIS - 1) / MAX_INDEX_CELLS_PER_AXIS);
+			final UniformGridIndex index = new UniformGridIndex(getWidth(), getHeight(), cellSize);
+			
+			for (final Component component : getComponents()) {
+				index.insert(component);
+			}
+			
+			spatialIndex = index;
+		}
+		
+		return spatialIndex;
+	}
+
+	/**
+	 * Must be called when the shape of a component was moved without going
+	 * through {@link #moveComponent(Motion, Component)}, so that collision
+	 * queries see the component at its new location.
+	 */
+	public void componentMoved(final Component component) {
+		final UniformGridIndex index = spatialIndex;
+		
+		if (index != null) {
+			index.update(component);
+		}
+		
+		// The area the component left is unknown here, so the whole floor is reported
+		if (!component.isMobile()) {
+			layoutChanged(0, 0, getWidth(), getHeight());
+		}
+	}
+
+	/**
+	 * Version of the layout of the non-mobile components of the factory, used to
+	 * detect when navigation graphs computed from this layout are stale.
+	 */
+	@JsonIgnore
+	public long getLayoutVersion() {
+		return layoutVersion;
+	}
+
+	public synchronized boolean addLayoutListener(final FactoryLayoutListener listener) {
+		if (layoutListeners == null) {
+			layoutListeners = new CopyOnWriteArrayList<>();
+		}
+		
+		return layoutListeners.add(listener);
+	}
+
+	public synchronized boolean removeLayoutListener(final FactoryLayoutListener listener) {
+		return layoutListeners != null && layoutListeners.remove(listener);
+	}
+
+	void layoutChanged(final Component component) {
+		layoutChanged(component.getxCoordinate(),
+					  component.getyCoordinate(),
+					  component.getBoundsWidth(),
+					  component.getBoundsHeight());
+	}
+
+	/**
+	 * Records that obstacles may have changed in the given area and notifies the
+	 * layout listeners once the version is recorded, outside of any lock, so
+	 * that concurrent changes may be notified out of the order of their
+	 * versions.
+	 */
+	void layoutChanged(final int xCoordinate,
+					   final int yCoordinate,
+					   final int width,
+					   final int height) {
+		final long changedLayoutVersion;
+		layoutLock.lock();
+		
+		try {
+			changedLayoutVersion = ++layoutVersion;
+		}
+		finally {
+			layoutLock.unlock();
+		}
+		
+		final List<FactoryLayoutListener> listeners = layoutListeners;
+		
+		if (listeners != null) {
+			for (final FactoryLayoutListener listener : listeners) {
+				listener.layoutChanged(this, changedLayoutVersion, xCoordinate, yCoordinate, width, height);
+			}
+		}
+	}
+
+	private void readObject(final ObjectInputStream inputStream)
+	throws IOException, ClassNotFoundException {
+		inputStream.defaultReadObject();
+		layoutLock = new ReentrantLock();
+	}
+
 	@Override
 	@JsonIgnore
 	public Collection<Figure> getFigures() {
@@ -155,13 +317,25 @@ public class Factory extends Component implements Canvas, Observable {
 		this.notifier = notifier;
 	}
 
+	public SimulationEngine getSimulationEngine() {
+		if (simulationEngine == null) {
+			simulationEngine = new ThreadPerComponentSimulationEngine();
+		}
+		
+		return simulationEngine;
+	}
+
+	/**
+	 * Selects how components are advanced by the next {@link #startSimulation()}.
+	 * Defaults to one thread per component.
+	 */
+	public void setSimulationEngine(final SimulationEngine simulationEngine) {
+		this.simulationEngine = simulationEngine;
+	}
+
 	@Override
     public boolean behave() {
-        // Start each component in its own thread
-        for (final Component component : getComponents()) {
-            new Thread(component, component.getName() + "-thread").start();
-        }
-        return true;
+        return getSimulationEngine().start(this);
     }
 	
 	@Override
@@ -170,24 +344,67 @@ public class Factory extends Component implements Canvas, Observable {
 	}
 	
 	public boolean hasObstacleAt(final PositionedShape shape) {
-		for (final Component component : getComponents()) {
-			if (component.overlays(shape) && !component.canBeOverlayed(shape)) {
-				return true;
+		return hasObstacleAt(shape.getxCoordinate(), shape.getyCoordinate(), shape.getWidth(), shape.getHeight(), shape);
+	}
+
+	/**
+	 * Same as {@link #hasObstacleAt(PositionedShape)} for the rectangle of the
+	 * given coordinates and size, without allocating a shape.
+	 */
+	public boolean hasObstacleAt(final int xCoordinate,
+								 final int yCoordinate,
+								 final int width,
+								 final int height) {
+		return hasObstacleAt(xCoordinate, yCoordinate, width, height, null);
+	}
+
+	private boolean hasObstacleAt(final int xCoordinate,
+								  final int yCoordinate,
+								  final int width,
+								  final int height,
+								  final PositionedShape shape) {
+		final UniformGridIndex index = getSpatialIndex();
+		final int maxColumn = index.getColumn(xCoordinate + width);
+		final int maxRow = index.getRow(yCoordinate + height);
+		
+		for (int row = index.getRow(yCoordinate); row <= maxRow; row++) {
+			for (int column = index.getColumn(xCoordinate); column <= maxColumn; column++) {
+				for (final Component component : index.getBucket(column, row)) {
+					if (component.overlays(xCoordinate, yCoordinate, width, height) &&
+						!component.canBeOverlayed(shape == null ? getQueryShape(xCoordinate, yCoordinate, width, height) : shape)) {
+						return true;
+					}
+				}
 			}
 		}
 		
 		return false;
 	}
+
+	private static PositionedShape getQueryShape(final int xCoordinate,
+												 final int yCoordinate,
+												 final int width,
+												 final int height) {
+		final RectangularShape queryShape = QUERY_SHAPES.get();
+		queryShape.setxCoordinate(xCoordinate);
+		queryShape.setyCoordinate(yCoordinate);
+		queryShape.setWidth(width);
+		queryShape.setHeight(height);
+
+		return queryShape;
+	}
 	
 	public boolean hasMobileComponentAt(final PositionedShape shape,
 										final Component movingComponent) {
-		for (final Component component : getComponents()) {
-			if (component != movingComponent && component.isMobile() && component.overlays(shape)) {
-				return true;
-			}
-		}
-		
-		return false;
+		return getMobileComponentAt(shape, movingComponent) != null;
+	}
+
+	public boolean hasMobileComponentAt(final int xCoordinate,
+										final int yCoordinate,
+										final int width,
+										final int height,
+										final Component movingComponent) {
+		return getMobileComponentAt(xCoordinate, yCoordinate, width, height, movingComponent) != null;
 	}
 	
 	public Component getMobileComponentAt(	final Position position,
@@ -196,7 +413,7 @@ public class Factory extends Component implements Canvas, Observable {
 			return null;
 		}
 		
-		return getMobileComponentAt(new RectangularShape(position.getxCoordinate(), position.getyCoordinate(), 2, 2), ignoredComponent);
+		return getMobileComponentAt(position.getxCoordinate(), position.getyCoordinate(), 2, 2, ignoredComponent);
 	}
 	
 	public Component getMobileComponentAt(	final PositionedShape shape,
@@ -205,18 +422,39 @@ public class Factory extends Component implements Canvas, Observable {
 			return null;
 		}
 		
-		for (final Component component : getComponents()) {
-			if (component != ignoredComponent && component.isMobile() && component.overlays(shape)) {
-				return component;
+		return getMobileComponentAt(shape.getxCoordinate(), shape.getyCoordinate(), shape.getWidth(), shape.getHeight(), ignoredComponent);
+	}
+
+	/**
+	 * Same as {@link #getMobileComponentAt(PositionedShape, Component)} for the
+	 * rectangle of the given coordinates and size, without allocating a shape.
+	 */
+	public Component getMobileComponentAt(	final int xCoordinate,
+											final int yCoordinate,
+											final int width,
+											final int height,
+											final Component ignoredComponent) {
+		final UniformGridIndex index = getSpatialIndex();
+		final int maxColumn = index.getColumn(xCoordinate + width);
+		final int maxRow = index.getRow(yCoordinate + height);
+		
+		for (int row = index.getRow(yCoordinate); row <= maxRow; row++) {
+			for (int column = index.getColumn(xCoordinate); column <= maxColumn; column++) {
+				for (final Component component : index.getBucket(column, row)) {
+					if (component != ignoredComponent && component.isMobile() && component.overlays(xCoordinate, yCoordinate, width, height)) {
+						return component;
+					}
+				}
 			}
 		}
 		
 		return null;
 	}
 
-	// Synchronized move to check and move atomically
-    public synchronized int moveComponent(final Motion motion,
-                                          final Component componentToMove) {
+	// Check and move atomically, locking only the regions covered by the current and target footprints.
+	// Movers in distant regions of the floor do not contend with each other.
+    public int moveComponent(final Motion motion,
+                             final Component componentToMove) {
         if (motion == null || componentToMove == null) {
             return 0;
         }
@@ -227,16 +465,55 @@ public class Factory extends Component implements Canvas, Observable {
             return 0;
         }
 
-        final RectangularShape targetShape =
-                new RectangularShape(target.getxCoordinate(), target.getyCoordinate(), 2, 2);
+        return moveComponent(componentToMove, target.getxCoordinate(), target.getyCoordinate());
+    }
+
+    /**
+     * Moves the component to the given target coordinates if the target is free,
+     * without allocating a motion or shapes.
+     *
+     * @return the displacement of the component, or 0 if it could not move.
+     */
+    public int moveComponent(final Component componentToMove,
+                             final int targetxCoordinate,
+                             final int targetyCoordinate) {
+        // The locked cells must cover the current bounds of the component, the shape checked at the
+        // target and the bounds the component will have there, as all of them are read or re-bucketed
+        final UniformGridIndex index = getSpatialIndex();
+        final int footprintWidth = Math.max(componentToMove.getBoundsWidth(), MOTION_FOOTPRINT_SIZE);
+        final int footprintHeight = Math.max(componentToMove.getBoundsHeight(), MOTION_FOOTPRINT_SIZE);
+        final int minColumn = index.getColumn(Math.min(componentToMove.getxCoordinate(), targetxCoordinate));
+        final int minRow = index.getRow(Math.min(componentToMove.getyCoordinate(), targetyCoordinate));
+        final int maxColumn = index.getColumn(Math.max(componentToMove.getxCoordinate(), targetxCoordinate) + footprintWidth);
+        final int maxRow = index.getRow(Math.max(componentToMove.getyCoordinate(), targetyCoordinate) + footprintHeight);
+
+        index.lockCells(minColumn, minRow, maxColumn, maxRow);
+        try {
+            return checkAndMove(componentToMove, targetxCoordinate, targetyCoordinate, index);
+        }
+        finally {
+            index.unlockCells(minColumn, minRow, maxColumn, maxRow);
+        }
+    }
 
+    private int checkAndMove(final Component componentToMove,
+                             final int targetxCoordinate,
+                             final int targetyCoordinate,
+                             final UniformGridIndex index) {
         // Block if occupied by obstacle or another mobile component
-        if (hasObstacleAt(targetShape) || hasMobileComponentAt(targetShape, componentToMove)) {
+        if (hasObstacleAt(targetxCoordinate, targetyCoordinate, MOTION_FOOTPRINT_SIZE, MOTION_FOOTPRINT_SIZE) ||
+            hasMobileComponentAt(targetxCoordinate, targetyCoordinate, MOTION_FOOTPRINT_SIZE, MOTION_FOOTPRINT_SIZE, componentToMove)) {
             return 0;
         }
 
         // Safe to move now 
-        return motion.moveToTarget();
+        final int displacement = Motion.moveTo(componentToMove.getPosition(), targetxCoordinate, targetyCoordinate);
+        
+        if (displacement != 0) {
+            index.update(componentToMove);
+        }
+        
+        return displacement;
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,974 @@
+package fr.tp.inf112.projects.robotsim.model;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiFunction;
+
+import fr.tp.inf112.projects.canvas.model.Vertex;
+import fr.tp.inf112.projects.canvas.model.impl.BasicVertex;
+import fr.tp.inf112.projects.robotsim.model.notifier.FactoryModelEvent;
+import fr.tp.inf112.projects.robotsim.model.path.AStarFactoryPathFinder;
+import fr.tp.inf112.projects.robotsim.model.path.AbstractFactoryPathFinder;
+import fr.tp.inf112.projects.robotsim.model.path.AnyAngleFactoryPathFinder;
+import fr.tp.inf112.projects.robotsim.model.path.CachingFactoryPathFinder;
+import fr.tp.inf112.projects.robotsim.model.path.ContractionHierarchyFactoryPathFinder;
+import fr.tp.inf112.projects.robotsim.model.path.CustomDijkstraFactoryPathFinder;
+import fr.tp.inf112.projects.robotsim.model.path.DiagonalMoves;
+import fr.tp.inf112.projects.robotsim.model.path.DistanceFieldFactoryPathFinder;
+import fr.tp.inf112.projects.robotsim.model.path.FactoryPathFinder;
+import fr.tp.inf112.projects.robotsim.model.path.GridHeuristic;
+import fr.tp.inf112.projects.robotsim.model.path.GridLatticeBfsFactoryPathFinder;
+import fr.tp.inf112.projects.robotsim.model.path.HierarchicalFactoryPathFinder;
+import fr.tp.inf112.projects.robotsim.model.path.JGraphTAStarFactoryPathFinder;
+import fr.tp.inf112.projects.robotsim.model.path.JGraphTDijkstraFactoryPathFinder;
+import fr.tp.inf112.projects.robotsim.model.path.JumpPointSearchFactoryPathFinder;
+import fr.tp.inf112.projects.robotsim.model.shapes.BasicPolygonShape;
+import fr.tp.inf112.projects.robotsim.model.shapes.CircularShape;
+import fr.tp.inf112.projects.robotsim.model.shapes.PositionedShape;
+import fr.tp.inf112.projects.robotsim.model.shapes.RectangularShape;
+
+/**
+ * Compact binary format of a factory and of the {@link FactoryModelEvent}s
+ * sent for it, replacing Java serialization on disk and the polymorphic JSON of
+ * the remote monitoring.
+ *
+ * Numbers are written as variable length integers, coordinates as zigzag ones
+ * so that small negative values stay short. Names, ids, class and enum names
+ * are written once in a string table and referred to by index. Components are
+ * referred to by their index in the component list of the factory, and are
+ * rebuilt in that order with their public constructors, so that rooms, areas
+ * and doors are linked to each other as when the factory was built. The path
+ * finders of the robots are written as their class, resolution and options,
+ * and rebuilt for the decoded factory; their caches are not kept, nor is the
+ * target a robot was heading to, robots resuming their tour from its first
+ * target. Only the finders whose whole configuration is written are covered:
+ * cooperative finders, which share their reservations, or finders computing on
+ * a pool of their own are not.
+ *
+ * The format starts with a magic number and its version. Decoders reject the
+ * versions newer than theirs.
+ */
+public final class FactoryCodec {
+
+	public static final String MEDIA_TYPE = "application/x-robotsim-factory";
+
+	private static final int MAGIC = 0x52464331;
+
+	private static final int EVENT_MAGIC = 0x52464531;
+
+	private static final int FORMAT_VERSION = 1;
+
+	/**
+	 * Grid path finders configured by their resolution only, by class name.
+	 */
+	private static final Map<String, BiFunction<Factory, Integer, FactoryPathFinder>> PLAIN_GRID_FINDERS = Map.of(
+		CustomDijkstraFactoryPathFinder.class.getName(), CustomDijkstraFactoryPathFinder::new,
+		JGraphTDijkstraFactoryPathFinder.class.getName(), JGraphTDijkstraFactoryPathFinder::new,
+		ContractionHierarchyFactoryPathFinder.class.getName(), ContractionHierarchyFactoryPathFinder::new,
+		GridLatticeBfsFactoryPathFinder.class.getName(), GridLatticeBfsFactoryPathFinder::new,
+		JumpPointSearchFactoryPathFinder.class.getName(), JumpPointSearchFactoryPathFinder::new,
+		DistanceFieldFactoryPathFinder.class.getName(), DistanceFieldFactoryPathFinder::new
+	);
+
+	private static final int ROOM = 1;
+
+	private static final int AREA = 2;
+
+	private static final int MACHINE = 3;
+
+	private static final int DOOR = 4;
+
+	private static final int CONVEYOR = 5;
+
+	private static final int CHARGING_STATION = 6;
+
+	private static final int PUCK = 7;
+
+	private static final int ROBOT = 8;
+
+	private static final int RECTANGLE = 1;
+
+	private static final int CIRCLE = 2;
+
+	private static final int POLYGON = 3;
+
+	private static final int GRID_FINDER = 1;
+
+	private static final int CACHING_FINDER = 2;
+
+	private static final int ANY_ANGLE_FINDER = 3;
+
+	private static final int DOOR_THICKNESS = 1;
+
+	private FactoryCodec() {
+	}
+
+	/**
+	 * @throws IllegalArgumentException if the factory holds components or path
+	 * finders of types this format does not cover.
+	 */
+	public static byte[] encode(final Factory factory) {
+		final Encoder encoder = new Encoder();
+		encoder.writeFactory(factory);
+
+		return encoder.toBytes(MAGIC);
+	}
+
+	public static void write(final Factory factory,
+							 final OutputStream outputStream)
+	throws IOException {
+		outputStream.write(encode(factory));
+	}
+
+	public static Factory decode(final byte[] bytes)
+	throws IOException {
+		final Decoder decoder = new Decoder(bytes, MAGIC);
+
+		return decoder.readFactory();
+	}
+
+	public static Factory read(final InputStream inputStream)
+	throws IOException {
+		return decode(inputStream.readAllBytes());
+	}
+
+	/**
+	 * @return {@code true} if the given bytes start as an encoded factory.
+	 */
+	public static boolean isEncoded(final byte[] bytes) {
+		return bytes.length >= Integer.BYTES && readMagic(bytes) == MAGIC;
+	}
+
+	/**
+	 * @return {@code true} if the given bytes start as an encoded event.
+	 */
+	public static boolean isEncodedEvent(final byte[] bytes) {
+		return bytes.length >= Integer.BYTES && readMagic(bytes) == EVENT_MAGIC;
+	}
+
+	public static byte[] encodeEvent(final FactoryModelEvent event) {
+		final Encoder encoder = new Encoder();
+		encoder.writeString(event.factoryId());
+		encoder.writeVarLong(event.sequence());
+		encoder.writeVarLong(event.keyframeSequence());
+
+		if (event.isDelta()) {
+			encoder.writeBoolean(false);
+			encoder.writeVarInt(event.componentIndexes().length);
+			int previousIndex = 0;
+
+			for (int index = 0; index < event.componentIndexes().length; index++) {
+				// Indexes come in increasing order, so their differences are small
+				encoder.writeSignedVarInt(event.componentIndexes()[index] - previousIndex);
+				encoder.writeSignedVarInt(event.xCoordinates()[index]);
+				encoder.writeSignedVarInt(event.yCoordinates()[index]);
+				previousIndex = event.componentIndexes()[index];
+			}
+		}
+		else {
+			encoder.writeBoolean(true);
+			encoder.writeFactory(event.keyframe());
+		}
+
+		return encoder.toBytes(EVENT_MAGIC);
+	}
+
+	public static FactoryModelEvent decodeEvent(final byte[] bytes)
+	throws IOException {
+		final Decoder decoder = new Decoder(bytes, EVENT_MAGIC);
+		final String factoryId = decoder.readString();
+		final long sequence = decoder.readVarLong();
+		final long keyframeSequence = decoder.readVarLong();
+
+		if (decoder.readBoolean()) {
+			return new FactoryModelEvent(factoryId, sequence, keyframeSequence, decoder.readFactory(), null, null, null);
+		}
+
+		final int count = decoder.readCount();
+		final int[] componentIndexes = new int[count];
+		final int[] xCoordinates = new int[count];
+		final int[] yCoordinates = new int[count];
+		int previousIndex = 0;
+
+		for (int index = 0; index < count; index++) {
+			componentIndexes[index] = previousIndex + decoder.readSignedVarInt();
+			xCoordinates[index] = decoder.readSignedVarInt();
+			yCoordinates[index] = decoder.readSignedVarInt();
+			previousIndex = componentIndexes[index];
+
+			if (componentIndexes[index] < 0) {
+				throw new IOException("Invalid component index " + componentIndexes[index]);
+			}
+		}
+
+		return new FactoryModelEvent(factoryId, sequence, keyframeSequence, null, componentIndexes, xCoordinates, yCoordinates);
+	}
+
+	private static int readMagic(final byte[] bytes) {
+		return (bytes[0] & 0xFF) << 24 | (bytes[1] & 0xFF) << 16 | (bytes[2] & 0xFF) << 8 | bytes[3] & 0xFF;
+	}
+
+	/**
+	 * Writes the body first, collecting its strings, which are written before it
+	 * by {@link #toBytes(int)}.
+	 */
+	private static final class Encoder {
+
+		private final ByteBuffer body;
+
+		private final Map<String, Integer> stringIndexes;
+
+		private final List<String> strings;
+
+		private Encoder() {
+			body = new ByteBuffer();
+			stringIndexes = new HashMap<>();
+			strings = new ArrayList<>();
+		}
+
+		private byte[] toBytes(final int magic) {
+			final ByteBuffer header = new ByteBuffer();
+			header.writeInt(magic);
+			header.writeVarInt(FORMAT_VERSION);
+			header.writeVarInt(strings.size());
+
+			for (final String string : strings) {
+				final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+				header.writeVarInt(bytes.length);
+				header.write(bytes);
+			}
+
+			final byte[] bytes = Arrays.copyOf(header.bytes, header.size + body.size);
+			System.arraycopy(body.bytes, 0, bytes, header.size, body.size);
+
+			return bytes;
+		}
+
+		private void writeFactory(final Factory factory) {
+			writeVarInt(factory.getWidth());
+			writeVarInt(factory.getHeight());
+			writeString(factory.getName());
+			writeString(factory.getId());
+
+			final List<Component> components = factory.getComponents();
+			final Map<Component, Integer> componentIndexes = new IdentityHashMap<>();
+			final Map<Component, Component> parents = new IdentityHashMap<>();
+			final Map<FactoryPathFinder, Integer> pathFinderIndexes = new IdentityHashMap<>();
+			final ByteBuffer pathFinders = new ByteBuffer();
+
+			for (final Component component : components) {
+				componentIndexes.put(component, componentIndexes.size());
+
+				if (component instanceof Room) {
+					final Room room = (Room) component;
+					room.getAreas().forEach(area -> parents.put(area, room));
+					room.getDoors().forEach(door -> parents.put(door, room));
+				}
+				else if (component instanceof Area && ((Area) component).getMachine() != null) {
+					parents.put(((Area) component).getMachine(), component);
+				}
+				else if (component instanceof Robot) {
+					addPathFinder(((Robot) component).getPathFinder(), pathFinderIndexes, pathFinders);
+				}
+			}
+
+			writeVarInt(pathFinderIndexes.size());
+			body.write(Arrays.copyOf(pathFinders.bytes, pathFinders.size));
+			writeVarInt(components.size());
+
+			for (final Component component : components) {
+				writeComponent(component, componentIndexes, parents, pathFinderIndexes);
+			}
+		}
+
+		private void addPathFinder(final FactoryPathFinder pathFinder,
+								   final Map<FactoryPathFinder, Integer> pathFinderIndexes,
+								   final ByteBuffer pathFinders) {
+			if (pathFinder == null || pathFinderIndexes.containsKey(pathFinder)) {
+				return;
+			}
+
+			if (pathFinder instanceof CachingFactoryPathFinder) {
+				final CachingFactoryPathFinder cachingPathFinder = (CachingFactoryPathFinder) pathFinder;
+				addPathFinder(cachingPathFinder.getPathFinder(), pathFinderIndexes, pathFinders);
+				pathFinders.writeVarInt(CACHING_FINDER);
+				pathFinders.writeVarInt(pathFinderIndexes.get(cachingPathFinder.getPathFinder()));
+				pathFinders.writeVarInt(cachingPathFinder.getMaxEntries());
+			}
+			else if (pathFinder instanceof AnyAngleFactoryPathFinder) {
+				final AnyAngleFactoryPathFinder anyAnglePathFinder = (AnyAngleFactoryPathFinder) pathFinder;
+				addPathFinder(anyAnglePathFinder.getPathFinder(), pathFinderIndexes, pathFinders);
+				pathFinders.writeVarInt(ANY_ANGLE_FINDER);
+				pathFinders.writeVarInt(pathFinderIndexes.get(anyAnglePathFinder.getPathFinder()));
+			}
+			else if (pathFinder instanceof AbstractFactoryPathFinder) {
+				final List<String> options = getOptions(pathFinder);
+				pathFinders.writeVarInt(GRID_FINDER);
+				pathFinders.writeVarInt(stringIndex(pathFinder.getClass().getName()));
+				pathFinders.writeVarInt(((AbstractFactoryPathFinder<?, ?>) pathFinder).getResolution());
+				pathFinders.writeVarInt(options.size());
+				options.forEach(option -> pathFinders.writeVarInt(stringIndex(option)));
+			}
+			else {
+				throw new IllegalArgumentException("Unsupported path finder " + pathFinder.getClass().getName());
+			}
+
+			pathFinderIndexes.put(pathFinder, pathFinderIndexes.size());
+		}
+
+		/**
+		 * @return the options the finder is built with besides its factory and
+		 * resolution.
+		 * @throws IllegalArgumentException if the finder has a configuration the
+		 * format does not cover, subclasses included.
+		 */
+		private static List<String> getOptions(final FactoryPathFinder pathFinder) {
+			final Class<?> type = pathFinder.getClass();
+
+			if (type == AStarFactoryPathFinder.class) {
+				return List.of(((AStarFactoryPathFinder) pathFinder).getHeuristic().name(),
+							   ((AStarFactoryPathFinder) pathFinder).getDiagonalMoves().name());
+			}
+
+			if (type == JGraphTAStarFactoryPathFinder.class) {
+				return List.of(((JGraphTAStarFactoryPathFinder) pathFinder).getHeuristic().name());
+			}
+
+			if (type == HierarchicalFactoryPathFinder.class) {
+				return List.of(String.valueOf(((HierarchicalFactoryPathFinder) pathFinder).getClusterSize()));
+			}
+
+			if (type == DistanceFieldFactoryPathFinder.class && ((DistanceFieldFactoryPathFinder) pathFinder).getPool() != ForkJoinPool.commonPool()) {
+				throw new IllegalArgumentException("Unsupported path finder pool of " + type.getName());
+			}
+
+			if (!PLAIN_GRID_FINDERS.containsKey(type.getName())) {
+				throw new IllegalArgumentException("Unsupported path finder " + type.getName());
+			}
+
+			return List.of();
+		}
+
+		private void writeComponent(final Component component,
+									final Map<Component, Integer> componentIndexes,
+									final Map<Component, Component> parents,
+									final Map<FactoryPathFinder, Integer> pathFinderIndexes) {
+			final Class<?> type = component.getClass();
+			final int tag = type == Room.class ? ROOM :
+							type == Area.class ? AREA :
+							type == Machine.class ? MACHINE :
+							type == Door.class ? DOOR :
+							type == Conveyor.class ? CONVEYOR :
+							type == ChargingStation.class ? CHARGING_STATION :
+							type == Puck.class ? PUCK :
+							type == Robot.class ? ROBOT : 0;
+
+			if (tag == 0) {
+				throw new IllegalArgumentException("Unsupported component type " + type.getName());
+			}
+
+			writeVarInt(tag);
+			writeString(component.getName());
+			writeString(component.getId());
+
+			switch (tag) {
+				case AREA, MACHINE -> {
+					writeVarInt(getParentIndex(component, componentIndexes, parents));
+					writeRectangle(component);
+				}
+				case DOOR -> writeDoor((Door) component, componentIndexes, parents);
+				case CONVEYOR -> writeShape(component.getPositionedShape());
+				case CHARGING_STATION -> {
+					writeRectangle(component);
+					writeBoolean(((ChargingStation) component).isCharging());
+				}
+				case PUCK -> writeCircle(component);
+				case ROBOT -> writeRobot((Robot) component, componentIndexes, pathFinderIndexes);
+				default -> writeRectangle(component);
+			}
+		}
+
+		private int getParentIndex(final Component component,
+								   final Map<Component, Integer> componentIndexes,
+								   final Map<Component, Component> parents) {
+			final Integer parentIndex = componentIndexes.get(parents.get(component));
+
+			if (parentIndex == null || parentIndex >= componentIndexes.get(component)) {
+				throw new IllegalArgumentException("Component " + component.getName() + " does not follow the component it belongs to.");
+			}
+
+			return parentIndex;
+		}
+
+		/**
+		 * Doors keep their shape rather than the wall they were built on, which is
+		 * found again as the wall whose door shape is the same.
+		 */
+		private void writeDoor(final Door door,
+							   final Map<Component, Integer> componentIndexes,
+							   final Map<Component, Component> parents) {
+			final int roomIndex = getParentIndex(door, componentIndexes, parents);
+			final Room room = (Room) parents.get(door);
+
+			for (final Room.WALL wall : Room.WALL.values()) {
+				final boolean horizontal = wall == Room.WALL.TOP || wall == Room.WALL.BOTTOM;
+				final int offset = horizontal ? door.getxCoordinate() - room.getxCoordinate() : door.getyCoordinate() - room.getyCoordinate();
+				final int doorWidth = horizontal ? door.getWidth() : door.getHeight();
+				final int xCoordinate = switch (wall) {
+					case LEFT -> room.getxCoordinate();
+					case RIGHT -> room.getxCoordinate() + room.getWidth();
+					default -> room.getxCoordinate() + offset;
+				};
+				final int yCoordinate = switch (wall) {
+					case TOP -> room.getyCoordinate();
+					case BOTTOM -> room.getyCoordinate() + room.getHeight();
+					default -> room.getyCoordinate() + offset;
+				};
+
+				if (xCoordinate == door.getxCoordinate() &&
+					yCoordinate == door.getyCoordinate() &&
+					(horizontal ? door.getHeight() : door.getWidth()) == DOOR_THICKNESS) {
+					writeVarInt(roomIndex);
+					writeVarInt(wall.ordinal());
+					writeSignedVarInt(offset);
+					writeVarInt(doorWidth);
+					writeBoolean(door.isOpen());
+
+					return;
+				}
+			}
+
+			throw new IllegalArgumentException("Door " + door.getName() + " is not on a wall of room " + room.getName());
+		}
+
+		private void writeRobot(final Robot robot,
+								final Map<Component, Integer> componentIndexes,
+								final Map<FactoryPathFinder, Integer> pathFinderIndexes) {
+			writeCircle(robot);
+			writeVarInt(robot.getPathFinder() == null ? 0 : pathFinderIndexes.get(robot.getPathFinder()) + 1);
+			final Battery battery = robot.getBattery();
+			writeBoolean(battery != null);
+
+			if (battery != null) {
+				body.writeInt(Float.floatToIntBits(battery.getCapacity()));
+				body.writeInt(Float.floatToIntBits(battery.getLevel()));
+			}
+
+			writeSignedVarInt(robot.getSpeed());
+			final List<Component> targetComponents = robot.getTargetComponents();
+			writeVarInt(targetComponents.size());
+
+			for (final Component targetComponent : targetComponents) {
+				final Integer targetIndex = componentIndexes.get(targetComponent);
+
+				if (targetIndex == null) {
+					throw new IllegalArgumentException("Target " + targetComponent.getName() + " of robot " + robot.getName() + " is not in the factory.");
+				}
+
+				writeVarInt(targetIndex);
+			}
+		}
+
+		private void writeRectangle(final Component component) {
+			if (!(component.getPositionedShape() instanceof RectangularShape)) {
+				throw new IllegalArgumentException("Component " + component.getName() + " should have a rectangular shape.");
+			}
+
+			writeSignedVarInt(component.getxCoordinate());
+			writeSignedVarInt(component.getyCoordinate());
+			writeVarInt(component.getWidth());
+			writeVarInt(component.getHeight());
+		}
+
+		private void writeCircle(final Component component) {
+			if (!(component.getPositionedShape() instanceof CircularShape)) {
+				throw new IllegalArgumentException("Component " + component.getName() + " should have a circular shape.");
+			}
+
+			writeSignedVarInt(component.getxCoordinate());
+			writeSignedVarInt(component.getyCoordinate());
+			writeVarInt(((CircularShape) component.getPositionedShape()).getRadius());
+		}
+
+		private void writeShape(final PositionedShape shape) {
+			if (shape instanceof RectangularShape) {
+				writeVarInt(RECTANGLE);
+				writeSignedVarInt(shape.getxCoordinate());
+				writeSignedVarInt(shape.getyCoordinate());
+				writeVarInt(shape.getWidth());
+				writeVarInt(shape.getHeight());
+			}
+			else if (shape instanceof CircularShape) {
+				writeVarInt(CIRCLE);
+				writeSignedVarInt(shape.getxCoordinate());
+				writeSignedVarInt(shape.getyCoordinate());
+				writeVarInt(((CircularShape) shape).getRadius());
+			}
+			else if (shape instanceof BasicPolygonShape) {
+				writeVarInt(POLYGON);
+				writeVarInt(((BasicPolygonShape) shape).getVertices().size());
+
+				for (final Vertex vertex : ((BasicPolygonShape) shape).getVertices()) {
+					writeSignedVarInt(vertex.getxCoordinate());
+					writeSignedVarInt(vertex.getyCoordinate());
+				}
+			}
+			else {
+				throw new IllegalArgumentException("Unsupported shape type " + shape.getClass().getName());
+			}
+		}
+
+		private int stringIndex(final String string) {
+			if (string == null) {
+				return 0;
+			}
+
+			Integer index = stringIndexes.get(string);
+
+			if (index == null) {
+				strings.add(string);
+				index = strings.size();
+				stringIndexes.put(string, index);
+			}
+
+			return index;
+		}
+
+		private void writeString(final String string) {
+			writeVarInt(stringIndex(string));
+		}
+
+		private void writeBoolean(final boolean value) {
+			body.writeVarInt(value ? 1 : 0);
+		}
+
+		private void writeVarInt(final int value) {
+			body.writeVarInt(value);
+		}
+
+		private void writeSignedVarInt(final int value) {
+			body.writeVarInt(value << 1 ^ value >> 31);
+		}
+
+		private void writeVarLong(final long value) {
+			body.writeVarLong(value);
+		}
+	}
+
+	private static final class Decoder {
+
+		private final byte[] bytes;
+
+		private int position;
+
+		private final String[] strings;
+
+		private Decoder(final byte[] bytes,
+						final int magic)
+		throws IOException {
+			this.bytes = bytes;
+
+			if (bytes.length < Integer.BYTES || readMagic(bytes) != magic) {
+				throw new IOException("Not an encoded factory.");
+			}
+
+			position = Integer.BYTES;
+			final int version = readVarInt();
+
+			if (version > FORMAT_VERSION) {
+				throw new IOException("Unsupported factory format version " + version + ", expected at most " + FORMAT_VERSION + ".");
+			}
+
+			strings = new String[readCount() + 1];
+
+			for (int index = 1; index < strings.length; index++) {
+				final int length = readCount();
+				checkAvailable(length);
+				strings[index] = new String(bytes, position, length, StandardCharsets.UTF_8);
+				position += length;
+			}
+		}
+
+		private Factory readFactory()
+		throws IOException {
+			final Factory factory = new Factory(readVarInt(), readVarInt(), readString());
+			factory.setId(readString());
+
+			final List<FactoryPathFinder> pathFinders = new ArrayList<>();
+			final int pathFinderCount = readCount();
+
+			for (int index = 0; index < pathFinderCount; index++) {
+				pathFinders.add(readPathFinder(factory, pathFinders));
+			}
+
+			final int componentCount = readCount();
+			final List<List<Integer>> targetIndexes = new ArrayList<>();
+
+			for (int index = 0; index < componentCount; index++) {
+				readComponent(factory, pathFinders, targetIndexes);
+			}
+
+			// Targets may follow their robot, so they are added once all the components are built
+			for (int index = 0; index < targetIndexes.size(); index++) {
+				final Robot robot = (Robot) factory.getComponents().get(targetIndexes.get(index).get(0));
+
+				for (final int targetIndex : targetIndexes.get(index).subList(1, targetIndexes.get(index).size())) {
+					robot.addTargetComponent(getComponent(factory, targetIndex, Component.class, componentCount));
+				}
+			}
+
+			return factory;
+		}
+
+		private FactoryPathFinder readPathFinder(final Factory factory,
+												 final List<FactoryPathFinder> pathFinders)
+		throws IOException {
+			final int tag = readVarInt();
+
+			switch (tag) {
+				case CACHING_FINDER: {
+					final FactoryPathFinder pathFinder = getPathFinder(pathFinders, readVarInt());
+
+					return new CachingFactoryPathFinder((AbstractFactoryPathFinder<?, ?>) pathFinder, readVarInt());
+				}
+				case ANY_ANGLE_FINDER: {
+					return new AnyAngleFactoryPathFinder((AbstractFactoryPathFinder<?, ?>) getPathFinder(pathFinders, readVarInt()));
+				}
+				case GRID_FINDER: {
+					final String className = readString();
+					final int resolution = readVarInt();
+					final String[] options = new String[readCount()];
+
+					for (int index = 0; index < options.length; index++) {
+						options[index] = readString();
+					}
+
+					return newGridPathFinder(className, factory, resolution, options);
+				}
+				default: {
+					throw new IOException("Unknown path finder tag " + tag);
+				}
+			}
+		}
+
+		private static FactoryPathFinder getPathFinder(final List<FactoryPathFinder> pathFinders,
+													   final int index)
+		throws IOException {
+			if (index >= pathFinders.size() || !(pathFinders.get(index) instanceof AbstractFactoryPathFinder)) {
+				throw new IOException("Invalid decorated path finder " + index);
+			}
+
+			return pathFinders.get(index);
+		}
+
+		private static FactoryPathFinder newGridPathFinder(final String className,
+														   final Factory factory,
+														   final int resolution,
+														   final String[] options)
+		throws IOException {
+			try {
+				if (AStarFactoryPathFinder.class.getName().equals(className) && options.length == 2) {
+					return new AStarFactoryPathFinder(factory, resolution, GridHeuristic.valueOf(options[0]), DiagonalMoves.valueOf(options[1]));
+				}
+
+				if (JGraphTAStarFactoryPathFinder.class.getName().equals(className) && options.length == 1) {
+					return new JGraphTAStarFactoryPathFinder(factory, resolution, GridHeuristic.valueOf(options[0]));
+				}
+
+				if (HierarchicalFactoryPathFinder.class.getName().equals(className) && options.length == 1) {
+					return new HierarchicalFactoryPathFinder(factory, resolution, Integer.parseInt(options[0]));
+				}
+
+				// Only the finders the encoder writes are created, whatever the bytes say
+				final BiFunction<Factory, Integer, FactoryPathFinder> constructor = PLAIN_GRID_FINDERS.get(className);
+
+				if (constructor == null || options.length != 0) {
+					throw new IOException("Unsupported path finder " + className);
+				}
+
+				return constructor.apply(factory, resolution);
+			}
+			catch (final IllegalArgumentException ex) {
+				throw new IOException("Cannot create path finder " + className, ex);
+			}
+		}
+
+		private void readComponent(final Factory factory,
+								   final List<FactoryPathFinder> pathFinders,
+								   final List<List<Integer>> targetIndexes)
+		throws IOException {
+			final int index = factory.getComponents().size();
+			final int tag = readVarInt();
+			final String name = readString();
+			final String id = readString();
+			final Component component;
+
+			switch (tag) {
+				case ROOM: {
+					component = new Room(factory, readRectangle(), name);
+					break;
+				}
+				case AREA: {
+					component = new Area(getComponent(factory, readVarInt(), Room.class, index), readRectangle(), name);
+					break;
+				}
+				case MACHINE: {
+					component = new Machine(getComponent(factory, readVarInt(), Area.class, index), readRectangle(), name);
+					break;
+				}
+				case DOOR: {
+					final Room room = getComponent(factory, readVarInt(), Room.class, index);
+					final int wall = readVarInt();
+
+					if (wall >= Room.WALL.values().length) {
+						throw new IOException("Invalid wall " + wall);
+					}
+
+					component = new Door(room, Room.WALL.values()[wall], readSignedVarInt(), readVarInt(), readBoolean(), name);
+					break;
+				}
+				case CONVEYOR: {
+					component = new Conveyor(factory, readShape(), name);
+					break;
+				}
+				case CHARGING_STATION: {
+					final ChargingStation chargingStation = new ChargingStation(factory, readRectangle(), name);
+					chargingStation.setCharging(readBoolean());
+					component = chargingStation;
+					break;
+				}
+				case PUCK: {
+					component = new Puck(factory, readCircle(), name);
+					break;
+				}
+				case ROBOT: {
+					component = readRobot(factory, name, pathFinders, index, targetIndexes);
+					break;
+				}
+				default: {
+					throw new IOException("Unknown component tag " + tag);
+				}
+			}
+
+			component.setId(id);
+		}
+
+		private Robot readRobot(final Factory factory,
+								final String name,
+								final List<FactoryPathFinder> pathFinders,
+								final int index,
+								final List<List<Integer>> targetIndexes)
+		throws IOException {
+			final CircularShape shape = readCircle();
+			final int pathFinderIndex = readVarInt();
+
+			if (pathFinderIndex > pathFinders.size()) {
+				throw new IOException("Invalid path finder " + pathFinderIndex);
+			}
+
+			Battery battery = null;
+
+			if (readBoolean()) {
+				battery = new Battery(Float.intBitsToFloat(readInt()));
+				battery.consume(battery.getCapacity() - Float.intBitsToFloat(readInt()));
+			}
+
+			final Robot robot = new Robot(factory, pathFinderIndex == 0 ? null : pathFinders.get(pathFinderIndex - 1), shape, battery, name);
+			robot.setSpeed(readSignedVarInt());
+			final int targetCount = readCount();
+			final List<Integer> robotTargetIndexes = new ArrayList<>(targetCount + 1);
+			robotTargetIndexes.add(index);
+
+			for (int targetIndex = 0; targetIndex < targetCount; targetIndex++) {
+				robotTargetIndexes.add(readVarInt());
+			}
+
+			targetIndexes.add(robotTargetIndexes);
+
+			return robot;
+		}
+
+		private static <T extends Component> T getComponent(final Factory factory,
+															final int index,
+															final Class<T> type,
+															final int componentCount)
+		throws IOException {
+			if (index >= componentCount || index >= factory.getComponents().size() || !type.isInstance(factory.getComponents().get(index))) {
+				throw new IOException("Component " + index + " is not a decoded " + type.getSimpleName());
+			}
+
+			return type.cast(factory.getComponents().get(index));
+		}
+
+		private RectangularShape readRectangle()
+		throws IOException {
+			return new RectangularShape(readSignedVarInt(), readSignedVarInt(), readVarInt(), readVarInt());
+		}
+
+		private CircularShape readCircle()
+		throws IOException {
+			return new CircularShape(readSignedVarInt(), readSignedVarInt(), readVarInt());
+		}
+
+		private PositionedShape readShape()
+		throws IOException {
+			final int tag = readVarInt();
+
+			switch (tag) {
+				case RECTANGLE: {
+					return readRectangle();
+				}
+				case CIRCLE: {
+					return readCircle();
+				}
+				case POLYGON: {
+					final BasicPolygonShape shape = new BasicPolygonShape();
+					final int vertexCount = readCount();
+
+					for (int index = 0; index < vertexCount; index++) {
+						shape.addVertex(new BasicVertex(readSignedVarInt(), readSignedVarInt()));
+					}
+
+					return shape;
+				}
+				default: {
+					throw new IOException("Unknown shape tag " + tag);
+				}
+			}
+		}
+
+		private String readString()
+		throws IOException {
+			final int index = readVarInt();
+
+			if (index >= strings.length) {
+				throw new IOException("Invalid string index " + index);
+			}
+
+			return strings[index];
+		}
+
+		private boolean readBoolean()
+		throws IOException {
+			return readVarInt() != 0;
+		}
+
+		/**
+		 * @return a number of elements, which each take at least one byte.
+		 */
+		private int readCount()
+		throws IOException {
+			final int count = readVarInt();
+			checkAvailable(count);
+
+			return count;
+		}
+
+		private int readInt()
+		throws IOException {
+			checkAvailable(Integer.BYTES);
+			final int value = (bytes[position] & 0xFF) << 24 | (bytes[position + 1] & 0xFF) << 16 | (bytes[position + 2] & 0xFF) << 8 | bytes[position + 3] & 0xFF;
+			position += Integer.BYTES;
+
+			return value;
+		}
+
+		private int readSignedVarInt()
+		throws IOException {
+			final int value = readVarInt();
+
+			return value >>> 1 ^ -(value & 1);
+		}
+
+		private int readVarInt()
+		throws IOException {
+			final long value = readVarLong();
+
+			if (value >>> Integer.SIZE != 0) {
+				throw new IOException("Integer out of range " + value);
+			}
+
+			return (int) value;
+		}
+
+		private long readVarLong()
+		throws IOException {
+			long value = 0;
+
+			for (int shift = 0; shift < Long.SIZE; shift += 7) {
+				checkAvailable(1);
+				final byte currentByte = bytes[position++];
+				value |= (long) (currentByte & 0x7F) << shift;
+
+				if (currentByte >= 0) {
+					return value;
+				}
+			}
+
+			throw new IOException("Malformed variable length integer");
+		}
+
+		private void checkAvailable(final int length)
+		throws EOFException {
+			if (length < 0 || length > bytes.length - position) {
+				throw new EOFException("Truncated encoded factory");
+			}
+		}
+	}
+
+	/**
+	 * Growable byte array, so that encoding does not synchronize as output
+	 * streams do.
+	 */
+	private static final class ByteBuffer {
+
+		private byte[] bytes = new byte[256];
+
+		private int size;
+
+		private void ensureCapacity(final int length) {
+			if (size + length > bytes.length) {
+				bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + length));
+			}
+		}
+
+		private void write(final byte[] values) {
+			ensureCapacity(values.length);
+			System.arraycopy(values, 0, bytes, size, values.length);
+			size += values.length;
+		}
+
+		private void writeInt(final int value) {
+			ensureCapacity(Integer.BYTES);
+			bytes[size++] = (byte) (value >>> 24);
+			bytes[size++] = (byte) (value >>> 16);
+			bytes[size++] = (byte) (value >>> 8);
+			bytes[size++] = (byte) value;
+		}
+
+		private void writeVarInt(final int value) {
+			writeVarLong(value & 0xFFFFFFFFL);
+		}
+
+		private void writeVarLong(long value) {
+			ensureCapacity(10);
+
+			while ((value & ~0x7FL) != 0) {
+				bytes[size++] = (byte) (value & 0x7F | 0x80);
+				value >>>= 7;
+			}
+
+			bytes[size++] = (byte) value;
+		}
+	}
+}
@@ -1,15 +1,15 @@
 package fr.tp.inf112.projects.robotsim.model;
 
-import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 
 import fr.tp.inf112.projects.canvas.model.Canvas;
 import fr.tp.inf112.projects.canvas.model.CanvasChooser;
@@ -22,15 +22,20 @@ public class FactoryPersistenceManager extends AbstractCanvasPersistenceManager
 	}
 
 	/**
-	 * {@inheritDoc}
+	 * Reads factories written with the {@link FactoryCodec}, and the canvases
+	 * written with Java serialization.
 	 */
 	@Override
 	public Canvas read(final String canvasId)
 	throws IOException {
+		final byte[] bytes = Files.readAllBytes(Paths.get(canvasId));
+		
+		if (FactoryCodec.isEncoded(bytes)) {
+			return FactoryCodec.decode(bytes);
+		}
+		
 		try (
-			final InputStream fileInputStream = new FileInputStream(canvasId);
-			final InputStream bufInputStream = new BufferedInputStream(fileInputStream);
-			final ObjectInputStream objectInputStrteam = new ObjectInputStream(bufInputStream);
+			final ObjectInputStream objectInputStrteam = new ObjectInputStream(new ByteArrayInputStream(bytes));
 		) {
 			return (Canvas) objectInputStrteam.readObject();
 		}
@@ -41,27 +46,51 @@ public class FactoryPersistenceManager extends AbstractCanvasPersistenceManager
 	}
 
 	/**
-	 * {@inheritDoc}
+	 * Writes factories with the {@link FactoryCodec}, falling back to Java
+	 * serialization for the other canvases and the factories it does not cover.
 	 */
 	@Override
 	public void persist(Canvas canvasModel)
 	throws IOException {
-		// If the canvas has no id, default to saving under project 'config/'
-		if (canvasModel.getId() == null || canvasModel.getId().trim().isEmpty()) {
-			final String defaultDir = "config";
-			final File dir = new File(defaultDir);
-			if (!dir.exists()) {
-				dir.mkdirs();
+		assignDefaultId(canvasModel);
+
+		byte[] bytes = null;
+		
+		if (canvasModel instanceof Factory) {
+			try {
+				bytes = FactoryCodec.encode((Factory) canvasModel);
+			}
+			catch (final IllegalArgumentException ex) {
+				// Component or path finder types of other projects
 			}
-			canvasModel.setId(defaultDir + File.separator + "factory-" + System.currentTimeMillis() + ".ser");
 		}
 
 		try (
 			final OutputStream fileOutStream = new FileOutputStream(canvasModel.getId());
 			final OutputStream bufOutStream = new BufferedOutputStream(fileOutStream);
-			final ObjectOutputStream objOutStream = new ObjectOutputStream(bufOutStream);
 		) {
-			objOutStream.writeObject(canvasModel);
+			if (bytes != null) {
+				bufOutStream.write(bytes);
+			}
+			else {
+				final ObjectOutputStream objOutStream = new ObjectOutputStream(bufOutStream);
+				objOutStream.writeObject(canvasModel);
+				objOutStream.flush();
+			}
+		}
+	}
+
+	/**
+	 * If the canvas has no id, default to saving under project 'config/'.
+	 */
+	protected void assignDefaultId(final Canvas canvasModel) {
+		if (canvasModel.getId() == null || canvasModel.getId().trim().isEmpty()) {
+			final String defaultDir = "config";
+			final File dir = new File(defaultDir);
+			if (!dir.exists()) {
+				dir.mkdirs();
+			}
+			canvasModel.setId(defaultDir + File.separator + "factory-" + System.currentTimeMillis() + ".ser");
 		}
 	}
 
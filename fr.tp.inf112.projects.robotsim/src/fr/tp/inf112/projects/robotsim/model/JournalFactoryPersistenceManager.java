@@ -0,0 +1,554 @@
+package fr.tp.inf112.projects.robotsim.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32C;
+
+import fr.tp.inf112.projects.canvas.model.Canvas;
+import fr.tp.inf112.projects.canvas.model.CanvasChooser;
+import fr.tp.inf112.projects.robotsim.model.notifier.FactoryModelEvent;
+import fr.tp.inf112.projects.robotsim.model.notifier.FactoryModelEventEncoder;
+
+/**
+ * Persistence manager saving factories as a journal of their changes, so that
+ * frequent saves only write the components that moved since the previous one.
+ *
+ * The journal of a factory is a sequence of memory mapped segment files next
+ * to the factory file, named after it with the number of the segment. Each
+ * segment starts with a checkpoint of the whole factory, written with the
+ * {@link FactoryCodec}, followed by the records of the positions that changed
+ * at each save. A new segment is started at each checkpoint interval, and
+ * whenever components are added or removed.
+ *
+ * Each record carries its length and checksum, and is forced to the disk by
+ * its save. A record partly written when the application stopped fails its
+ * checksum and ends the segment, so that reading a factory rebuilds it as of
+ * the last complete save, from the checkpoint of the last segment and the
+ * records that follow it. The segments are kept for the retention period, to
+ * {@link #replay(String, long, long, ReplayListener) replay} the factory.
+ *
+ * Records only hold the positions of the components. The rest of their state,
+ * such as the battery levels of the robots or their progress along their
+ * paths, is only saved by the checkpoints, so that a factory is read with the
+ * positions of its last save and the other state of its last checkpoint. The
+ * journal compares each save with a copy of the factory it keeps, so that the
+ * successive saves may be different objects, as when decoded by a server.
+ *
+ * Canvases other than factories, and the factories the codec does not cover,
+ * are saved as a whole like the {@link FactoryPersistenceManager} does, which
+ * also reads the factory files of factories that have no journal, or that
+ * were saved as a whole after their last journal segment.
+ */
+public class JournalFactoryPersistenceManager extends FactoryPersistenceManager implements Closeable {
+
+	private static final Logger LOGGER = Logger.getLogger(JournalFactoryPersistenceManager.class.getName());
+
+	public static final long DEFAULT_CHECKPOINT_INTERVAL_MS = TimeUnit.MINUTES.toMillis(1);
+
+	public static final long DEFAULT_RETENTION_MS = TimeUnit.HOURS.toMillis(12);
+
+	private static final String SEGMENT_SUFFIX = ".journal";
+
+	private static final int SEGMENT_INITIAL_SIZE = 1 << 20;
+
+	private static final int RECORD_HEADER_SIZE = 2 * Integer.BYTES + Long.BYTES;
+
+	/**
+	 * Receives the successive states of a replayed factory.
+	 */
+	public interface ReplayListener {
+
+		/**
+		 * @param factory the factory of the current segment, updated in place
+		 * until the next checkpoint.
+		 */
+		void stateReplayed(long timestampMs,
+						   Factory factory);
+	}
+
+	private final long checkpointIntervalMs;
+
+	private final long retentionMs;
+
+	private final Map<String, Journal> journals;
+
+	public JournalFactoryPersistenceManager(final CanvasChooser canvasChooser) {
+		this(canvasChooser, DEFAULT_CHECKPOINT_INTERVAL_MS, DEFAULT_RETENTION_MS);
+	}
+
+	public JournalFactoryPersistenceManager(final CanvasChooser canvasChooser,
+											final long checkpointIntervalMs,
+											final long retentionMs) {
+		super(canvasChooser);
+
+		if (checkpointIntervalMs <= 0 || retentionMs <= 0) {
+			throw new IllegalArgumentException("Checkpoint interval and retention must be positive: " + checkpointIntervalMs + ", " + retentionMs);
+		}
+
+		this.checkpointIntervalMs = checkpointIntervalMs;
+		this.retentionMs = retentionMs;
+		journals = new HashMap<>();
+	}
+
+	/**
+	 * Reads the factory as of its last save, or the factory file if it has no
+	 * journal or was saved as a whole since.
+	 */
+	@Override
+	public synchronized Canvas read(final String canvasId)
+	throws IOException {
+		final List<Path> segments = listSegments(canvasId);
+
+		if (segments.isEmpty() || !isSegment(getLastSaveFile(canvasId))) {
+			return super.read(canvasId);
+		}
+
+		// The last segment may only hold part of its checkpoint
+		for (int index = segments.size() - 1; index >= 0; index--) {
+			final SegmentReader reader = new SegmentReader();
+			reader.read(segments.get(index), null, Long.MIN_VALUE, Long.MAX_VALUE);
+
+			if (reader.factory != null) {
+				return reader.factory;
+			}
+		}
+
+		return super.read(canvasId);
+	}
+
+	/**
+	 * Appends the changes of the factory since its previous save to its
+	 * journal.
+	 */
+	@Override
+	public synchronized void persist(final Canvas canvasModel)
+	throws IOException {
+		if (!(canvasModel instanceof Factory)) {
+			super.persist(canvasModel);
+
+			return;
+		}
+
+		assignDefaultId(canvasModel);
+		final String canvasId = canvasModel.getId();
+		Journal journal = journals.get(canvasId);
+
+		if (journal == null) {
+			journal = new Journal(canvasId);
+			journals.put(canvasId, journal);
+		}
+
+		try {
+			journal.append((Factory) canvasModel);
+		}
+		catch (final IllegalArgumentException ex) {
+			// Not covered by the codec: saved as a whole after the journal, which is kept for replays
+			closeJournal(canvasId);
+			super.persist(canvasModel);
+		}
+	}
+
+	/**
+	 * @return the file written by the last save of the canvas, which is the
+	 * last segment of its journal or its factory file, or {@code null} if the
+	 * canvas has neither.
+	 */
+	public synchronized Path getLastSaveFile(final String canvasId)
+	throws IOException {
+		final List<Path> segments = listSegments(canvasId);
+		final Path canvasFile = Paths.get(canvasId);
+
+		if (segments.isEmpty()) {
+			return Files.exists(canvasFile) ? canvasFile : null;
+		}
+
+		final Path lastSegment = segments.get(segments.size() - 1);
+
+		if (Files.exists(canvasFile) && Files.getLastModifiedTime(canvasFile).compareTo(Files.getLastModifiedTime(lastSegment)) > 0) {
+			return canvasFile;
+		}
+
+		return lastSegment;
+	}
+
+	/**
+	 * @return {@code true} if the file is a journal segment.
+	 */
+	public static boolean isSegment(final Path file) {
+		return file != null && getCanvasFileName(file.getFileName().toString()) != null;
+	}
+
+	/**
+	 * @return the name of the factory file of a journal segment, or
+	 * {@code null} if the file name is not the one of a segment.
+	 */
+	public static String getCanvasFileName(final String fileName) {
+		if (!fileName.endsWith(SEGMENT_SUFFIX)) {
+			return null;
+		}
+
+		final int end = fileName.length() - SEGMENT_SUFFIX.length();
+		final int start = fileName.lastIndexOf('.', end - 1);
+
+		if (start <= 0 || !fileName.substring(start + 1, end).matches("[0-9]+")) {
+			return null;
+		}
+
+		return fileName.substring(0, start);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized boolean delete(final Canvas canvasModel)
+	throws IOException {
+		closeJournal(canvasModel.getId());
+		final boolean journalDeleted = deleteSegments(canvasModel.getId());
+
+		return super.delete(canvasModel) || journalDeleted;
+	}
+
+	/**
+	 * Calls the listener with the successive states of the factory saved
+	 * between the given times, from the oldest segment kept.
+	 */
+	public synchronized void replay(final String canvasId,
+									final long fromMs,
+									final long toMs,
+									final ReplayListener listener)
+	throws IOException {
+		for (final Path segment : listSegments(canvasId)) {
+			if (!new SegmentReader().read(segment, listener, fromMs, toMs)) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Closes the journals of the factories saved, the next save of which starts
+	 * a new segment.
+	 */
+	@Override
+	public synchronized void close()
+	throws IOException {
+		for (final String canvasId : new ArrayList<>(journals.keySet())) {
+			closeJournal(canvasId);
+		}
+	}
+
+	private void closeJournal(final String canvasId)
+	throws IOException {
+		final Journal journal = journals.remove(canvasId);
+
+		if (journal != null) {
+			journal.closeSegment();
+		}
+	}
+
+	private static List<Path> listSegments(final String canvasId)
+	throws IOException {
+		final Path canvasPath = Paths.get(canvasId).toAbsolutePath();
+		final String prefix = canvasPath.getFileName() + ".";
+		final List<Path> segments = new ArrayList<>();
+
+		if (!Files.isDirectory(canvasPath.getParent())) {
+			return segments;
+		}
+
+		try (final DirectoryStream<Path> paths = Files.newDirectoryStream(canvasPath.getParent(), prefix + "*" + SEGMENT_SUFFIX)) {
+			for (final Path path : paths) {
+				final String fileName = path.getFileName().toString();
+
+				if (fileName.substring(prefix.length(), fileName.length() - SEGMENT_SUFFIX.length()).matches("[0-9]+")) {
+					segments.add(path);
+				}
+			}
+		}
+
+		// Numbers have the same number of digits
+		segments.sort(null);
+
+		return segments;
+	}
+
+	private static long getSegmentNumber(final Path segment) {
+		final String fileName = segment.getFileName().toString();
+		final int end = fileName.length() - SEGMENT_SUFFIX.length();
+
+		return Long.parseLong(fileName.substring(fileName.lastIndexOf('.', end - 1) + 1, end));
+	}
+
+	private static boolean deleteSegments(final String canvasId)
+	throws IOException {
+		boolean deleted = false;
+
+		for (final Path segment : listSegments(canvasId)) {
+			deleted |= Files.deleteIfExists(segment);
+		}
+
+		return deleted;
+	}
+
+	/**
+	 * Journal of a factory being saved, appending to its last segment.
+	 */
+	private final class Journal {
+
+		private final String canvasId;
+
+		/** Copy of the factory as of its last save, to which the saves are compared. */
+		private Factory savedFactory;
+
+		private FactoryModelEventEncoder encoder;
+
+		private long checkpointMs;
+
+		private FileChannel channel;
+
+		private MappedByteBuffer buffer;
+
+		private Journal(final String canvasId) {
+			this.canvasId = canvasId;
+		}
+
+		/**
+		 * @throws IllegalArgumentException if the codec does not cover the
+		 * factory.
+		 */
+		private void append(final Factory factory)
+		throws IOException {
+			if (savedFactory == null ||
+				!hasSameComponents(factory, savedFactory) ||
+				System.currentTimeMillis() - checkpointMs >= checkpointIntervalMs) {
+				// The new copy is a checkpoint, holding the whole state of the components
+				savedFactory = FactoryCodec.decode(FactoryCodec.encode(factory));
+				encoder = new FactoryModelEventEncoder(savedFactory, checkpointIntervalMs);
+				checkpointMs = System.currentTimeMillis();
+			}
+			else {
+				copyPositions(factory, savedFactory);
+			}
+
+			final FactoryModelEvent event = encoder.nextEvent();
+
+			if (event == null) {
+				return;
+			}
+
+			final byte[] bytes = FactoryCodec.encodeEvent(event);
+
+			if (!event.isDelta()) {
+				startSegment();
+			}
+
+			final long timestampMs = System.currentTimeMillis();
+			final CRC32C checksum = new CRC32C();
+			checksum.update(ByteBuffer.allocate(Long.BYTES).putLong(0, timestampMs));
+			checksum.update(bytes);
+			ensureCapacity(RECORD_HEADER_SIZE + bytes.length);
+			buffer.putInt(bytes.length);
+			buffer.putInt((int) checksum.getValue());
+			buffer.putLong(timestampMs);
+			buffer.put(bytes);
+			buffer.force();
+		}
+
+		private static boolean hasSameComponents(final Factory factory,
+												 final Factory savedFactory) {
+			final List<Component> components = factory.getComponents();
+			final List<Component> savedComponents = savedFactory.getComponents();
+
+			if (factory.getWidth() != savedFactory.getWidth() ||
+				factory.getHeight() != savedFactory.getHeight() ||
+				components.size() != savedComponents.size()) {
+				return false;
+			}
+
+			for (int index = 0; index < components.size(); index++) {
+				final Component component = components.get(index);
+				final Component savedComponent = savedComponents.get(index);
+
+				if (component.getClass() != savedComponent.getClass() ||
+					!Objects.equals(component.getName(), savedComponent.getName()) ||
+					(component.getPositionedShape() == null) != (savedComponent.getPositionedShape() == null)) {
+					return false;
+				}
+			}
+
+			return true;
+		}
+
+		private static void copyPositions(final Factory factory,
+										  final Factory savedFactory) {
+			final List<Component> components = factory.getComponents();
+			final List<Component> savedComponents = savedFactory.getComponents();
+
+			for (int index = 0; index < components.size(); index++) {
+				final Component component = components.get(index);
+
+				if (component.getPositionedShape() != null) {
+					final Component savedComponent = savedComponents.get(index);
+					final Position position = savedComponent.getPosition();
+					final boolean xChanged = position.setxCoordinate(component.getxCoordinate());
+
+					if (position.setyCoordinate(component.getyCoordinate()) || xChanged) {
+						savedFactory.componentMoved(savedComponent);
+					}
+				}
+			}
+		}
+
+		private void startSegment()
+		throws IOException {
+			closeSegment();
+			final List<Path> segments = listSegments(canvasId);
+			final long number = segments.isEmpty() ? 0 : getSegmentNumber(segments.get(segments.size() - 1)) + 1;
+			final Path segment = Paths.get(String.format("%s.%012d%s", canvasId, number, SEGMENT_SUFFIX));
+			channel = FileChannel.open(segment, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, SEGMENT_INITIAL_SIZE);
+			deleteExpiredSegments(segments);
+		}
+
+		private void deleteExpiredSegments(final List<Path> segments) {
+			final long expiryMs = System.currentTimeMillis() - retentionMs;
+
+			for (final Path segment : segments) {
+				try {
+					if (Files.getLastModifiedTime(segment).toMillis() < expiryMs) {
+						Files.delete(segment);
+					}
+				}
+				catch (final IOException ex) {
+					LOGGER.log(Level.WARNING, "Cannot delete expired journal segment " + segment, ex);
+				}
+			}
+		}
+
+		private void ensureCapacity(final int length)
+		throws IOException {
+			if (buffer.remaining() < length) {
+				final int position = buffer.position();
+				buffer.force();
+				buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(2L * buffer.capacity(), (long) position + length));
+				buffer.position(position);
+			}
+		}
+
+		/**
+		 * Cuts the part of the segment mapped in advance.
+		 */
+		private void closeSegment()
+		throws IOException {
+			if (channel != null) {
+				buffer.force();
+
+				try {
+					channel.truncate(buffer.position());
+				}
+				catch (final IOException ex) {
+					// Some systems do not truncate mapped files: the tail reads as the end of the segment
+					LOGGER.log(Level.FINE, "Cannot truncate journal segment of " + canvasId, ex);
+				}
+
+				channel.close();
+				channel = null;
+				buffer = null;
+			}
+		}
+	}
+
+	/**
+	 * Rebuilds the factory of a segment, record after record, until its end or
+	 * its first invalid record.
+	 */
+	private static final class SegmentReader {
+
+		private Factory factory;
+
+		private FactoryModelEvent lastEvent;
+
+		/**
+		 * @return {@code false} if the segment holds states after the given
+		 * period, and the replay is over.
+		 */
+		private boolean read(final Path segment,
+							 final ReplayListener listener,
+							 final long fromMs,
+							 final long toMs)
+		throws IOException {
+			final ByteBuffer buffer;
+
+			try (final FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+				buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			}
+
+			final CRC32C checksum = new CRC32C();
+
+			try {
+				while (buffer.remaining() >= RECORD_HEADER_SIZE) {
+					final int length = buffer.getInt();
+					final int expectedChecksum = buffer.getInt();
+					final long timestampMs = buffer.getLong();
+
+					if (length <= 0 || length > buffer.remaining()) {
+						break;
+					}
+
+					final byte[] bytes = new byte[length];
+					buffer.get(bytes);
+					checksum.reset();
+					checksum.update(ByteBuffer.allocate(Long.BYTES).putLong(0, timestampMs));
+					checksum.update(bytes);
+
+					if ((int) checksum.getValue() != expectedChecksum || !apply(FactoryCodec.decodeEvent(bytes))) {
+						break;
+					}
+
+					if (timestampMs > toMs) {
+						return false;
+					}
+
+					if (listener != null && timestampMs >= fromMs) {
+						listener.stateReplayed(timestampMs, factory);
+					}
+				}
+			}
+			catch (final IOException | BufferUnderflowException ex) {
+				LOGGER.log(Level.FINE, "Journal segment " + segment + " ends with an invalid record.", ex);
+			}
+
+			return true;
+		}
+
+		private boolean apply(final FactoryModelEvent event) {
+			if (!event.isDelta()) {
+				factory = event.keyframe();
+			}
+			else if (factory == null || !event.follows(lastEvent) || !event.applyTo(factory)) {
+				return false;
+			}
+
+			lastEvent = event;
+
+			return true;
+		}
+	}
+}
@@ -7,11 +7,10 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import fr.tp.inf112.projects.canvas.model.Style;
 import fr.tp.inf112.projects.canvas.model.impl.RGBColor;
-import fr.tp.inf112.projects.robotsim.model.motion.Motion;
+import fr.tp.inf112.projects.robotsim.model.path.CooperativeFactoryPathFinder;
 import fr.tp.inf112.projects.robotsim.model.path.FactoryPathFinder;
 import fr.tp.inf112.projects.robotsim.model.shapes.CircularShape;
 import fr.tp.inf112.projects.robotsim.model.shapes.PositionedShape;
-import fr.tp.inf112.projects.robotsim.model.shapes.RectangularShape;
 
 public class Robot extends Component {
 	
@@ -21,6 +20,11 @@ public class Robot extends Component {
 
 	private static final Style BLOCKED_STYLE = new ComponentStyle(RGBColor.RED, RGBColor.BLACK, 3.0f, new float[]{4.0f});
 
+	/** Steps to the neighbouring positions tried when the robot has to step aside. */
+	private static final int[] NEIGHBOURING_X_STEPS = { 2, -2, 0, 0, 2, -2, 2, -2 };
+
+	private static final int[] NEIGHBOURING_Y_STEPS = { 0, 0, 2, -2, 2, 2, -2, -2 };
+
 	private Battery battery;
 	
 	private int speed;
@@ -76,11 +80,19 @@ public class Robot extends Component {
 		this.speed = speed;
 	}
 	
+	FactoryPathFinder getPathFinder() {
+		return pathFinder;
+	}
+
+	Battery getBattery() {
+		return battery;
+	}
+
 	public Position getMemorizedTargetPosition() {
 		return memorizedTargetPosition;
 	}
 	
-	private List<Component> getTargetComponents() {
+	List<Component> getTargetComponents() {
 		if (targetComponents == null) {
 			targetComponents = new ArrayList<>();
 		}
@@ -126,33 +138,55 @@ public class Robot extends Component {
 	
 	
 	private int moveToNextPathPosition() {
-	final Motion motion = computeMotion();
+	final Position targetPosition = computeNextPosition();
 	// Delegate movement to the Factory so the check+move can be synchronized there.
-	int displacement = motion == null ? 0 : getFactory().moveComponent(motion, this);
+	int displacement = targetPosition == null ? 0 : getFactory().moveComponent(this, targetPosition.getxCoordinate(), targetPosition.getyCoordinate());
 
         if (displacement != 0) {
             notifyObservers();
         }
         else if (isLivelyLocked()) {
-            final Position freeNeighbouringPosition = findFreeNeighbouringPosition();
-            if (freeNeighbouringPosition != null) {
-                // Use the neighbour as a temporary escape position
-                this.memorizedTargetPosition = freeNeighbouringPosition;
-                final Motion escapeMotion = computeMotion();
-                displacement = escapeMotion == null ? 0 : escapeMotion.moveToTarget();
-                if (displacement != 0) {
-                    notifyObservers();
-                    // Clear memorized position so normal path steps resume
-                    this.memorizedTargetPosition = null;
-                    // Reset blocked state and recompute path from new position
-                    blocked = false;
-                    computePathToCurrentTargetComponent();
-                }
-            }
+            displacement = moveToFreeNeighbouringPosition();
         }
         return displacement;
     }
 
+	/**
+	 * Steps aside to a free neighbouring position so that the robots waiting for
+	 * this one can move, then resumes from there towards the current target.
+	 *
+	 * @return {@code true} if the robot moved.
+	 */
+	public boolean giveWay() {
+		return moveToFreeNeighbouringPosition() != 0;
+	}
+
+	private int moveToFreeNeighbouringPosition() {
+		final int direction = findFreeNeighbouringDirection();
+
+		if (direction < 0) {
+			return 0;
+		}
+
+		final int displacement = getFactory().moveComponent(this,
+															getxCoordinate() + NEIGHBOURING_X_STEPS[direction],
+															getyCoordinate() + NEIGHBOURING_Y_STEPS[direction]);
+
+		if (displacement != 0) {
+			notifyObservers();
+			// Clear memorized position so normal path steps resume
+			this.memorizedTargetPosition = null;
+			// Reset blocked state and recompute path from new position
+			blocked = false;
+
+			if (currTargetComponent != null) {
+				computePathToCurrentTargetComponent();
+			}
+		}
+
+		return displacement;
+	}
+
 	/** No-arg constructor for Jackson */
 	protected Robot() {
 		super();
@@ -167,27 +201,25 @@ public class Robot extends Component {
 		pathFinder = null;
 	}
 
-    private Position findFreeNeighbouringPosition() {
-        final Position curr = getPosition();
-        final int step = 2;
-        final int[][] deltas = {
-                { step, 0 }, { -step, 0 }, { 0, step }, { 0, -step },
-                { step, step }, { -step, step }, { step, -step }, { -step, -step }
-        };
-
-        for (final int[] d : deltas) {
-            final int nx = curr.getxCoordinate() + d[0];
-            final int ny = curr.getyCoordinate() + d[1];
+    /**
+     * @return the index of the first free neighbouring step in the step tables, or -1 if none is free.
+     */
+    private int findFreeNeighbouringDirection() {
+        final int x = getxCoordinate();
+        final int y = getyCoordinate();
+
+        for (int direction = 0; direction < NEIGHBOURING_X_STEPS.length; direction++) {
+            final int nx = x + NEIGHBOURING_X_STEPS[direction];
+            final int ny = y + NEIGHBOURING_Y_STEPS[direction];
             if (nx < 0 || ny < 0) {
                 continue;
             }
-            final RectangularShape candidateShape = new RectangularShape(nx, ny, 2, 2);
-            if (!getFactory().hasObstacleAt(candidateShape)
-                    && !getFactory().hasMobileComponentAt(candidateShape, this)) {
-                return new Position(nx, ny);
+            if (!getFactory().hasObstacleAt(nx, ny, 2, 2)
+                    && !getFactory().hasMobileComponentAt(nx, ny, 2, 2, this)) {
+                return direction;
             }
         }
-        return null;
+        return -1;
     }
 	
 	private void computePathToCurrentTargetComponent() {
@@ -195,7 +227,12 @@ public class Robot extends Component {
 		currentPathPositionsIter = currentPathPositions.iterator();
 	}
 	
-	private Motion computeMotion() {
+	/**
+	 * @return the position the robot should move to at this step, or
+	 * {@code null} if it cannot move. The returned position is owned by the path
+	 * and must not be modified.
+	 */
+	private Position computeNextPosition() {
 		// Ensure the path iterator is initialized. It can be null after
 		// deserialization because it's transient, or if the path was not
 		// computed yet for the current target. Try to compute it on demand.
@@ -221,6 +258,13 @@ public class Robot extends Component {
 			}
 		}
 
+		if (pathFinder instanceof CooperativeFactoryPathFinder && (!currentPathPositionsIter.hasNext() || memorizedTargetPosition != null)) {
+			// Cooperative paths only cover a window of ticks, and a delayed move invalidates the rest of the
+			// schedule, so the next window is planned from the current position
+			memorizedTargetPosition = null;
+			computePathToCurrentTargetComponent();
+		}
+
 		if (!currentPathPositionsIter.hasNext()) {
 			// There is no free path to the target
 			blocked = true;
@@ -229,13 +273,9 @@ public class Robot extends Component {
 		
 		
 		final Position targetPosition = getTargetPosition();
-		final PositionedShape shape = new RectangularShape(targetPosition.getxCoordinate(),
-														   targetPosition.getyCoordinate(),
-				   										   2,
-				   										   2);
 		
 		// If there is another robot, memorize the target position for the next run
-		if (getFactory().hasMobileComponentAt(shape, this)) {
+		if (getFactory().hasMobileComponentAt(targetPosition.getxCoordinate(), targetPosition.getyCoordinate(), 2, 2, this)) {
 			this.memorizedTargetPosition = targetPosition;
 			
 			return null;
@@ -244,7 +284,7 @@ public class Robot extends Component {
 		// Reset the memorized position
 		this.memorizedTargetPosition = null;
 			
-		return new Motion(getPosition(), targetPosition);
+		return targetPosition;
 	}
 	
 	private Position getTargetPosition() {
@@ -254,13 +294,19 @@ public class Robot extends Component {
 		return this.memorizedTargetPosition == null ? currentPathPositionsIter.next() : this.memorizedTargetPosition;
 	}
 	
+	/**
+	 * @return the mobile component occupying the position this robot waits to
+	 * move to, or {@code null} if this robot is not waiting.
+	 */
+	@JsonIgnore
+	public Component getBlockingComponent() {
+		final Position waitedPosition = memorizedTargetPosition;
+
+		return waitedPosition == null ? null : getFactory().getMobileComponentAt(waitedPosition, this);
+	}
+
 	public boolean isLivelyLocked() {
-	    if (memorizedTargetPosition == null) {
-	        return false;
-	    }
-			
-	    final Component otherComponent = getFactory().getMobileComponentAt(memorizedTargetPosition,     
-	                                                                   this);
+	    final Component otherComponent = getBlockingComponent();
 
 	    if (otherComponent instanceof Robot)  {
 		    return getPosition().equals(((Robot) otherComponent).getMemorizedTargetPosition());
@@ -56,7 +56,14 @@ public class Room extends Component {
 	}
 	
 	protected boolean addDoor(final Door door) {
-		return doors.add(door);
+		if (doors.add(door)) {
+			// The wall under the door may become passable
+			getFactory().layoutChanged(door);
+			
+			return true;
+		}
+		
+		return false;
 	}
 	
 	public List<Area> getAreas() {
@@ -73,6 +80,17 @@ public class Room extends Component {
 			   topWall.overlays(shape) || bottomWall.overlays(shape);
 	}
 
+	@Override
+	public boolean overlays(final int xCoordinate,
+							final int yCoordinate,
+							final int width,
+							final int height) {
+		return leftWall.overlays(xCoordinate, yCoordinate, width, height) ||
+			   rightWall.overlays(xCoordinate, yCoordinate, width, height) ||
+			   topWall.overlays(xCoordinate, yCoordinate, width, height) ||
+			   bottomWall.overlays(xCoordinate, yCoordinate, width, height);
+	}
+
 	@Override
 	public boolean canBeOverlayed(final PositionedShape shape) {
 		final Door overlayedDoor = getOverlayedDoor(shape);
@@ -89,6 +107,16 @@ public class Room extends Component {
 		return true;
 	}
 	
+	@Override
+	protected int getBoundsWidth() {
+		return getWidth() + WALL_THICKNESS;
+	}
+
+	@Override
+	protected int getBoundsHeight() {
+		return getHeight() + WALL_THICKNESS;
+	}
+	
 	private Door getOverlayedDoor(final PositionedShape shape) {
 		for (final Door door : getDoors()) {
 			if (door.overlays(shape)) {
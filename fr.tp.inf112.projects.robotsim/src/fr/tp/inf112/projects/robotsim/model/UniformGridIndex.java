@@ -0,0 +1,293 @@
+package fr.tp.inf112.projects.robotsim.model;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bucketed uniform grid over the factory floor used to answer collision queries
+ * without scanning every component of the factory.
+ *
+ * Each component is registered in every cell covered by its bounds. Buckets are
+ * copy-on-write arrays so that queries never lock and never see a bucket being
+ * modified; a moving component is only re-bucketed when it crosses a cell border.
+ *
+ * The grid also stripes a bounded set of locks over its cells. Cells are mapped
+ * to stripes by blocks of consecutive cells so that the stripe number never
+ * decreases while cells are visited in row-major order: locking a rectangle of
+ * cells in that order therefore always takes the stripes in the same global
+ * order, which prevents deadlocks between movers.
+ */
+final class UniformGridIndex {
+
+	private static final Component[] EMPTY_BUCKET = new Component[0];
+
+	private static final int MAX_LOCK_STRIPES = 1024;
+
+	private final int cellSize;
+
+	private final int columns;
+
+	private final int rows;
+
+	private final AtomicReferenceArray<Component[]> buckets;
+
+	/** Cell range (min column, min row, max column, max row) each component is currently registered in. */
+	private final Map<Component, int[]> cellRanges;
+
+	private final ReentrantLock[] lockStripes;
+
+	UniformGridIndex(final int width,
+					 final int height,
+					 final int cellSize) {
+		this.cellSize = Math.max(1, cellSize);
+		this.columns = Math.max(1, width / this.cellSize + 1);
+		this.rows = Math.max(1, height / this.cellSize + 1);
+		this.buckets = new AtomicReferenceArray<>(columns * rows);
+		this.cellRanges = new ConcurrentHashMap<>();
+		this.lockStripes = new ReentrantLock[Math.min(MAX_LOCK_STRIPES, columns * rows)];
+		
+		for (int stripe = 0; stripe < lockStripes.length; stripe++) {
+			lockStripes[stripe] = new ReentrantLock();
+		}
+	}
+
+	int getCellSize() {
+		return cellSize;
+	}
+
+	int getColumns() {
+		return columns;
+	}
+
+	int getRows() {
+		return rows;
+	}
+
+	/**
+	 * Column of the cell containing the given x coordinate. Coordinates outside the
+	 * floor are clamped to the border cells so that no component is ever lost.
+	 */
+	int getColumn(final int xCoordinate) {
+		return clamp(xCoordinate / cellSize, columns);
+	}
+
+	int getRow(final int yCoordinate) {
+		return clamp(yCoordinate / cellSize, rows);
+	}
+
+	private static int clamp(final int index,
+							 final int size) {
+		if (index < 0) {
+			return 0;
+		}
+
+		return index >= size ? size - 1 : index;
+	}
+
+	/**
+	 * @return the components registered in the given cell, never {@code null}. The
+	 * returned array is a snapshot and must not be modified.
+	 */
+	Component[] getBucket(final int column,
+						  final int row) {
+		final Component[] bucket = buckets.get(row * columns + column);
+
+		return bucket == null ? EMPTY_BUCKET : bucket;
+	}
+
+	private int getStripe(final int cell) {
+		return (int) ((long) cell * lockStripes.length / (columns * rows));
+	}
+
+	/**
+	 * Locks the stripes covering the given rectangle of cells, in ascending stripe
+	 * order. Must be paired with {@link #unlockCells(int, int, int, int)} called
+	 * with the same rectangle.
+	 */
+	void lockCells(final int minColumn,
+				   final int minRow,
+				   final int maxColumn,
+				   final int maxRow) {
+		int lastStripe = -1;
+		
+		for (int row = minRow; row <= maxRow; row++) {
+			for (int column = minColumn; column <= maxColumn; column++) {
+				final int stripe = getStripe(row * columns + column);
+				
+				if (stripe != lastStripe) {
+					lockStripes[stripe].lock();
+					lastStripe = stripe;
+				}
+			}
+		}
+	}
+
+	void unlockCells(final int minColumn,
+					 final int minRow,
+					 final int maxColumn,
+					 final int maxRow) {
+		int lastStripe = -1;
+		
+		for (int row = minRow; row <= maxRow; row++) {
+			for (int column = minColumn; column <= maxColumn; column++) {
+				final int stripe = getStripe(row * columns + column);
+				
+				if (stripe != lastStripe) {
+					lockStripes[stripe].unlock();
+					lastStripe = stripe;
+				}
+			}
+		}
+	}
+
+	void insert(final Component component) {
+		if (component.getPositionedShape() == null) {
+			return;
+		}
+
+		final int[] range = new int[4];
+		computeCellRange(component, range);
+
+		if (cellRanges.putIfAbsent(component, range) == null) {
+			for (int row = range[1]; row <= range[3]; row++) {
+				for (int column = range[0]; column <= range[2]; column++) {
+					addToCell(row * columns + column, component);
+				}
+			}
+		}
+	}
+
+	void remove(final Component component) {
+		final int[] range = cellRanges.remove(component);
+
+		if (range != null) {
+			for (int row = range[1]; row <= range[3]; row++) {
+				for (int column = range[0]; column <= range[2]; column++) {
+					removeFromCell(row * columns + column, component);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Re-buckets a component after it moved. The component is first added to the
+	 * newly covered cells and only then removed from the cells it left, so that a
+	 * concurrent query never misses it.
+	 *
+	 * @return {@code true} if the component changed cells.
+	 */
+	boolean update(final Component component) {
+		final int[] range = cellRanges.get(component);
+
+		if (range == null) {
+			insert(component);
+
+			return true;
+		}
+
+		final int minColumn = getColumn(component.getxCoordinate());
+		final int minRow = getRow(component.getyCoordinate());
+		final int maxColumn = getColumn(component.getxCoordinate() + component.getBoundsWidth());
+		final int maxRow = getRow(component.getyCoordinate() + component.getBoundsHeight());
+
+		if (minColumn == range[0] && minRow == range[1] && maxColumn == range[2] && maxRow == range[3]) {
+			return false;
+		}
+
+		for (int row = minRow; row <= maxRow; row++) {
+			for (int column = minColumn; column <= maxColumn; column++) {
+				if (!contains(range, column, row)) {
+					addToCell(row * columns + column, component);
+				}
+			}
+		}
+
+		for (int row = range[1]; row <= range[3]; row++) {
+			for (int column = range[0]; column <= range[2]; column++) {
+				if (column < minColumn || column > maxColumn || row < minRow || row > maxRow) {
+					removeFromCell(row * columns + column, component);
+				}
+			}
+		}
+
+		range[0] = minColumn;
+		range[1] = minRow;
+		range[2] = maxColumn;
+		range[3] = maxRow;
+
+		return true;
+	}
+
+	private static boolean contains(final int[] range,
+									final int column,
+									final int row) {
+		return column >= range[0] && column <= range[2] && row >= range[1] && row <= range[3];
+	}
+
+	private void computeCellRange(final Component component,
+								  final int[] range) {
+		range[0] = getColumn(component.getxCoordinate());
+		range[1] = getRow(component.getyCoordinate());
+		range[2] = getColumn(component.getxCoordinate() + component.getBoundsWidth());
+		range[3] = getRow(component.getyCoordinate() + component.getBoundsHeight());
+	}
+
+	private void addToCell(final int cell,
+						   final Component component) {
+		Component[] bucket;
+		Component[] newBucket;
+
+		do {
+			bucket = buckets.get(cell);
+
+			if (bucket == null) {
+				newBucket = new Component[] { component };
+			}
+			else {
+				newBucket = Arrays.copyOf(bucket, bucket.length + 1);
+				newBucket[bucket.length] = component;
+			}
+		}
+		while (!buckets.compareAndSet(cell, bucket, newBucket));
+	}
+
+	private void removeFromCell(final int cell,
+								final Component component) {
+		Component[] bucket;
+		Component[] newBucket;
+
+		do {
+			bucket = buckets.get(cell);
+
+			final int position = bucket == null ? -1 : indexOf(bucket, component);
+
+			if (position < 0) {
+				return;
+			}
+
+			if (bucket.length == 1) {
+				newBucket = null;
+			}
+			else {
+				newBucket = new Component[bucket.length - 1];
+				System.arraycopy(bucket, 0, newBucket, 0, position);
+				System.arraycopy(bucket, position + 1, newBucket, position, bucket.length - position - 1);
+			}
+		}
+		while (!buckets.compareAndSet(cell, bucket, newBucket));
+	}
+
+	private static int indexOf(final Component[] bucket,
+							   final Component component) {
+		for (int index = 0; index < bucket.length; index++) {
+			if (bucket[index] == component) {
+				return index;
+			}
+		}
+
+		return -1;
+	}
+}
@@ -23,12 +23,23 @@ public class Motion {
 	}
 	
 	public int moveToTarget() {
-		final int xDisplacement = Math.abs(targetPosition.getxCoordinate() - currentPosition.getxCoordinate());
-		final int yDisplacement = Math.abs(targetPosition.getyCoordinate() - currentPosition.getyCoordinate());
+		return moveTo(currentPosition, targetPosition.getxCoordinate(), targetPosition.getyCoordinate());
+	}
+
+	/**
+	 * Moves the given position to the given coordinates.
+	 *
+	 * @return the rounded distance between the former and the new position.
+	 */
+	public static int moveTo(final Position currentPosition,
+							 final int targetxCoordinate,
+							 final int targetyCoordinate) {
+		final int xDisplacement = Math.abs(targetxCoordinate - currentPosition.getxCoordinate());
+		final int yDisplacement = Math.abs(targetyCoordinate - currentPosition.getyCoordinate());
 		final int displacement = (int) Math.round(Math.sqrt(xDisplacement * xDisplacement + yDisplacement * yDisplacement));
 		
-		currentPosition.setxCoordinate(targetPosition.getxCoordinate());
-		currentPosition.setyCoordinate(targetPosition.getyCoordinate());
+		currentPosition.setxCoordinate(targetxCoordinate);
+		currentPosition.setyCoordinate(targetyCoordinate);
 		
 		return displacement;
 	}
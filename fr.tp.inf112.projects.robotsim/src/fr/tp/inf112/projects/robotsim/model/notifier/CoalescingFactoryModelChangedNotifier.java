@@ -0,0 +1,117 @@
+package fr.tp.inf112.projects.robotsim.model.notifier;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import fr.tp.inf112.projects.canvas.controller.Observer;
+
+/**
+ * Notifier decorator taking the notifications off the component threads: a
+ * notification only marks the model as changed, and a dispatcher thread
+ * notifies the decorated notifier once for all the changes made since its
+ * previous notification, at most at the given rate.
+ *
+ * The first change after a quiet period is notified at once, later ones wait
+ * for the end of the current period, so that the number of notifications
+ * depends on the rate rather than on the number of moves. Observers are called
+ * by the dispatcher thread, one notification at a time.
+ */
+public class CoalescingFactoryModelChangedNotifier implements FactoryModelChangedNotifier {
+
+    private static final Logger LOGGER = Logger.getLogger(CoalescingFactoryModelChangedNotifier.class.getName());
+
+    /** One notification per frame of a 60 Hz display. */
+    public static final int DEFAULT_MAX_RATE = 60;
+
+    private final FactoryModelChangedNotifier notifier;
+
+    private final long periodNs;
+
+    private final ScheduledExecutorService dispatcher;
+
+    private final AtomicBoolean changed;
+
+    private volatile long lastNotificationNs;
+
+    public CoalescingFactoryModelChangedNotifier(final FactoryModelChangedNotifier notifier) {
+        this(notifier, DEFAULT_MAX_RATE);
+    }
+
+    /**
+     * @param maxRate the maximum number of notifications per second.
+     */
+    public CoalescingFactoryModelChangedNotifier(final FactoryModelChangedNotifier notifier,
+                                                 final int maxRate) {
+        if (maxRate <= 0) {
+            throw new IllegalArgumentException("Notification rate must be positive: " + maxRate);
+        }
+
+        this.notifier = notifier;
+        periodNs = TimeUnit.SECONDS.toNanos(1) / maxRate;
+        dispatcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "factory-notifier");
+            thread.setDaemon(true);
+
+            return thread;
+        });
+        changed = new AtomicBoolean();
+        lastNotificationNs = System.nanoTime() - periodNs;
+    }
+
+    public FactoryModelChangedNotifier getNotifier() {
+        return notifier;
+    }
+
+    /**
+     * Marks the model as changed, and schedules a notification unless one is
+     * already pending.
+     */
+    @Override
+    public void notifyObservers() {
+        if (changed.compareAndSet(false, true)) {
+            final long delayNs = lastNotificationNs + periodNs - System.nanoTime();
+
+            try {
+                dispatcher.schedule(this::dispatch, Math.max(0, delayNs), TimeUnit.NANOSECONDS);
+            }
+            catch (final RuntimeException ex) {
+                // Shut down: changes are no longer notified
+                changed.set(false);
+            }
+        }
+    }
+
+    private void dispatch() {
+        // Cleared first, so that changes made while observers are notified are notified again
+        changed.set(false);
+        lastNotificationNs = System.nanoTime();
+
+        try {
+            notifier.notifyObservers();
+        }
+        catch (final RuntimeException ex) {
+            LOGGER.log(Level.WARNING, "Observer notification failed.", ex);
+        }
+    }
+
+    @Override
+    public boolean addObserver(final Observer observer) {
+        return notifier.addObserver(observer);
+    }
+
+    @Override
+    public boolean removeObserver(final Observer observer) {
+        return notifier.removeObserver(observer);
+    }
+
+    /**
+     * Stops the dispatcher thread once the pending notification is sent.
+     */
+    public void shutdown() {
+        dispatcher.shutdown();
+    }
+}
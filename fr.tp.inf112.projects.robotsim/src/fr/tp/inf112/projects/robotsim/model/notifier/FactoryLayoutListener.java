@@ -0,0 +1,20 @@
+package fr.tp.inf112.projects.robotsim.model.notifier;
+
+import fr.tp.inf112.projects.robotsim.model.Factory;
+
+/**
+ * Notified when an obstacle of a factory is added, removed, moved or changes
+ * state, with the area of the factory where obstacles may have changed.
+ * Listeners are called by the thread changing the factory, after the factory
+ * recorded the change and outside of its locks, so concurrent changes may be
+ * notified out of the order of their versions. They must return quickly.
+ */
+public interface FactoryLayoutListener {
+
+    void layoutChanged(Factory factory,
+                       long layoutVersion,
+                       int xCoordinate,
+                       int yCoordinate,
+                       int width,
+                       int height);
+}
@@ -0,0 +1,80 @@
+package fr.tp.inf112.projects.robotsim.model.notifier;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import fr.tp.inf112.projects.robotsim.model.Component;
+import fr.tp.inf112.projects.robotsim.model.Factory;
+import fr.tp.inf112.projects.robotsim.model.Position;
+
+/**
+ * Change of a factory model sent to remote observers, either a keyframe
+ * carrying the whole factory or a delta carrying the new positions of the
+ * components that moved since the previous event.
+ *
+ * Components are designated by their index in the component list of the
+ * factory, which only stays the same between two keyframes: a delta applies to
+ * the factory of the keyframe whose sequence number it carries, as updated by
+ * all the deltas in between.
+ *
+ * @param factoryId the id of the factory.
+ * @param sequence the number of the event, incremented by one at each event.
+ * @param keyframeSequence the number of the last keyframe, which is the number
+ * of the event itself for a keyframe.
+ * @param keyframe the whole factory, or {@code null} for a delta.
+ * @param componentIndexes the indexes of the components that moved.
+ * @param xCoordinates the new x coordinates of the components that moved.
+ * @param yCoordinates the new y coordinates of the components that moved.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record FactoryModelEvent(String factoryId,
+                                long sequence,
+                                long keyframeSequence,
+                                Factory keyframe,
+                                int[] componentIndexes,
+                                int[] xCoordinates,
+                                int[] yCoordinates) {
+
+    @JsonIgnore
+    public boolean isDelta() {
+        return keyframe == null;
+    }
+
+    /**
+     * @return {@code true} if this event directly follows the given event and
+     * applies to the same keyframe.
+     */
+    public boolean follows(final FactoryModelEvent previousEvent) {
+        return previousEvent != null &&
+               sequence == previousEvent.sequence() + 1 &&
+               keyframeSequence == previousEvent.keyframeSequence();
+    }
+
+    /**
+     * Moves the components of the given factory to the positions of this delta.
+     *
+     * @return {@code false} if the factory has no component at one of the
+     * indexes, as when it is not the factory of the keyframe of this delta.
+     */
+    public boolean applyTo(final Factory factory) {
+        final List<Component> components = factory.getComponents();
+
+        for (int index = 0; index < componentIndexes.length; index++) {
+            if (componentIndexes[index] >= components.size()) {
+                return false;
+            }
+
+            final Component component = components.get(componentIndexes[index]);
+            final Position position = component.getPosition();
+            final boolean xChanged = position.setxCoordinate(xCoordinates[index]);
+
+            if (position.setyCoordinate(yCoordinates[index]) || xChanged) {
+                factory.componentMoved(component);
+            }
+        }
+
+        return true;
+    }
+}
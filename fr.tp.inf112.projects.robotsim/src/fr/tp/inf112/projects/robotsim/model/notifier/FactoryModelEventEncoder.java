@@ -0,0 +1,137 @@
+package fr.tp.inf112.projects.robotsim.model.notifier;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import fr.tp.inf112.projects.robotsim.model.Component;
+import fr.tp.inf112.projects.robotsim.model.Factory;
+
+/**
+ * Turns the changes of a factory into a stream of {@link FactoryModelEvent},
+ * for notifiers sending the model to remote observers.
+ *
+ * Each event compares the positions of the components with those of the
+ * previous event, so that only the components that moved are sent. A keyframe
+ * is sent first, then whenever components were added or removed or the layout
+ * changed, and at least once per keyframe interval so that an observer having
+ * missed an event catches up.
+ *
+ * Not thread safe: notifiers called from the component threads must
+ * synchronize the encoding and sending of each event, so that events are sent
+ * in the order of their sequence numbers.
+ */
+public class FactoryModelEventEncoder {
+
+    public static final long DEFAULT_KEYFRAME_INTERVAL_MS = 5_000;
+
+    private static final int NO_COORDINATE = Integer.MIN_VALUE;
+
+    private final Factory factory;
+
+    private final long keyframeIntervalNs;
+
+    private Component[] sentComponents;
+
+    private int[] sentxCoordinates;
+
+    private int[] sentyCoordinates;
+
+    private long sentLayoutVersion;
+
+    private long sequence;
+
+    private long keyframeSequence;
+
+    private long keyframeNs;
+
+    private int[] changedIndexes;
+
+    public FactoryModelEventEncoder(final Factory factory) {
+        this(factory, DEFAULT_KEYFRAME_INTERVAL_MS);
+    }
+
+    public FactoryModelEventEncoder(final Factory factory,
+                                    final long keyframeIntervalMs) {
+        this.factory = factory;
+        this.keyframeIntervalNs = TimeUnit.MILLISECONDS.toNanos(keyframeIntervalMs);
+        sequence = -1;
+        changedIndexes = new int[0];
+    }
+
+    /**
+     * @return the event of the changes since the previous event, or {@code null}
+     * if no component moved.
+     */
+    public FactoryModelEvent nextEvent() {
+        final List<Component> components = factory.getComponents();
+        final int componentCount = components.size();
+
+        if (sentComponents == null ||
+            componentCount != sentComponents.length ||
+            factory.getLayoutVersion() != sentLayoutVersion ||
+            System.nanoTime() - keyframeNs >= keyframeIntervalNs) {
+            return nextKeyframe(components, componentCount);
+        }
+
+        int changedCount = 0;
+
+        for (int index = 0; index < componentCount; index++) {
+            final Component component = components.get(index);
+
+            if (component != sentComponents[index]) {
+                return nextKeyframe(components, componentCount);
+            }
+
+            if (component.getPositionedShape() != null) {
+                final int xCoordinate = component.getxCoordinate();
+                final int yCoordinate = component.getyCoordinate();
+
+                if (xCoordinate != sentxCoordinates[index] || yCoordinate != sentyCoordinates[index]) {
+                    sentxCoordinates[index] = xCoordinate;
+                    sentyCoordinates[index] = yCoordinate;
+                    changedIndexes[changedCount++] = index;
+                }
+            }
+        }
+
+        if (changedCount == 0) {
+            return null;
+        }
+
+        final int[] componentIndexes = Arrays.copyOf(changedIndexes, changedCount);
+        final int[] xCoordinates = new int[changedCount];
+        final int[] yCoordinates = new int[changedCount];
+
+        for (int index = 0; index < changedCount; index++) {
+            xCoordinates[index] = sentxCoordinates[componentIndexes[index]];
+            yCoordinates[index] = sentyCoordinates[componentIndexes[index]];
+        }
+
+        sequence++;
+
+        return new FactoryModelEvent(factory.getId(), sequence, keyframeSequence, null, componentIndexes, xCoordinates, yCoordinates);
+    }
+
+    private FactoryModelEvent nextKeyframe(final List<Component> components,
+                                           final int componentCount) {
+        sentComponents = new Component[componentCount];
+        sentxCoordinates = new int[componentCount];
+        sentyCoordinates = new int[componentCount];
+        changedIndexes = new int[componentCount];
+        sentLayoutVersion = factory.getLayoutVersion();
+
+        for (int index = 0; index < componentCount; index++) {
+            final Component component = components.get(index);
+            sentComponents[index] = component;
+            sentxCoordinates[index] = component.getPositionedShape() == null ? NO_COORDINATE : component.getxCoordinate();
+            sentyCoordinates[index] = component.getPositionedShape() == null ? NO_COORDINATE : component.getyCoordinate();
+        }
+
+        sequence++;
+        keyframeSequence = sequence;
+        keyframeNs = System.nanoTime();
+
+        return new FactoryModelEvent(factory.getId(), sequence, keyframeSequence, factory, null, null, null);
+    }
+}
@@ -13,9 +13,7 @@ public class LocalFactoryModelChangedNotifier implements FactoryModelChangedNoti
 
     @Override
     public void notifyObservers() {
-        for (final Observer observer : factory.getObservers()) {
-            observer.modelChanged();
-        }
+        factory.getObservers().forEach(Observer::modelChanged);
     }
 
     @Override
@@ -0,0 +1,166 @@
+package fr.tp.inf112.projects.robotsim.model.path;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import fr.tp.inf112.projects.robotsim.model.Factory;
+import fr.tp.inf112.projects.robotsim.model.Position;
+
+/**
+ * A* search on the uniform grid of the factory, guided by an admissible
+ * heuristic so that it expands far fewer cells than Dijkstra when the target is
+ * not hidden behind obstacles.
+ *
+ * The grid is 4-connected unless diagonal moves are allowed, diagonal steps
+ * then costing {@link GridHeuristic#DIAGONAL_COST} so that paths are no longer
+ * staircases.
+ */
+public class AStarFactoryPathFinder extends AbstractGridSearchFactoryPathFinder {
+
+	private static final long serialVersionUID = 2405318875604526313L;
+
+	private final GridHeuristic heuristic;
+
+	private final DiagonalMoves diagonalMoves;
+
+	public AStarFactoryPathFinder(final Factory factoryModel,
+								  final int resolution) {
+		this(factoryModel, resolution, GridHeuristic.MANHATTAN);
+	}
+
+	public AStarFactoryPathFinder(final Factory factoryModel,
+								  final int resolution,
+								  final GridHeuristic heuristic) {
+		this(factoryModel, resolution, heuristic, DiagonalMoves.NONE);
+	}
+
+	/**
+	 * @throws IllegalArgumentException if diagonal moves are allowed with the
+	 * Manhattan heuristic, which overestimates diagonal paths.
+	 */
+	public AStarFactoryPathFinder(final Factory factoryModel,
+								  final int resolution,
+								  final GridHeuristic heuristic,
+								  final DiagonalMoves diagonalMoves) {
+		super(factoryModel, resolution);
+
+		if (diagonalMoves != DiagonalMoves.NONE && heuristic == GridHeuristic.MANHATTAN) {
+			throw new IllegalArgumentException("The Manhattan heuristic is not admissible with diagonal moves.");
+		}
+
+		this.heuristic = heuristic;
+		this.diagonalMoves = diagonalMoves;
+	}
+
+	public GridHeuristic getHeuristic() {
+		return heuristic;
+	}
+
+	public DiagonalMoves getDiagonalMoves() {
+		// Finders serialized before diagonal moves existed have none
+		return diagonalMoves == null ? DiagonalMoves.NONE : diagonalMoves;
+	}
+
+	/**
+	 * The shared search trees are breadth first, which only finds the shortest
+	 * paths of a 4-connected grid.
+	 */
+	@Override
+	protected boolean sharesSearchTrees() {
+		return getDiagonalMoves() == DiagonalMoves.NONE;
+	}
+
+	@Override
+	protected List<Position> findPath(final NavigationGrid<Void, Position> grid,
+									  final int sourceCell,
+									  final int targetCell) {
+		return toPositions(grid, searchPath(grid, sourceCell, targetCell), targetCell);
+	}
+
+	/**
+	 * @return the parents of the cells in the search tree, or {@code null} if the
+	 * target cannot be reached.
+	 */
+	private int[] searchPath(final NavigationGrid<Void, Position> grid,
+							 final int sourceCell,
+							 final int targetCell) {
+		final int xSize = grid.getxSize();
+		final int targetxIndex = targetCell % xSize;
+		final int targetyIndex = targetCell / xSize;
+		final DiagonalMoves currentDiagonalMoves = getDiagonalMoves();
+		final int[] costs = new int[xSize * grid.getySize()];
+		final int[] parents = new int[costs.length];
+		Arrays.fill(costs, Integer.MAX_VALUE);
+
+		// Open cells ordered by estimated total cost in the high bits, then by cell
+		final PriorityQueue<Long> openCells = new PriorityQueue<>();
+		costs[sourceCell] = 0;
+		parents[sourceCell] = NO_PARENT;
+		openCells.add(encode(estimate(sourceCell, xSize, targetxIndex, targetyIndex), sourceCell));
+
+		while (!openCells.isEmpty()) {
+			final long openCell = openCells.poll();
+			final int cell = (int) openCell;
+
+			if (cell == targetCell) {
+				return parents;
+			}
+
+			// Skips the entries of cells reached again with a lower cost
+			if ((int) (openCell >>> 32) != costs[cell] + estimate(cell, xSize, targetxIndex, targetyIndex)) {
+				continue;
+			}
+
+			final int xIndex = cell % xSize;
+			final int yIndex = cell / xSize;
+
+			for (int direction = 0; direction < X_STEPS.length; direction++) {
+				final int succxIndex = xIndex + X_STEPS[direction];
+				final int succyIndex = yIndex + Y_STEPS[direction];
+
+				if (isFree(grid, succxIndex, succyIndex)) {
+					final int succCell = succyIndex * xSize + succxIndex;
+					final int succCost = costs[cell] + GridHeuristic.STRAIGHT_COST;
+
+					if (succCost < costs[succCell]) {
+						costs[succCell] = succCost;
+						parents[succCell] = cell;
+						openCells.add(encode(succCost + estimate(succCell, xSize, targetxIndex, targetyIndex), succCell));
+					}
+				}
+			}
+
+			for (int direction = 0; currentDiagonalMoves != DiagonalMoves.NONE && direction < DiagonalMoves.X_STEPS.length; direction++) {
+				final int succxIndex = xIndex + DiagonalMoves.X_STEPS[direction];
+				final int succyIndex = yIndex + DiagonalMoves.Y_STEPS[direction];
+
+				if (isFree(grid, succxIndex, succyIndex) &&
+					currentDiagonalMoves.allows(isFree(grid, succxIndex, yIndex), isFree(grid, xIndex, succyIndex))) {
+					final int succCell = succyIndex * xSize + succxIndex;
+					final int succCost = costs[cell] + GridHeuristic.DIAGONAL_COST;
+
+					if (succCost < costs[succCell]) {
+						costs[succCell] = succCost;
+						parents[succCell] = cell;
+						openCells.add(encode(succCost + estimate(succCell, xSize, targetxIndex, targetyIndex), succCell));
+					}
+				}
+			}
+		}
+
+		return null;
+	}
+
+	private int estimate(final int cell,
+						 final int xSize,
+						 final int targetxIndex,
+						 final int targetyIndex) {
+		return heuristic.estimate(Math.abs(cell % xSize - targetxIndex), Math.abs(cell / xSize - targetyIndex));
+	}
+
+	private static long encode(final int estimatedCost,
+							   final int cell) {
+		return (long) estimatedCost << 32 | cell;
+	}
+}
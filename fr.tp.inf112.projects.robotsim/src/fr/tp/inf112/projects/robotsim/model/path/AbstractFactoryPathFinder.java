@@ -1,15 +1,26 @@
 package fr.tp.inf112.projects.robotsim.model.path;
 
 import java.io.Serializable;
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.Lock;
+import java.util.function.IntFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
+import fr.tp.inf112.projects.robotsim.model.Component;
 import fr.tp.inf112.projects.robotsim.model.Factory;
 import fr.tp.inf112.projects.robotsim.model.Position;
-import fr.tp.inf112.projects.robotsim.model.shapes.PositionedShape;
 import fr.tp.inf112.projects.robotsim.model.shapes.RectangularShape;
 
 public abstract class AbstractFactoryPathFinder<Graph, Vertex> implements FactoryPathFinder, Serializable {
@@ -24,7 +35,7 @@ public abstract class AbstractFactoryPathFinder<Graph, Vertex> implements Factor
 	private final int resolution;
 	
 	@com.fasterxml.jackson.annotation.JsonIgnore
-	private transient Graph graph;
+	private transient volatile NavigationGrid<Graph, Vertex> grid;
 
 	private static final Logger LOG = Logger.getLogger(AbstractFactoryPathFinder.class.getName());
 
@@ -32,7 +43,7 @@ public abstract class AbstractFactoryPathFinder<Graph, Vertex> implements Factor
 									 final int resolution) {
 		this.factoryModel = factoryModel;
 		this.resolution = resolution;
-		graph = null;
+		grid = null;
 	}
 
 	public Factory getFactoryModel() {
@@ -43,105 +54,319 @@ public abstract class AbstractFactoryPathFinder<Graph, Vertex> implements Factor
 		return resolution;
 	}
 	
-	protected Graph getGraph() {
-		return graph;
+	@Override
+	public List<Position> findPath(final Component sourceComponent,
+								   final Component targetComponent) {
+		final NavigationGrid<Graph, Vertex> currentGrid = getGrid();
+		final Lock readLock = currentGrid.getLock().readLock();
+
+		// Prevents the shared grid from being repaired during the search
+		readLock.lock();
+
+		try {
+			final Vertex sourceVertex = getVertex(currentGrid, sourceComponent.getPosition());
+			assert sourceVertex != null : "Start vertex should never be null!";
+
+			final Vertex targetVertex = getVertex(currentGrid, targetComponent.getPosition());
+			assert targetVertex != null : "Target vertex should never be null!";
+
+			return findPath(currentGrid, sourceVertex, targetVertex);
+		}
+		finally {
+			readLock.unlock();
+		}
 	}
-	
-	protected void buildGraph() {
-		if (getGraph() == null) {
-			graph = newGraph();
-			final int xSize = getFactoryModel().getWidth() / getResolution();
-			final int ySize = getFactoryModel().getHeight() / getResolution();
-	
-			for (int xIndex = 0; xIndex < xSize; xIndex++) {
-				for (int yIndex = 0; yIndex < ySize; yIndex++) {
-					final int xCoordinate = xIndex * getResolution();
-					final int yCoordinate = yIndex * getResolution();
-					addVertex(xCoordinate, yCoordinate);
+
+	/**
+	 * Queries are grouped by the grid nodes their source and target components
+	 * snap to, so that identical queries are searched once and all the paths
+	 * leaving the same node are found by a single task, which may build a single
+	 * search tree for them. Each task holds the read lock of the shared grid.
+	 */
+	@Override
+	public CompletableFuture<List<List<Position>>> findPaths(final List<PathQuery> queries,
+															 final Executor executor) {
+		final NavigationGrid<Graph, Vertex> currentGrid = getGrid();
+		final Map<Vertex, Set<Vertex>> targetVertexesBySource = new LinkedHashMap<>();
+		final List<Vertex> sourceVertexes = new ArrayList<>(queries.size());
+		final List<Vertex> targetVertexes = new ArrayList<>(queries.size());
+
+		for (final PathQuery query : queries) {
+			final Vertex sourceVertex = getVertex(currentGrid, query.sourceComponent().getPosition());
+			final Vertex targetVertex = getVertex(currentGrid, query.targetComponent().getPosition());
+			targetVertexesBySource.computeIfAbsent(sourceVertex, vertex -> new LinkedHashSet<>()).add(targetVertex);
+			sourceVertexes.add(sourceVertex);
+			targetVertexes.add(targetVertex);
+		}
+
+		final Map<Vertex, CompletableFuture<Map<Vertex, List<Position>>>> searches = new HashMap<>();
+
+		for (final Map.Entry<Vertex, Set<Vertex>> sourceTargets : targetVertexesBySource.entrySet()) {
+			searches.put(sourceTargets.getKey(), CompletableFuture.supplyAsync(() -> {
+				final Lock readLock = currentGrid.getLock().readLock();
+				readLock.lock();
+
+				try {
+					return findPaths(currentGrid, sourceTargets.getKey(), sourceTargets.getValue());
 				}
+				finally {
+					readLock.unlock();
+				}
+			}, executor));
+		}
+
+		return CompletableFuture.allOf(searches.values().toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+			final List<List<Position>> paths = new ArrayList<>(queries.size());
+
+			for (int index = 0; index < queries.size(); index++) {
+				paths.add(searches.get(sourceVertexes.get(index)).join().get(targetVertexes.get(index)));
 			}
-			
-			final Iterator<? extends Vertex> vertexesIterator = getGraphVertexesIterator();
-			
-			while (vertexesIterator.hasNext()) {
-				final Vertex vertex = vertexesIterator.next();
-				final Set<Vertex> successors = getSuccessors(getxCoordinate(vertex), getyCoordinate(vertex));
+
+			return paths;
+		});
+	}
+
+	/**
+	 * Searches the shortest paths from a vertex of the grid to several others.
+	 * Finders able to reach all the targets with a single search override this
+	 * method.
+	 *
+	 * @return the unmodifiable path to each of the target vertexes.
+	 */
+	Map<Vertex, List<Position>> findPaths(final NavigationGrid<Graph, Vertex> grid,
+										  final Vertex sourceVertex,
+										  final Collection<Vertex> targetVertexes) {
+		final Map<Vertex, List<Position>> paths = new HashMap<>();
+
+		for (final Vertex targetVertex : targetVertexes) {
+			paths.put(targetVertex, Collections.unmodifiableList(findPath(grid, sourceVertex, targetVertex)));
+		}
+
+		return paths;
+	}
+
+	/**
+	 * Searches the shortest path between two vertexes of the grid.
+	 *
+	 * @return the positions of the vertexes of the path, excluding the source one.
+	 */
+	abstract List<Position> findPath(NavigationGrid<Graph, Vertex> grid,
+									 Vertex sourceVertex,
+									 Vertex targetVertex);
+
+	/**
+	 * @return the grid of the current layout of the factory. The grid is shared by
+	 * all the finders of the same type and resolution of the factory, and is only
+	 * repaired or rebuilt once a non-mobile component changed.
+	 */
+	NavigationGrid<Graph, Vertex> getGrid() {
+		NavigationGrid<Graph, Vertex> currentGrid = grid;
+	
+		if (currentGrid == null || currentGrid.getLayoutVersion() != getFactoryModel().getLayoutVersion()) {
+			currentGrid = NavigationGraphCache.getGrid(this);
+			grid = currentGrid;
+		}
+
+		return currentGrid;
+	}
+
+	/**
+	 * @return the type of grid built by this finder. Finders returning the same
+	 * type at the same resolution share their grid.
+	 */
+	protected Class<?> getGridType() {
+		return getClass();
+	}
+
+	NavigationGrid<Graph, Vertex> createGrid(final long layoutVersion) {
+		final int resolution = getResolution();
+		final IntFunction<Vertex> cellVertexes = getCellVertexes();
+		final NavigationGrid<Graph, Vertex> newGrid = new NavigationGrid<>(newGraph(),
+																		   getFactoryModel().getWidth() / resolution,
+																		   getFactoryModel().getHeight() / resolution,
+																		   layoutVersion,
+																		   cellVertexes);
+		final Graph graph = newGrid.getGraph();
+
+		// Obstacles are checked once per cell here rather than once per incoming edge
+		for (int xIndex = 0; xIndex < newGrid.getxSize(); xIndex++) {
+			for (int yIndex = 0; yIndex < newGrid.getySize(); yIndex++) {
+				final int xCoordinate = xIndex * resolution;
+				final int yCoordinate = yIndex * resolution;
+				final boolean obstacle = getFactoryModel().hasObstacleAt(new RectangularShape(xCoordinate,
+																							  yCoordinate,
+																							  resolution,
+																							  resolution));
+				newGrid.setCell(xIndex, yIndex, cellVertexes == null ? addVertex(graph, xCoordinate, yCoordinate) : null, obstacle);
+			}
+		}
+
+		// Finders searching the grid directly have no graph to link
+		for (int xIndex = 0; graph != null && xIndex < newGrid.getxSize(); xIndex++) {
+			for (int yIndex = 0; yIndex < newGrid.getySize(); yIndex++) {
+				final Vertex vertex = newGrid.getVertex(xIndex, yIndex);
+				final Set<Vertex> successors = getSuccessors(newGrid, xIndex, yIndex);
 
 				for (final Vertex succVertex : successors) {
-					addEdge(vertex, succVertex);
+					addEdge(graph, vertex, succVertex);
 				}
 			}
+		}
 			
-			// The graph can be large; avoid printing to stdout (floods consoles).
-			// Use logger at DEBUG level so this can be enabled when needed.
-			if (LOG.isLoggable(Level.FINE)) {
-				LOG.log(Level.FINE, "Built graph: {0}", graph);
-			}
+		// The graph can be large; avoid printing to stdout (floods consoles).
+		// Use logger at DEBUG level so this can be enabled when needed.
+		if (LOG.isLoggable(Level.FINE)) {
+			LOG.log(Level.FINE, "Built graph: {0}", graph);
 		}
+
+		return newGrid;
 	}
 	
+	/**
+	 * Updates the cells of the grid overlapping the area of a layout change, and
+	 * the edges leading to the cells that became free or obstacles.
+	 */
+	void repairGrid(final NavigationGrid<Graph, Vertex> grid,
+					final NavigationGraphCache.LayoutChange change) {
+		final int resolution = getResolution();
+		final Graph graph = grid.getGraph();
+
+		// Shapes touching the area overlay it, hence the additional cell on each side
+		final int minxIndex = Math.max(0, Math.floorDiv(change.xCoordinate(), resolution) - 1);
+		final int minyIndex = Math.max(0, Math.floorDiv(change.yCoordinate(), resolution) - 1);
+		final int maxxIndex = Math.min(grid.getxSize() - 1, Math.floorDiv(change.xCoordinate() + change.width(), resolution) + 1);
+		final int maxyIndex = Math.min(grid.getySize() - 1, Math.floorDiv(change.yCoordinate() + change.height(), resolution) + 1);
+
+		for (int xIndex = minxIndex; xIndex <= maxxIndex; xIndex++) {
+			for (int yIndex = minyIndex; yIndex <= maxyIndex; yIndex++) {
+				final boolean obstacle = getFactoryModel().hasObstacleAt(new RectangularShape(xIndex * resolution,
+																							  yIndex * resolution,
+																							  resolution,
+																							  resolution));
+
+				if (obstacle != grid.isObstacle(xIndex, yIndex)) {
+					grid.setObstacle(xIndex, yIndex, obstacle);
+
+					if (graph == null) {
+						continue;
+					}
+
+					final Vertex vertex = grid.getVertex(xIndex, yIndex);
+
+					for (final Vertex predVertex : getNeighbours(grid, xIndex, yIndex)) {
+						if (obstacle) {
+							removeEdge(graph, predVertex, vertex);
+						}
+						else {
+							addEdge(graph, predVertex, vertex);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	private Set<Vertex> getNeighbours(final NavigationGrid<Graph, Vertex> grid,
+									  final int xIndex,
+									  final int yIndex) {
+		final Set<Vertex> neighbours = new HashSet<>();
+
+		addIfNotNull(neighbours, grid.getVertex(xIndex, yIndex - 1));
+		addIfNotNull(neighbours, grid.getVertex(xIndex + 1, yIndex));
+		addIfNotNull(neighbours, grid.getVertex(xIndex, yIndex + 1));
+		addIfNotNull(neighbours, grid.getVertex(xIndex - 1, yIndex));
+
+		return neighbours;
+	}
+
+	private static <Vertex> void addIfNotNull(final Set<Vertex> vertexes,
+											  final Vertex vertex) {
+		if (vertex != null) {
+			vertexes.add(vertex);
+		}
+	}
+
 	protected abstract Graph newGraph();
 
-	protected abstract boolean addVertex(int xCoordinate,
-										 int yCoordinate);
+	/**
+	 * @return the vertex of each cell from its index {@code yIndex * xSize + xIndex},
+	 * for graphs numbering their cells rather than holding a vertex per cell, or
+	 * {@code null} to create the vertex of each cell with
+	 * {@link #addVertex(Object, int, int)}.
+	 */
+	protected IntFunction<Vertex> getCellVertexes() {
+		return null;
+	}
 
-	protected abstract boolean addEdge(Vertex vertex1,
+	/**
+	 * Creates a vertex for the grid cell at the given coordinates and adds it to the graph.
+	 * 
+	 * @return the created vertex.
+	 */
+	protected abstract Vertex addVertex(Graph graph,
+										int xCoordinate,
+										int yCoordinate);
+
+	protected abstract boolean addEdge(Graph graph,
+									   Vertex vertex1,
 									   Vertex vertex2);
+
+	protected abstract boolean removeEdge(Graph graph,
+										  Vertex vertex1,
+										  Vertex vertex2);
 	
 	protected abstract int getxCoordinate(Vertex vertex);
 
 	protected abstract int getyCoordinate(Vertex vertex);
 
-	protected Set<Vertex> getSuccessors(final int xCoordinate,
-									    final int yCoordinate) {
-		final int xIndex = xCoordinate / getResolution();
-		final int yIndex = yCoordinate / getResolution();
-		
+	private Set<Vertex> getSuccessors(final NavigationGrid<Graph, Vertex> grid,
+									  final int xIndex,
+									  final int yIndex) {
 		final Set<Vertex> successors = new HashSet<>();
 
-		Vertex succVertex = getBackwardyVertex(xIndex, yIndex);
+		Vertex succVertex = grid.getFreeVertex(xIndex, yIndex - 1);
 		
 		if (succVertex != null) {
 			successors.add(succVertex);
 		}
 
-//		succVertex = getForwardxBackwardyVertex(xIndex, yIndex);
+//		succVertex = grid.getFreeVertex(xIndex + 1, yIndex - 1);
 //		
 //		if (succVertex != null) {
 //			successors.add(succVertex);
 //		}
 
-		succVertex = getForwardxVertex(xIndex, yIndex);
+		succVertex = grid.getFreeVertex(xIndex + 1, yIndex);
 		
 		if (succVertex != null) {
 			successors.add(succVertex);
 		}
 
-//		succVertex = getForwardxForwardyVertex(xIndex, yIndex);
+//		succVertex = grid.getFreeVertex(xIndex + 1, yIndex + 1);
 //		
 //		if (succVertex != null) {
 //			successors.add(succVertex);
 //		}
 
-		succVertex = getForwardyVertex(xIndex, yIndex);
+		succVertex = grid.getFreeVertex(xIndex, yIndex + 1);
 		
 		if (succVertex != null) {
 			successors.add(succVertex);
 		}
 
-//		succVertex = getBackwardxForwardyVertex(xIndex, yIndex);
+//		succVertex = grid.getFreeVertex(xIndex - 1, yIndex + 1);
 //		
 //		if (succVertex != null) {
 //			successors.add(succVertex);
 //		}
 
-		succVertex = getBackwardxVertex(xIndex, yIndex);
+		succVertex = grid.getFreeVertex(xIndex - 1, yIndex);
 		
 		if (succVertex != null) {
 			successors.add(succVertex);
 		}
 
-//		succVertex = getBackwardxBackwardyVertex(xIndex, yIndex);
+//		succVertex = grid.getFreeVertex(xIndex - 1, yIndex - 1);
 //		
 //		if (succVertex != null) {
 //			successors.add(succVertex);
@@ -150,93 +375,32 @@ public abstract class AbstractFactoryPathFinder<Graph, Vertex> implements Factor
 		return successors;
 	}
 	
-	private Vertex getBackwardxVertex(final int xIndex,
-								      final int yIndex) {
-		final int searchedxIndex = xIndex - 1;
-		
-		if (searchedxIndex >= 0) {
-			return getFreeVertex(searchedxIndex, yIndex);
-		}
-		
-		return null;
-	}
-	
-	private Vertex getBackwardyVertex(final int xIndex,
-									  final int yIndex) {
-		final int searchedyIndex = yIndex - 1;
-		
-		if (searchedyIndex >= 0) {
-			return getFreeVertex(xIndex, searchedyIndex);	
-		}
-		
-		return null;
-	}
-	
-	private Vertex getForwardxVertex(final int xIndex,
-									 final int yIndex) {
-		final int searchedxIndex = xIndex + 1;
-		
-		if (searchedxIndex < getFactoryModel().getWidth() / getResolution()) {
-			return getFreeVertex(searchedxIndex, yIndex);
+	/**
+	 * Snaps a position to the vertex whose square overlaps the most the square of
+	 * the resolution size located at this position, that is the nearest grid node.
+	 * Positions outside the grid snap to its border.
+	 */
+	Vertex getVertex(final NavigationGrid<Graph, Vertex> currentGrid,
+					 final Position position) {
+		if (currentGrid.getxSize() == 0 || currentGrid.getySize() == 0) {
+			return null;
 		}
 		
-		return null;
+		return currentGrid.getVertex(snapIndex(position.getxCoordinate(), currentGrid.getxSize()),
+									 snapIndex(position.getyCoordinate(), currentGrid.getySize()));
 	}
 	
-	private Vertex getForwardyVertex(final int xIndex,
-									 final int yIndex) {
-		final int searchedyIndex = yIndex + 1;
-			
-		if (searchedyIndex < getFactoryModel().getHeight() / getResolution()) {
-			return getFreeVertex(xIndex, searchedyIndex);
-		}
-		
-		return null;
+	private int snapIndex(final int coordinate,
+						  final int size) {
+		return Math.max(0, Math.min(size - 1, getNearestIndex(coordinate)));
 	}
-	
-	protected Vertex getFreeVertex(final int xIndex,
-								   final int yIndex) {
-		final int resolution = getResolution();
-		final int xCoordinate = xIndex * resolution;
-		final int yCoordinate = yIndex * resolution;
-		
-		final PositionedShape shape = new RectangularShape(xCoordinate, yCoordinate, resolution, resolution);
-		
-		if (!getFactoryModel().hasObstacleAt(shape)) {
-			return getVertex(xIndex, yIndex);
-		}
-		
-		return null;
-	}
-	
-	protected abstract Vertex getVertex(final int xIndex,
-								 		final int yIndex);
-	
-	protected Vertex getVertex(final Position position) {
-		float currentMaxOverlayedSurface = 0.0f;
-		Vertex maxOverlayedSurfaceVertex = null; 
-		final PositionedShape shape = new RectangularShape(position.getxCoordinate(), 
-														   position.getyCoordinate(),
-														   resolution,
-														   resolution);
-		
-		final  Iterator<? extends Vertex> vertexesIterator = getGraphVertexesIterator();
-		
-		while (vertexesIterator.hasNext()) {
-			final Vertex vertex = vertexesIterator.next();
-			final float overlayedSurface = overlayedSurface(vertex, shape);
-			
-			if (overlayedSurface  > currentMaxOverlayedSurface) {
-				currentMaxOverlayedSurface = overlayedSurface;
-				maxOverlayedSurfaceVertex = vertex;
-			}
-		}
-		
-		return maxOverlayedSurfaceVertex;
+
+	/**
+	 * @return the index of the grid node nearest to the given coordinate, before
+	 * snapping to the border of the grid.
+	 */
+	int getNearestIndex(final int coordinate) {
+		// Rounds half down, as the lower cell wins when both overlap the same surface
+		return Math.floorDiv(coordinate + (resolution - 1) / 2, resolution);
 	}
-	
-	protected abstract float overlayedSurface(Vertex vertex, 
-											  PositionedShape shape);
-	
-	protected abstract Iterator<? extends Vertex> getGraphVertexesIterator();
 }
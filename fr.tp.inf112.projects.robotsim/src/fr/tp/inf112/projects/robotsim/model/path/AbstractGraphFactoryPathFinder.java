@@ -0,0 +1,36 @@
+package fr.tp.inf112.projects.robotsim.model.path;
+
+import java.util.List;
+
+import fr.tp.inf112.projects.robotsim.model.Factory;
+import fr.tp.inf112.projects.robotsim.model.Position;
+
+/**
+ * Base of the path finders searching a graph built from the grid of the
+ * factory, with a vertex per cell and an edge towards each adjacent free cell.
+ */
+public abstract class AbstractGraphFactoryPathFinder<Graph, Vertex> extends AbstractFactoryPathFinder<Graph, Vertex> {
+
+	private static final long serialVersionUID = 5177950482360313592L;
+
+	protected AbstractGraphFactoryPathFinder(final Factory factoryModel,
+											 final int resolution) {
+		super(factoryModel, resolution);
+	}
+
+	@Override
+	List<Position> findPath(final NavigationGrid<Graph, Vertex> grid,
+							final Vertex sourceVertex,
+							final Vertex targetVertex) {
+		return findPath(grid.getGraph(), sourceVertex, targetVertex);
+	}
+
+	/**
+	 * Searches the shortest path between two vertexes of the graph.
+	 *
+	 * @return the positions of the vertexes of the path, excluding the source one.
+	 */
+	protected abstract List<Position> findPath(Graph graph,
+											   Vertex sourceVertex,
+											   Vertex targetVertex);
+}
@@ -0,0 +1,231 @@
+package fr.tp.inf112.projects.robotsim.model.path;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import fr.tp.inf112.projects.robotsim.model.Factory;
+import fr.tp.inf112.projects.robotsim.model.Position;
+
+/**
+ * Base of the path finders searching the uniform grid of the factory directly
+ * rather than a graph built from it. The grid only holds the position of each
+ * cell and whether it overlaps an obstacle, and is shared by all the grid
+ * search finders of the same resolution.
+ *
+ * As for the graph finders, a path may leave any cell but only enter free
+ * ones, and consecutive positions of a path are adjacent cells.
+ */
+public abstract class AbstractGridSearchFactoryPathFinder extends AbstractFactoryPathFinder<Void, Position> {
+
+	private static final long serialVersionUID = -3021465318329578011L;
+
+	/** Parent of the source cell in the parents arrays built by the searches. */
+	protected static final int NO_PARENT = -1;
+
+	/** Moves to the adjacent cells of a 4-connected grid, as x and y index steps. */
+	protected static final int[] X_STEPS = { 0, 1, 0, -1 };
+
+	protected static final int[] Y_STEPS = { -1, 0, 1, 0 };
+
+	protected AbstractGridSearchFactoryPathFinder(final Factory factoryModel,
+												  final int resolution) {
+		super(factoryModel, resolution);
+	}
+
+	@Override
+	protected Class<?> getGridType() {
+		return AbstractGridSearchFactoryPathFinder.class;
+	}
+
+	@Override
+	protected Void newGraph() {
+		return null;
+	}
+
+	@Override
+	protected Position addVertex(final Void graph,
+								 final int xCoordinate,
+								 final int yCoordinate) {
+		return new Position(xCoordinate, yCoordinate);
+	}
+
+	@Override
+	protected boolean addEdge(final Void graph,
+							  final Position vertex1,
+							  final Position vertex2) {
+		return false;
+	}
+
+	@Override
+	protected boolean removeEdge(final Void graph,
+								 final Position vertex1,
+								 final Position vertex2) {
+		return false;
+	}
+
+	@Override
+	protected int getxCoordinate(final Position vertex) {
+		return vertex.getxCoordinate();
+	}
+
+	@Override
+	protected int getyCoordinate(final Position vertex) {
+		return vertex.getyCoordinate();
+	}
+
+	@Override
+	List<Position> findPath(final NavigationGrid<Void, Position> grid,
+							final Position sourceVertex,
+							final Position targetVertex) {
+		final int resolution = getResolution();
+		final int xSize = grid.getxSize();
+		final int sourceCell = sourceVertex.getyCoordinate() / resolution * xSize + sourceVertex.getxCoordinate() / resolution;
+		final int targetCell = targetVertex.getyCoordinate() / resolution * xSize + targetVertex.getxCoordinate() / resolution;
+
+		if (sourceCell == targetCell) {
+			return new ArrayList<>();
+		}
+
+		return findPath(grid, sourceCell, targetCell);
+	}
+
+	/**
+	 * Builds a single breadth first search tree from the source cell, grown until
+	 * all the target cells are reached, when the finder shares search trees.
+	 */
+	@Override
+	Map<Position, List<Position>> findPaths(final NavigationGrid<Void, Position> grid,
+											final Position sourceVertex,
+											final Collection<Position> targetVertexes) {
+		if (targetVertexes.size() == 1 || !sharesSearchTrees()) {
+			return super.findPaths(grid, sourceVertex, targetVertexes);
+		}
+
+		final int resolution = getResolution();
+		final int xSize = grid.getxSize();
+		final int cellCount = xSize * grid.getySize();
+		final int sourceCell = sourceVertex.getyCoordinate() / resolution * xSize + sourceVertex.getxCoordinate() / resolution;
+		final int[] parents = new int[cellCount];
+		Arrays.fill(parents, cellCount);
+		parents[sourceCell] = NO_PARENT;
+		final boolean[] targetCells = new boolean[cellCount];
+		int remainingTargetCount = 0;
+
+		for (final Position targetVertex : targetVertexes) {
+			final int targetCell = targetVertex.getyCoordinate() / resolution * xSize + targetVertex.getxCoordinate() / resolution;
+
+			if (targetCell != sourceCell && !targetCells[targetCell]) {
+				targetCells[targetCell] = true;
+				remainingTargetCount++;
+			}
+		}
+
+		final int[] openCells = new int[cellCount];
+		int head = 0;
+		int tail = 0;
+		openCells[tail++] = sourceCell;
+
+		while (head < tail && remainingTargetCount > 0) {
+			final int cell = openCells[head++];
+			final int xIndex = cell % xSize;
+			final int yIndex = cell / xSize;
+
+			for (int direction = 0; direction < X_STEPS.length; direction++) {
+				final int succxIndex = xIndex + X_STEPS[direction];
+				final int succyIndex = yIndex + Y_STEPS[direction];
+
+				if (isFree(grid, succxIndex, succyIndex)) {
+					final int succCell = succyIndex * xSize + succxIndex;
+
+					if (parents[succCell] == cellCount) {
+						parents[succCell] = cell;
+						openCells[tail++] = succCell;
+
+						if (targetCells[succCell]) {
+							remainingTargetCount--;
+						}
+					}
+				}
+			}
+		}
+
+		final Map<Position, List<Position>> paths = new HashMap<>();
+
+		for (final Position targetVertex : targetVertexes) {
+			final int targetCell = targetVertex.getyCoordinate() / resolution * xSize + targetVertex.getxCoordinate() / resolution;
+			final boolean reached = parents[targetCell] != cellCount;
+			paths.put(targetVertex, Collections.unmodifiableList(toPositions(grid, reached ? parents : null, targetCell)));
+		}
+
+		return paths;
+	}
+
+	/**
+	 * @return {@code true} if the paths from a cell to several others are found
+	 * with a single search tree rather than one search per target.
+	 */
+	protected boolean sharesSearchTrees() {
+		return true;
+	}
+
+	/**
+	 * Searches a shortest path between two distinct cells, indexed as
+	 * {@code yIndex * xSize + xIndex}.
+	 *
+	 * @return the positions of the cells of the path, excluding the source one, or
+	 * an empty list if the target cannot be reached.
+	 */
+	protected abstract List<Position> findPath(NavigationGrid<Void, Position> grid,
+											   int sourceCell,
+											   int targetCell);
+
+	protected static boolean isFree(final NavigationGrid<Void, Position> grid,
+									final int xIndex,
+									final int yIndex) {
+		return grid.getFreeVertex(xIndex, yIndex) != null;
+	}
+
+	/**
+	 * @param parents the parent of each cell of the path in a search tree, the
+	 * parent of the source cell being {@link #NO_PARENT}, or {@code null} if the
+	 * target was not reached. Consecutive cells of the path may be several cells
+	 * apart on the same row, column or diagonal.
+	 * @return the positions of the cells of the path, excluding the source one.
+	 */
+	protected static List<Position> toPositions(final NavigationGrid<Void, Position> grid,
+												final int[] parents,
+												final int targetCell) {
+		final int xSize = grid.getxSize();
+		final List<Position> positions = new ArrayList<>();
+
+		if (parents == null) {
+			return positions;
+		}
+
+		int cell = targetCell;
+
+		while (parents[cell] != NO_PARENT) {
+			final int parentCell = parents[cell];
+			final int xIndex = cell % xSize;
+			final int yIndex = cell / xSize;
+			final int xStep = Integer.signum(parentCell % xSize - xIndex);
+			final int yStep = Integer.signum(parentCell / xSize - yIndex);
+
+			// Walks back to the parent cell, adding each cell in between
+			for (int x = xIndex, y = yIndex; x != parentCell % xSize || y != parentCell / xSize; x += xStep, y += yStep) {
+				positions.add(grid.getVertex(x, y));
+			}
+
+			cell = parentCell;
+		}
+
+		Collections.reverse(positions);
+
+		return positions;
+	}
+}
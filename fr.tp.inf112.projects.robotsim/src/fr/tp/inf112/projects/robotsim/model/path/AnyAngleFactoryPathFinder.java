@@ -0,0 +1,202 @@
+package fr.tp.inf112.projects.robotsim.model.path;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import fr.tp.inf112.projects.robotsim.model.Component;
+import fr.tp.inf112.projects.robotsim.model.Factory;
+import fr.tp.inf112.projects.robotsim.model.Position;
+
+/**
+ * Path finder decorator turning the grid paths of a finder into any-angle
+ * paths, by lazily pulling them straight wherever the factory has a line of
+ * sight.
+ *
+ * From the source position, the path goes straight to the furthest position of
+ * the grid path in sight, and so on from there. A line of sight is checked
+ * against the obstacles of the factory at each step of the straight segment,
+ * steps being at most one resolution long, give or take the rounding of their
+ * coordinates, so that a robot still moves about one cell per step, and each
+ * step covering a cell sized square as the free cells of the grid do. Positions
+ * of the smoothed path are therefore not grid nodes.
+ *
+ * Cooperative finders cannot be decorated, as their paths follow the cells
+ * reserved for each tick.
+ */
+public class AnyAngleFactoryPathFinder implements FactoryPathFinder, Serializable {
+
+	private static final long serialVersionUID = 4463912378204529765L;
+
+	private final AbstractFactoryPathFinder<?, ?> pathFinder;
+
+	public AnyAngleFactoryPathFinder(final AbstractFactoryPathFinder<?, ?> pathFinder) {
+		if (pathFinder instanceof CooperativeFactoryPathFinder) {
+			throw new IllegalArgumentException("Cooperative paths cannot be smoothed: " + pathFinder.getClass().getSimpleName());
+		}
+
+		this.pathFinder = pathFinder;
+	}
+
+	public AbstractFactoryPathFinder<?, ?> getPathFinder() {
+		return pathFinder;
+	}
+
+	@Override
+	public List<Position> findPath(final Component sourceComponent,
+								   final Component targetComponent) {
+		return smooth(sourceComponent.getPosition(), pathFinder.findPath(sourceComponent, targetComponent));
+	}
+
+	@Override
+	public CompletableFuture<List<List<Position>>> findPaths(final List<PathQuery> queries,
+															 final Executor executor) {
+		return pathFinder.findPaths(queries, executor).thenApply(paths -> {
+			final List<List<Position>> smoothedPaths = new ArrayList<>(paths.size());
+
+			for (int index = 0; index < paths.size(); index++) {
+				final Position sourcePosition = queries.get(index).sourceComponent().getPosition();
+				smoothedPaths.add(Collections.unmodifiableList(smooth(sourcePosition, paths.get(index))));
+			}
+
+			return smoothedPaths;
+		});
+	}
+
+	/**
+	 * @param sourcePosition the position the path leaves from.
+	 * @param path the grid path, excluding the source position.
+	 * @return the any-angle path, excluding the source position.
+	 */
+	List<Position> smooth(final Position sourcePosition,
+						  final List<Position> path) {
+		if (path.size() < 2) {
+			return path;
+		}
+
+		final List<Position> smoothedPath = new ArrayList<>();
+		Position anchorPosition = new Position(sourcePosition.getxCoordinate(), sourcePosition.getyCoordinate());
+		int index = 0;
+
+		while (index < path.size()) {
+			final int furthestIndex = findFurthestInSight(anchorPosition, path, index);
+
+			if (furthestIndex < index) {
+				// The source may be off the grid nodes and out of sight of the path, which is then followed as is
+				anchorPosition = path.get(index);
+				smoothedPath.add(anchorPosition);
+				index++;
+			}
+			else {
+				addSteps(smoothedPath, anchorPosition, path.get(furthestIndex));
+				anchorPosition = path.get(furthestIndex);
+				index = furthestIndex + 1;
+			}
+		}
+
+		return smoothedPath;
+	}
+
+	/**
+	 * Gallops along the path, then narrows down by bisection, so that a long
+	 * straight path takes a logarithmic number of sight checks.
+	 *
+	 * @return the index of the furthest position in sight found from the given
+	 * index, or the index before it if its position is out of sight.
+	 */
+	private int findFurthestInSight(final Position anchorPosition,
+									final List<Position> path,
+									final int fromIndex) {
+		if (!isInSight(anchorPosition, path.get(fromIndex))) {
+			return fromIndex - 1;
+		}
+
+		int inSightIndex = fromIndex;
+		int stride = 1;
+
+		while (inSightIndex + stride < path.size() && isInSight(anchorPosition, path.get(inSightIndex + stride))) {
+			inSightIndex += stride;
+			stride *= 2;
+		}
+
+		int outOfSightIndex = Math.min(inSightIndex + stride, path.size());
+
+		while (outOfSightIndex - inSightIndex > 1) {
+			final int middleIndex = (inSightIndex + outOfSightIndex) >>> 1;
+
+			if (isInSight(anchorPosition, path.get(middleIndex))) {
+				inSightIndex = middleIndex;
+			}
+			else {
+				outOfSightIndex = middleIndex;
+			}
+		}
+
+		return inSightIndex;
+	}
+
+	private boolean isInSight(final Position fromPosition,
+							  final Position toPosition) {
+		final Factory factory = pathFinder.getFactoryModel();
+		final int resolution = pathFinder.getResolution();
+		final int stepCount = getStepCount(fromPosition, toPosition);
+
+		for (int step = 1; step <= stepCount; step++) {
+			if (factory.hasObstacleAt(interpolate(fromPosition.getxCoordinate(), toPosition.getxCoordinate(), step, stepCount),
+									  interpolate(fromPosition.getyCoordinate(), toPosition.getyCoordinate(), step, stepCount),
+									  resolution,
+									  resolution)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Adds the steps of the straight segment between two positions, excluding the
+	 * first one, as checked by {@link #isInSight(Position, Position)}.
+	 */
+	private void addSteps(final List<Position> positions,
+						  final Position fromPosition,
+						  final Position toPosition) {
+		final int stepCount = getStepCount(fromPosition, toPosition);
+		int lastxCoordinate = fromPosition.getxCoordinate();
+		int lastyCoordinate = fromPosition.getyCoordinate();
+
+		for (int step = 1; step <= stepCount; step++) {
+			final int xCoordinate = interpolate(fromPosition.getxCoordinate(), toPosition.getxCoordinate(), step, stepCount);
+			final int yCoordinate = interpolate(fromPosition.getyCoordinate(), toPosition.getyCoordinate(), step, stepCount);
+
+			// Short steps may round to the same coordinates
+			if (xCoordinate != lastxCoordinate || yCoordinate != lastyCoordinate) {
+				positions.add(new Position(xCoordinate, yCoordinate));
+				lastxCoordinate = xCoordinate;
+				lastyCoordinate = yCoordinate;
+			}
+		}
+	}
+
+	private int getStepCount(final Position fromPosition,
+							 final Position toPosition) {
+		final double distance = Math.hypot(toPosition.getxCoordinate() - fromPosition.getxCoordinate(),
+										   toPosition.getyCoordinate() - fromPosition.getyCoordinate());
+
+		return (int) Math.ceil(distance / pathFinder.getResolution());
+	}
+
+	private static int interpolate(final int fromCoordinate,
+								   final int toCoordinate,
+								   final int step,
+								   final int stepCount) {
+		return (int) Math.round(fromCoordinate + (double) (toCoordinate - fromCoordinate) * step / stepCount);
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + " [pathFinder=" + pathFinder.getClass().getSimpleName() + "]";
+	}
+}
@@ -0,0 +1,150 @@
+package fr.tp.inf112.projects.robotsim.model.path;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import fr.tp.inf112.projects.robotsim.model.Component;
+import fr.tp.inf112.projects.robotsim.model.Position;
+
+/**
+ * Path finder decorator remembering the paths found by a grid path finder, so
+ * that robots touring the same targets do not search the same routes again.
+ *
+ * Paths are keyed by the grid nodes the source and target positions snap to,
+ * and the least recently used ones are evicted beyond a maximum number of
+ * entries. All the paths are forgotten once the obstacle layout of the factory
+ * changed. A single instance can be shared by the robots of a factory.
+ */
+public class CachingFactoryPathFinder implements FactoryPathFinder, Serializable {
+
+	private static final long serialVersionUID = -1788632085245096311L;
+
+	public static final int DEFAULT_MAX_ENTRIES = 1024;
+
+	private final AbstractFactoryPathFinder<?, ?> pathFinder;
+
+	private final int maxEntries;
+
+	@com.fasterxml.jackson.annotation.JsonIgnore
+	private transient Map<PathKey, List<Position>> paths;
+
+	/** Layout version of the factory the cached paths were found for. */
+	private transient long layoutVersion;
+
+	private final AtomicLong hitCount;
+
+	private final AtomicLong missCount;
+
+	private record PathKey(int sourcexIndex, int sourceyIndex, int targetxIndex, int targetyIndex) {
+	}
+
+	public CachingFactoryPathFinder(final AbstractFactoryPathFinder<?, ?> pathFinder) {
+		this(pathFinder, DEFAULT_MAX_ENTRIES);
+	}
+
+	public CachingFactoryPathFinder(final AbstractFactoryPathFinder<?, ?> pathFinder,
+									final int maxEntries) {
+		if (maxEntries <= 0) {
+			throw new IllegalArgumentException("The maximum number of entries must be positive: " + maxEntries);
+		}
+
+		this.pathFinder = pathFinder;
+		this.maxEntries = maxEntries;
+		this.hitCount = new AtomicLong();
+		this.missCount = new AtomicLong();
+	}
+
+	public AbstractFactoryPathFinder<?, ?> getPathFinder() {
+		return pathFinder;
+	}
+
+	@Override
+	public List<Position> findPath(final Component sourceComponent,
+								   final Component targetComponent) {
+		final Position sourcePosition = sourceComponent.getPosition();
+		final Position targetPosition = targetComponent.getPosition();
+		final PathKey key = new PathKey(pathFinder.getNearestIndex(sourcePosition.getxCoordinate()),
+										pathFinder.getNearestIndex(sourcePosition.getyCoordinate()),
+										pathFinder.getNearestIndex(targetPosition.getxCoordinate()),
+										pathFinder.getNearestIndex(targetPosition.getyCoordinate()));
+		final long currentLayoutVersion = pathFinder.getFactoryModel().getLayoutVersion();
+		final List<Position> cachedPath = getCachedPath(key, currentLayoutVersion);
+
+		if (cachedPath != null) {
+			hitCount.incrementAndGet();
+
+			return cachedPath;
+		}
+
+		missCount.incrementAndGet();
+
+		// Searched without holding the cache so that other robots are not delayed
+		final List<Position> path = Collections.unmodifiableList(pathFinder.findPath(sourceComponent, targetComponent));
+		cachePath(key, path, currentLayoutVersion);
+
+		return path;
+	}
+
+	private synchronized List<Position> getCachedPath(final PathKey key,
+													  final long currentLayoutVersion) {
+		if (paths == null || layoutVersion != currentLayoutVersion) {
+			return null;
+		}
+
+		return paths.get(key);
+	}
+
+	private synchronized void cachePath(final PathKey key,
+										final List<Position> path,
+										final long pathLayoutVersion) {
+		if (paths == null || layoutVersion != pathLayoutVersion) {
+			// A path found for an older layout than the cached ones is dropped
+			if (paths != null && pathLayoutVersion < layoutVersion) {
+				return;
+			}
+
+			paths = new LinkedHashMap<>(16, 0.75f, true) {
+
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(final Map.Entry<PathKey, List<Position>> eldest) {
+					return size() > maxEntries;
+				}
+			};
+			layoutVersion = pathLayoutVersion;
+		}
+
+		paths.put(key, path);
+	}
+
+	public synchronized void clear() {
+		paths = null;
+	}
+
+	public synchronized int getSize() {
+		return paths == null ? 0 : paths.size();
+	}
+
+	public int getMaxEntries() {
+		return maxEntries;
+	}
+
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + " [pathFinder=" + pathFinder.getClass().getSimpleName() + ", size=" + getSize()
+				+ ", hits=" + getHitCount() + ", misses=" + getMissCount() + "]";
+	}
+}
@@ -0,0 +1,228 @@
+package fr.tp.inf112.projects.robotsim.model.path;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jgrapht.Graph;
+import org.jgrapht.Graphs;
+import org.jgrapht.alg.shortestpath.ContractionHierarchyBidirectionalDijkstra;
+import org.jgrapht.alg.shortestpath.ContractionHierarchyPrecomputation;
+import org.jgrapht.alg.shortestpath.ContractionHierarchyPrecomputation.ContractionHierarchy;
+import org.jgrapht.graph.DefaultDirectedGraph;
+import org.jgrapht.graph.DefaultEdge;
+
+import fr.tp.inf112.projects.robotsim.model.Factory;
+import fr.tp.inf112.projects.robotsim.model.Position;
+import fr.tp.inf112.projects.robotsim.model.shapes.PositionedShape;
+
+/**
+ * Finder for factories whose layout rarely changes, answering queries with a
+ * contraction hierarchy of the JGraphT grid graph, which it shares with the
+ * JGraphT Dijkstra finders.
+ *
+ * The hierarchy of a layout is computed once for all the finders sharing the
+ * grid and kept with it, in the background, on a copy of the graph so that the
+ * grid may still be repaired meanwhile; until it is ready, queries are answered
+ * by the Dijkstra search of the superclass. A layout change supersedes the
+ * computation of the previous layout, which is skipped if not started yet and
+ * whose result is dropped otherwise. Hierarchies are computed one at a time for
+ * all the factories, each on all the processors.
+ *
+ * On grids of a few thousand cells, hierarchy queries take about as long as a
+ * Dijkstra search, so this finder only pays off on large floors.
+ */
+public class ContractionHierarchyFactoryPathFinder extends JGraphTDijkstraFactoryPathFinder {
+
+	private static final long serialVersionUID = -2961537725069357148L;
+
+	private static final Logger LOGGER = Logger.getLogger(ContractionHierarchyFactoryPathFinder.class.getName());
+
+	private static final long PRECOMPUTATION_KEEP_ALIVE_S = 30;
+
+	/** Single thread running the computations of the hierarchies. */
+	private static final ThreadPoolExecutor PRECOMPUTATION_EXECUTOR = createExecutor(1, "contraction-hierarchy");
+
+	/** Threads contracting the graph of the running computation. */
+	private static final ThreadPoolExecutor CONTRACTION_EXECUTOR = createExecutor(Runtime.getRuntime().availableProcessors(), "contraction-hierarchy-worker");
+
+	/**
+	 * Hierarchy of the grid graph at a layout version, completed once computed,
+	 * and the task computing it.
+	 */
+	private record Precomputation(long layoutVersion,
+								  CompletableFuture<ContractionHierarchy<PositionedShape, DefaultEdge>> hierarchy,
+								  Future<?> task) {
+	}
+
+	public ContractionHierarchyFactoryPathFinder(final Factory factoryModel,
+												 final int resolution) {
+		super(factoryModel, resolution);
+	}
+
+	/**
+	 * @return {@code true} if queries on the current layout are answered with its
+	 * contraction hierarchy.
+	 */
+	public boolean isHierarchyReady() {
+		final Precomputation currentPrecomputation = getGrid().getDerivedData(Precomputation.class);
+
+		return currentPrecomputation != null &&
+			   currentPrecomputation.layoutVersion() == getFactoryModel().getLayoutVersion() &&
+			   getHierarchy(currentPrecomputation) != null;
+	}
+
+	/**
+	 * Waits for the contraction hierarchy of the current layout, starting its
+	 * computation if needed.
+	 */
+	public void awaitHierarchy() {
+		final NavigationGrid<DefaultDirectedGraph<PositionedShape, DefaultEdge>, PositionedShape> grid = getGrid();
+		final Precomputation currentPrecomputation;
+		grid.getLock().readLock().lock();
+
+		try {
+			currentPrecomputation = getPrecomputation(grid);
+		}
+		finally {
+			grid.getLock().readLock().unlock();
+		}
+
+		currentPrecomputation.hierarchy().exceptionally(ex -> null).join();
+	}
+
+	@Override
+	List<Position> findPath(final NavigationGrid<DefaultDirectedGraph<PositionedShape, DefaultEdge>, PositionedShape> grid,
+							final PositionedShape sourceVertex,
+							final PositionedShape targetVertex) {
+		final ContractionHierarchy<PositionedShape, DefaultEdge> hierarchy = getHierarchy(getPrecomputation(grid));
+
+		if (hierarchy == null) {
+			return super.findPath(grid, sourceVertex, targetVertex);
+		}
+
+		return toPositions(new ContractionHierarchyBidirectionalDijkstra<>(hierarchy).getPath(sourceVertex, targetVertex), sourceVertex);
+	}
+
+	/**
+	 * Hierarchy queries are faster than a shortest path tree, so each target is
+	 * searched on its own once the hierarchy is ready.
+	 */
+	@Override
+	Map<PositionedShape, List<Position>> findPaths(final NavigationGrid<DefaultDirectedGraph<PositionedShape, DefaultEdge>, PositionedShape> grid,
+												   final PositionedShape sourceVertex,
+												   final Collection<PositionedShape> targetVertexes) {
+		if (getHierarchy(getPrecomputation(grid)) == null) {
+			return super.findPaths(grid, sourceVertex, targetVertexes);
+		}
+
+		final Map<PositionedShape, List<Position>> paths = new HashMap<>();
+
+		for (final PositionedShape targetVertex : targetVertexes) {
+			paths.put(targetVertex, Collections.unmodifiableList(findPath(grid, sourceVertex, targetVertex)));
+		}
+
+		return paths;
+	}
+
+	private static ContractionHierarchy<PositionedShape, DefaultEdge> getHierarchy(final Precomputation precomputation) {
+		final CompletableFuture<ContractionHierarchy<PositionedShape, DefaultEdge>> hierarchy = precomputation.hierarchy();
+
+		return hierarchy.isDone() && !hierarchy.isCompletedExceptionally() ? hierarchy.join() : null;
+	}
+
+	/**
+	 * @return the precomputation of the layout of the grid, started if needed,
+	 * shared by all the finders of the grid. The caller holds the read lock of the
+	 * grid.
+	 */
+	private static Precomputation getPrecomputation(final NavigationGrid<DefaultDirectedGraph<PositionedShape, DefaultEdge>, PositionedShape> grid) {
+		final Precomputation currentPrecomputation = grid.getDerivedData(Precomputation.class);
+
+		if (currentPrecomputation != null && currentPrecomputation.layoutVersion() == grid.getLayoutVersion()) {
+			return currentPrecomputation;
+		}
+
+		return grid.updateDerivedData(Precomputation.class, precomputation -> {
+			if (precomputation != null && precomputation.layoutVersion() == grid.getLayoutVersion()) {
+				return precomputation;
+			}
+
+			if (precomputation != null) {
+				// JGraphT does not support interrupting a computation, which then runs to its end
+				precomputation.task().cancel(false);
+				precomputation.hierarchy().cancel(false);
+			}
+
+			return startPrecomputation(grid);
+		});
+	}
+
+	/**
+	 * Submits the computation of the hierarchy of the current layout of the grid.
+	 * The caller holds the read lock of the grid.
+	 */
+	private static Precomputation startPrecomputation(final NavigationGrid<DefaultDirectedGraph<PositionedShape, DefaultEdge>, PositionedShape> grid) {
+		// The copy shares the vertexes and edges of the grid graph, whose repairs it does not see
+		final Graph<PositionedShape, DefaultEdge> graph = new DefaultDirectedGraph<>(DefaultEdge.class);
+		Graphs.addGraph(graph, grid.getGraph());
+		final CompletableFuture<ContractionHierarchy<PositionedShape, DefaultEdge>> hierarchy = new CompletableFuture<>();
+
+		final Future<?> task = PRECOMPUTATION_EXECUTOR.submit(() -> {
+			if (hierarchy.isDone()) {
+				// Cancelled while queued
+				return;
+			}
+
+			try {
+				// Not completed once superseded
+				hierarchy.complete(compute(graph));
+			}
+			catch (final RuntimeException | Error ex) {
+				LOGGER.log(Level.WARNING, "Contraction hierarchy failed, queries keep on using Dijkstra.", ex);
+				hierarchy.completeExceptionally(ex);
+			}
+		});
+
+		return new Precomputation(grid.getLayoutVersion(), hierarchy, task);
+	}
+
+	/**
+	 * @return an executor whose idle threads end, so that idle finders leave no
+	 * thread behind.
+	 */
+	private static ThreadPoolExecutor createExecutor(final int threadCount,
+													 final String threadName) {
+		final AtomicInteger threadIndex = new AtomicInteger();
+		final ThreadPoolExecutor executor = new ThreadPoolExecutor(threadCount, threadCount,
+																   PRECOMPUTATION_KEEP_ALIVE_S, TimeUnit.SECONDS,
+																   new LinkedBlockingQueue<>(),
+																   runnable -> {
+																	   final Thread thread = new Thread(runnable, threadName + "-" + threadIndex.incrementAndGet());
+																	   thread.setDaemon(true);
+
+																	   return thread;
+																   });
+		executor.allowCoreThreadTimeOut(true);
+
+		return executor;
+	}
+
+	private static ContractionHierarchy<PositionedShape, DefaultEdge> compute(final Graph<PositionedShape, DefaultEdge> graph) {
+		final long startNs = System.nanoTime();
+		final ContractionHierarchy<PositionedShape, DefaultEdge> hierarchy = new ContractionHierarchyPrecomputation<>(graph, CONTRACTION_EXECUTOR).computeContractionHierarchy();
+		LOGGER.log(Level.FINE, "Contraction hierarchy computed in {0} ms.", (System.nanoTime() - startNs) / 1_000_000);
+
+		return hierarchy;
+	}
+}
@@ -0,0 +1,259 @@
+package fr.tp.inf112.projects.robotsim.model.path;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.Lock;
+
+import fr.tp.inf112.projects.robotsim.model.Component;
+import fr.tp.inf112.projects.robotsim.model.Factory;
+import fr.tp.inf112.projects.robotsim.model.Position;
+
+/**
+ * Windowed hierarchical cooperative A*: each component searches the grid in
+ * space and time for a window of ticks, avoiding the cells reserved by the
+ * others in a shared {@link ReservationTable}, then reserves the cells of its
+ * own schedule.
+ *
+ * The search is guided by the exact distances to the target ignoring the other
+ * components, taken from the distance fields of the superclass. Only the first
+ * half of the window is returned, so that components plan again before their
+ * reservations run out and the order in which they plan rotates.
+ */
+public class CooperativeAStarFactoryPathFinder extends DistanceFieldFactoryPathFinder implements CooperativeFactoryPathFinder {
+
+	private static final long serialVersionUID = -1693517014285542368L;
+
+	public static final int DEFAULT_WINDOW = 16;
+
+	private final ReservationTable reservationTable;
+
+	private final int window;
+
+	public CooperativeAStarFactoryPathFinder(final Factory factoryModel,
+											 final int resolution,
+											 final ReservationTable reservationTable) {
+		this(factoryModel, resolution, reservationTable, DEFAULT_WINDOW);
+	}
+
+	public CooperativeAStarFactoryPathFinder(final Factory factoryModel,
+											 final int resolution,
+											 final ReservationTable reservationTable,
+											 final int window) {
+		super(factoryModel, resolution);
+
+		if (window < 2) {
+			throw new IllegalArgumentException("The window must cover at least two ticks: " + window);
+		}
+
+		this.reservationTable = reservationTable;
+		this.window = window;
+	}
+
+	public ReservationTable getReservationTable() {
+		return reservationTable;
+	}
+
+	public int getWindow() {
+		return window;
+	}
+
+	@Override
+	public List<Position> findPath(final Component sourceComponent,
+								   final Component targetComponent) {
+		final NavigationGrid<Void, Position> grid = getGrid();
+		final Lock readLock = grid.getLock().readLock();
+		readLock.lock();
+
+		try {
+			final Position sourceVertex = getVertex(grid, sourceComponent.getPosition());
+			final Position targetVertex = getVertex(grid, targetComponent.getPosition());
+
+			if (sourceVertex == null || targetVertex == null) {
+				return new ArrayList<>();
+			}
+
+			final int resolution = getResolution();
+			final int xSize = grid.getxSize();
+			final int sourceCell = sourceVertex.getyCoordinate() / resolution * xSize + sourceVertex.getxCoordinate() / resolution;
+			final int targetCell = targetVertex.getyCoordinate() / resolution * xSize + targetVertex.getxCoordinate() / resolution;
+
+			// Computed before planning so that the table is not held during a field computation
+			final int[] distances = getDistances(grid, targetCell);
+
+			synchronized (reservationTable) {
+				reservationTable.release(sourceComponent);
+
+				return plan(grid, distances, sourceComponent, sourceCell, targetCell, reservationTable.getTime());
+			}
+		}
+		finally {
+			readLock.unlock();
+		}
+	}
+
+	/**
+	 * Each query reserves cells that the following ones must avoid, so the
+	 * queries are planned one after the other, in order, by a single task.
+	 * Queries must not be repeated for the same source component, whose later
+	 * plan would release the earlier one.
+	 */
+	@Override
+	public CompletableFuture<List<List<Position>>> findPaths(final List<PathQuery> queries,
+															 final Executor executor) {
+		return CompletableFuture.supplyAsync(() -> {
+			final List<List<Position>> paths = new ArrayList<>(queries.size());
+
+			for (final PathQuery query : queries) {
+				paths.add(Collections.unmodifiableList(findPath(query.sourceComponent(), query.targetComponent())));
+			}
+
+			return paths;
+		}, executor);
+	}
+
+	@Override
+	public void releasePath(final Component component) {
+		reservationTable.release(component);
+	}
+
+	/**
+	 * Searches the states {@code depth * cellCount + cell} of the component, a
+	 * depth being a number of ticks after the current one. Every move or wait
+	 * costs one tick, so the cost of a state is its depth.
+	 */
+	private List<Position> plan(final NavigationGrid<Void, Position> grid,
+								final int[] distances,
+								final Component component,
+								final int sourceCell,
+								final int targetCell,
+								final long time) {
+		final int xSize = grid.getxSize();
+		final long cellCount = (long) xSize * grid.getySize();
+
+		if (distances[sourceCell] == UNREACHABLE) {
+			return new ArrayList<>();
+		}
+
+		final Map<Long, Long> parents = new HashMap<>();
+		final PriorityQueue<long[]> openStates = new PriorityQueue<>((state1, state2) -> {
+			// Lowest estimated cost first, then deepest, which is closest to the target
+			final int comparison = Long.compare(state1[0], state2[0]);
+
+			return comparison != 0 ? comparison : Long.compare(state2[1] / cellCount, state1[1] / cellCount);
+		});
+		parents.put((long) sourceCell, -1L);
+		openStates.add(new long[] { distances[sourceCell], sourceCell });
+		long lastState = sourceCell;
+
+		while (!openStates.isEmpty()) {
+			final long state = openStates.poll()[1];
+			final int depth = (int) (state / cellCount);
+			final int cell = (int) (state % cellCount);
+			lastState = state;
+
+			if (cell == targetCell || depth == window) {
+				break;
+			}
+
+			final int xIndex = cell % xSize;
+			final int yIndex = cell / xSize;
+
+			for (int direction = 0; direction <= X_STEPS.length; direction++) {
+				// The last direction is waiting in the current cell
+				final boolean waiting = direction == X_STEPS.length;
+				final int succxIndex = waiting ? xIndex : xIndex + X_STEPS[direction];
+				final int succyIndex = waiting ? yIndex : yIndex + Y_STEPS[direction];
+
+				if (!waiting && !isFree(grid, succxIndex, succyIndex)) {
+					continue;
+				}
+
+				final int succCell = succyIndex * xSize + succxIndex;
+				final long succState = (depth + 1) * cellCount + succCell;
+
+				if (distances[succCell] != UNREACHABLE &&
+					!parents.containsKey(succState) &&
+					canMove(grid, component, cell, succCell, time + depth)) {
+					parents.put(succState, state);
+					openStates.add(new long[] { depth + 1 + distances[succCell], succState });
+				}
+			}
+		}
+
+		return reserve(grid, parents, component, lastState, cellCount, time);
+	}
+
+	private boolean canMove(final NavigationGrid<Void, Position> grid,
+							final Component component,
+							final int cell,
+							final int succCell,
+							final long time) {
+		final Component succOwner = reservationTable.getReservation(succCell, time + 1);
+
+		if (succOwner != null && succOwner != component) {
+			return false;
+		}
+
+		if (succCell == cell) {
+			return true;
+		}
+
+		// Two components cannot swap their cells
+		final Component owner = reservationTable.getReservation(succCell, time);
+
+		if (owner != null && owner != component && owner == reservationTable.getReservation(cell, time + 1)) {
+			return false;
+		}
+
+		// Components planning without the table are only known by their current position
+		if (time == reservationTable.getTime()) {
+			final Position succVertex = grid.getVertex(succCell % grid.getxSize(), succCell / grid.getxSize());
+
+			return !getFactoryModel().hasMobileComponentAt(succVertex.getxCoordinate(), succVertex.getyCoordinate(), 2, 2, component);
+		}
+
+		return true;
+	}
+
+	/**
+	 * Reserves the cells of the schedule ending at the given state, and the last
+	 * cell until the end of the window so that others do not plan through it.
+	 *
+	 * @return the positions of the first half of the window of the schedule.
+	 */
+	private List<Position> reserve(final NavigationGrid<Void, Position> grid,
+								   final Map<Long, Long> parents,
+								   final Component component,
+								   final long lastState,
+								   final long cellCount,
+								   final long time) {
+		final int xSize = grid.getxSize();
+		final List<Position> positions = new ArrayList<>();
+		final int lastDepth = (int) (lastState / cellCount);
+		final int lastCell = (int) (lastState % cellCount);
+
+		for (long state = lastState; state >= 0; state = parents.get(state)) {
+			final int depth = (int) (state / cellCount);
+			final int cell = (int) (state % cellCount);
+			reservationTable.reserve(component, cell, time + depth);
+
+			if (depth > 0 && depth <= window / 2) {
+				positions.add(grid.getVertex(cell % xSize, cell / xSize));
+			}
+		}
+
+		for (int depth = lastDepth + 1; depth <= window; depth++) {
+			reservationTable.reserve(component, lastCell, time + depth);
+		}
+
+		Collections.reverse(positions);
+
+		return positions;
+	}
+}
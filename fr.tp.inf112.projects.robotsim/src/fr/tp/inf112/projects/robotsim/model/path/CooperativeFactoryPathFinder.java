@@ -0,0 +1,24 @@
+package fr.tp.inf112.projects.robotsim.model.path;
+
+import java.util.List;
+
+import fr.tp.inf112.projects.robotsim.model.Component;
+import fr.tp.inf112.projects.robotsim.model.Position;
+
+/**
+ * Path finder planning the moves of mobile components against each other
+ * rather than independently.
+ *
+ * A path found by a cooperative finder is a schedule: its positions are visited
+ * one per simulation tick, a repeated position meaning waiting for a tick. It
+ * may stop before the target, in which case the component plans again once it
+ * reached the end of the path.
+ */
+public interface CooperativeFactoryPathFinder extends FactoryPathFinder {
+
+	/**
+	 * Frees the positions reserved by the last path found for the given
+	 * component, for instance when it leaves the factory.
+	 */
+	void releasePath(Component component);
+}
@@ -2,8 +2,8 @@ package fr.tp.inf112.projects.robotsim.model.path;
 
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 
 import fr.tp.inf112.projects.graph.DijkstraAlgorithm;
 import fr.tp.inf112.projects.graph.Edge;
@@ -11,12 +11,10 @@ import fr.tp.inf112.projects.graph.Vertex;
 import fr.tp.inf112.projects.graph.impl.GridEdge;
 import fr.tp.inf112.projects.graph.impl.GridGraph;
 import fr.tp.inf112.projects.graph.impl.GridVertex;
-import fr.tp.inf112.projects.robotsim.model.Component;
 import fr.tp.inf112.projects.robotsim.model.Factory;
 import fr.tp.inf112.projects.robotsim.model.Position;
-import fr.tp.inf112.projects.robotsim.model.shapes.PositionedShape;
 
-public class CustomDijkstraFactoryPathFinder extends AbstractFactoryPathFinder<GridGraph, SquareVertex> implements Serializable {
+public class CustomDijkstraFactoryPathFinder extends AbstractGraphFactoryPathFinder<GridGraph, SquareVertex> implements Serializable {
 	
 	/**
 	 * 
@@ -29,23 +27,15 @@ public class CustomDijkstraFactoryPathFinder extends AbstractFactoryPathFinder<G
 	}
 
 	@Override
-	public List<Position> findPath(final Component sourceComponent,
-								   final Component targetComponent) {
-		buildGraph();
+	protected List<Position> findPath(final GridGraph graph,
+									  final SquareVertex startVertex,
+									  final SquareVertex targetVertex) {
+		// The graph is shared with the other finders of the factory, so the target
+		// vertex its edge distances depend on is given to this search only
+		final List<Vertex> shortestPath = DijkstraAlgorithm.findShortestPath(new TargetedGridGraph(graph, targetVertex),
+																			 startVertex,
+																			 targetVertex);
 		
-		final Position sourcePosition = sourceComponent.getPosition();
-		final Position targetPosition = targetComponent.getPosition();
-		
-		final Vertex startVertex = getVertex(sourcePosition);
-		assert startVertex != null : "Start vertex should never be null!";
-
-		final Vertex targetVertex = getVertex(targetPosition);
-		assert targetVertex != null : "Target vertex should never be null!";
-		
-		final GridGraph graph = getGraph();
-		graph.setTargetVertex((GridVertex) targetVertex);
-		
-		final List<Vertex> shortestPath = DijkstraAlgorithm.findShortestPath(graph, startVertex, targetVertex);
 		final List<Position> shortestPathPositions = new ArrayList<>();
 		
 		for (final Vertex vertex : shortestPath) {
@@ -57,62 +47,48 @@ public class CustomDijkstraFactoryPathFinder extends AbstractFactoryPathFinder<G
 		return shortestPathPositions;
 	}
 
-	@Override
-	protected SquareVertex getVertex(final int xIndex, 
-									 final int yIndex) {
-		final Iterator<SquareVertex> iterator = getGraphVertexesIterator();
-		final int resolution = getResolution();
-		final Position position = new Position(xIndex * resolution, yIndex * resolution);
-
-		while (iterator.hasNext()) {
-			final SquareVertex squareVertex = iterator.next();
-			
-			if (position.equals(squareVertex.getPosition())) {
-				return squareVertex;
-			}
-		}
-		
-		return null;
-	}
-
-	@Override
-	protected float overlayedSurface(final SquareVertex vertex, 
-									 final PositionedShape shape) {
-		return vertex.getShape().getOverlayedSurface(shape);
-	}
-
-	@SuppressWarnings({ "rawtypes", "unchecked" })
-	@Override
-	protected Iterator<SquareVertex> getGraphVertexesIterator() {
-		return (Iterator) getGraph().getVertexes().iterator();
-	}
-
 	@Override
 	protected GridGraph newGraph() {
 		return new GridGraph();
 	}
 
 	@Override
-	protected boolean addVertex(final int xCoordinate,
-								final int yCoordinate) {
+	protected SquareVertex addVertex(final GridGraph graph,
+									 final int xCoordinate,
+									 final int yCoordinate) {
 		final int resolution = getResolution();
-		final Vertex vertex = new SquareVertex("(" + xCoordinate / resolution + ", "+ yCoordinate / resolution + ")",
-											   xCoordinate,
-											   yCoordinate,
-											   resolution);
-		return getGraph().addVertex(vertex);
+		final SquareVertex vertex = new SquareVertex("(" + xCoordinate / resolution + ", "+ yCoordinate / resolution + ")",
+													 xCoordinate,
+													 yCoordinate,
+													 resolution);
+		graph.addVertex(vertex);
+		
+		return vertex;
 	}
 
 	@Override
-	protected boolean addEdge(final SquareVertex vertex1,
+	protected boolean addEdge(final GridGraph graph,
+							  final SquareVertex vertex1,
 							  final SquareVertex vertex2) {
-		final GridGraph graph = getGraph();
+		final Edge disabledEdge = vertex1.getEdge(vertex2);
+
+		if (disabledEdge != null) {
+			return vertex1.addEdge(disabledEdge);
+		}
+
 		final Edge edge = new GridEdge(graph, vertex1, vertex2, 1);
 		vertex1.addEdge(edge);
 		
 		return graph.addEdge(edge);
 	}
 
+	@Override
+	protected boolean removeEdge(final GridGraph graph,
+								 final SquareVertex vertex1,
+								 final SquareVertex vertex2) {
+		return vertex1.removeSuccessor(vertex2);
+	}
+
 	@Override
 	protected int getxCoordinate(final SquareVertex vertex) {
 		return vertex.getxCoordinate();
@@ -122,4 +98,37 @@ public class CustomDijkstraFactoryPathFinder extends AbstractFactoryPathFinder<G
 	protected int getyCoordinate(final SquareVertex vertex) {
 		return vertex.getyCoordinate();
 	}
+	
+	/**
+	 * Read only view of a shared grid graph for a search towards a given target
+	 * vertex, weighting the edges of the graph as a {@link GridEdge} would with
+	 * this target.
+	 */
+	private static final class TargetedGridGraph extends GridGraph {
+		
+		private final GridGraph graph;
+		
+		private TargetedGridGraph(final GridGraph graph,
+								  final GridVertex targetVertex) {
+			this.graph = graph;
+			setTargetVertex(targetVertex);
+		}
+		
+		@Override
+		public Set<Vertex> getVertexes() {
+			return graph.getVertexes();
+		}
+		
+		@Override
+		public int getDistance(final Vertex vertex1,
+							   final Vertex vertex2) {
+			final Edge edge = ((SquareVertex) vertex1).getEdge(vertex2);
+			
+			if (edge == null) {
+				return -1;
+			}
+			
+			return new GridEdge(this, (GridVertex) edge.getVertex1(), (GridVertex) edge.getVertex2(), edge.getDistance()).getDistance();
+		}
+	}
 }
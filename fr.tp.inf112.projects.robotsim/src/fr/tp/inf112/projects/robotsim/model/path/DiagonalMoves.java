@@ -0,0 +1,49 @@
+package fr.tp.inf112.projects.robotsim.model.path;
+
+/**
+ * Diagonal moves allowed on a uniform grid, depending on the two cells sharing
+ * a side with both the cell left and the cell entered.
+ */
+public enum DiagonalMoves {
+
+	/** 4-connected grid. */
+	NONE {
+		@Override
+		boolean allows(final boolean xNeighbourFree,
+					   final boolean yNeighbourFree) {
+			return false;
+		}
+	},
+
+	/** Diagonal moves between two free cells, so that paths never cut the corner of an obstacle. */
+	NO_CORNER_CUTTING {
+		@Override
+		boolean allows(final boolean xNeighbourFree,
+					   final boolean yNeighbourFree) {
+			return xNeighbourFree && yNeighbourFree;
+		}
+	},
+
+	/** Diagonal moves past the corner of an obstacle, but never between two obstacles touching by their corners. */
+	NO_SQUEEZING {
+		@Override
+		boolean allows(final boolean xNeighbourFree,
+					   final boolean yNeighbourFree) {
+			return xNeighbourFree || yNeighbourFree;
+		}
+	};
+
+	/** Moves to the diagonal cells of an 8-connected grid, as x and y index steps. */
+	static final int[] X_STEPS = { 1, 1, -1, -1 };
+
+	static final int[] Y_STEPS = { -1, 1, 1, -1 };
+
+	/**
+	 * @param xNeighbourFree whether the cell next to the left one along the x axis
+	 * of the move is free.
+	 * @param yNeighbourFree whether the cell next to the left one along the y axis
+	 * of the move is free.
+	 */
+	abstract boolean allows(boolean xNeighbourFree,
+							boolean yNeighbourFree);
+}
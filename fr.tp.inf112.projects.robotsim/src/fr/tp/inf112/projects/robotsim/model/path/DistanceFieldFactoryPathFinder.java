@@ -0,0 +1,307 @@
+package fr.tp.inf112.projects.robotsim.model.path;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.Lock;
+
+import fr.tp.inf112.projects.robotsim.model.Component;
+import fr.tp.inf112.projects.robotsim.model.Factory;
+import fr.tp.inf112.projects.robotsim.model.Position;
+
+/**
+ * Path finder precomputing, for each target cell, the distance from every cell
+ * of the grid to the target with a breadth first search run backwards from the
+ * target. A path is then found without any search, by walking down the distance
+ * field from the source, in a time proportional to the path length.
+ *
+ * Fields are computed the first time a target is requested, or in advance with
+ * {@link #precompute(Collection)}, and recomputed once the obstacle layout of
+ * the factory changed. All the fields made stale by a layout change are
+ * recomputed together in parallel on the pool of the finder. A single instance
+ * should be shared by the robots of a factory so that they share their fields.
+ */
+public class DistanceFieldFactoryPathFinder extends AbstractGridSearchFactoryPathFinder {
+
+	private static final long serialVersionUID = 6416013372841094257L;
+
+	/** Distance of the cells from which the target cannot be reached. */
+	protected static final int UNREACHABLE = Integer.MAX_VALUE;
+
+	@com.fasterxml.jackson.annotation.JsonIgnore
+	private transient volatile Map<Integer, DistanceField> fields;
+
+	@com.fasterxml.jackson.annotation.JsonIgnore
+	private transient ForkJoinPool pool;
+
+	/**
+	 * Distances to a target cell, in steps, valid for one layout of one grid.
+	 */
+	private record DistanceField(NavigationGrid<Void, Position> grid, long layoutVersion, int[] distances) {
+
+		boolean isUpToDate(final NavigationGrid<Void, Position> currentGrid) {
+			return grid == currentGrid && layoutVersion == currentGrid.getLayoutVersion();
+		}
+	}
+
+	public DistanceFieldFactoryPathFinder(final Factory factoryModel,
+										  final int resolution) {
+		this(factoryModel, resolution, ForkJoinPool.commonPool());
+	}
+
+	public DistanceFieldFactoryPathFinder(final Factory factoryModel,
+										  final int resolution,
+										  final ForkJoinPool pool) {
+		super(factoryModel, resolution);
+
+		this.pool = pool;
+	}
+
+	private Map<Integer, DistanceField> getFields() {
+		Map<Integer, DistanceField> currentFields = fields;
+
+		if (currentFields == null) {
+			synchronized (this) {
+				currentFields = fields;
+
+				if (currentFields == null) {
+					currentFields = new ConcurrentHashMap<>();
+					fields = currentFields;
+				}
+			}
+		}
+
+		return currentFields;
+	}
+
+	/**
+	 * @return the pool the distance fields are computed on.
+	 */
+	public ForkJoinPool getPool() {
+		// The pool is not serialized
+		return pool == null ? ForkJoinPool.commonPool() : pool;
+	}
+
+	/**
+	 * Computes in parallel the distance fields of the given target components
+	 * that are missing or stale.
+	 */
+	public void precompute(final Collection<? extends Component> targetComponents) {
+		final NavigationGrid<Void, Position> currentGrid = getGrid();
+		final Lock readLock = currentGrid.getLock().readLock();
+		readLock.lock();
+
+		try {
+			final List<Integer> targetCells = new ArrayList<>();
+
+			for (final Component targetComponent : targetComponents) {
+				final Position targetVertex = getVertex(currentGrid, targetComponent.getPosition());
+
+				if (targetVertex != null) {
+					targetCells.add(targetVertex.getyCoordinate() / getResolution() * currentGrid.getxSize()
+									+ targetVertex.getxCoordinate() / getResolution());
+				}
+			}
+
+			computeFields(currentGrid, targetCells);
+		}
+		finally {
+			readLock.unlock();
+		}
+	}
+
+	/**
+	 * Recomputes in parallel all the distance fields made stale by a change of the
+	 * layout of the factory.
+	 */
+	public void refresh() {
+		final NavigationGrid<Void, Position> currentGrid = getGrid();
+		final Lock readLock = currentGrid.getLock().readLock();
+		readLock.lock();
+
+		try {
+			refreshFields(currentGrid);
+		}
+		finally {
+			readLock.unlock();
+		}
+	}
+
+	public int getFieldCount() {
+		return getFields().size();
+	}
+
+	public void clear() {
+		getFields().clear();
+	}
+
+	@Override
+	protected List<Position> findPath(final NavigationGrid<Void, Position> grid,
+									  final int sourceCell,
+									  final int targetCell) {
+		return descend(grid, getDistances(grid, targetCell), sourceCell, targetCell);
+	}
+
+	/**
+	 * Paths are descended from the cached fields of their targets, which is
+	 * cheaper than growing a search tree from their source.
+	 */
+	@Override
+	protected boolean sharesSearchTrees() {
+		return false;
+	}
+
+	/**
+	 * @return the distance field of the given target cell for the current layout,
+	 * in steps, computing it if needed. Cells from which the target cannot be
+	 * reached are at {@link #UNREACHABLE} distance.
+	 */
+	protected int[] getDistances(final NavigationGrid<Void, Position> grid,
+								 final int targetCell) {
+		final Map<Integer, DistanceField> currentFields = getFields();
+		DistanceField field = currentFields.get(targetCell);
+
+		if (field == null || !field.isUpToDate(grid)) {
+			// The first robot noticing the layout change refreshes all the fields at once
+			refreshFields(grid);
+			field = currentFields.compute(targetCell, (cell, currentField) -> getField(grid, cell, currentField));
+		}
+
+		return field.distances();
+	}
+
+	/**
+	 * Recomputes the stale fields while the caller holds the read lock of the
+	 * grid, so that the pool threads read the grid without locking it.
+	 */
+	private void refreshFields(final NavigationGrid<Void, Position> grid) {
+		final List<Integer> staleCells = new ArrayList<>();
+
+		for (final Map.Entry<Integer, DistanceField> entry : getFields().entrySet()) {
+			if (!entry.getValue().isUpToDate(grid)) {
+				staleCells.add(entry.getKey());
+			}
+		}
+
+		computeFields(grid, staleCells);
+	}
+
+	private void computeFields(final NavigationGrid<Void, Position> grid,
+							   final List<Integer> targetCells) {
+		final Map<Integer, DistanceField> currentFields = getFields();
+
+		if (targetCells.size() == 1) {
+			currentFields.compute(targetCells.get(0), (cell, currentField) -> getField(grid, cell, currentField));
+
+			return;
+		}
+
+		final List<Callable<DistanceField>> tasks = new ArrayList<>(targetCells.size());
+
+		for (final Integer targetCell : targetCells) {
+			tasks.add(() -> currentFields.compute(targetCell, (cell, currentField) -> getField(grid, cell, currentField)));
+		}
+
+		getPool().invokeAll(tasks);
+	}
+
+	private static DistanceField getField(final NavigationGrid<Void, Position> grid,
+										  final int targetCell,
+										  final DistanceField currentField) {
+		if (currentField != null && currentField.isUpToDate(grid)) {
+			return currentField;
+		}
+
+		return new DistanceField(grid, grid.getLayoutVersion(), computeDistances(grid, targetCell));
+	}
+
+	/**
+	 * Breadth first search from the target following the grid edges backwards: a
+	 * cell gets a distance when one of its neighbours at a lower distance is free,
+	 * since paths may leave any cell but only enter free ones.
+	 */
+	private static int[] computeDistances(final NavigationGrid<Void, Position> grid,
+										  final int targetCell) {
+		final int xSize = grid.getxSize();
+		final int[] distances = new int[xSize * grid.getySize()];
+		final int[] queue = new int[distances.length];
+		Arrays.fill(distances, UNREACHABLE);
+
+		int head = 0;
+		int tail = 0;
+		distances[targetCell] = 0;
+		queue[tail++] = targetCell;
+
+		while (head < tail) {
+			final int cell = queue[head++];
+			final int xIndex = cell % xSize;
+			final int yIndex = cell / xSize;
+
+			// No path enters an obstacle, so nothing is reached through it
+			if (!isFree(grid, xIndex, yIndex)) {
+				continue;
+			}
+
+			for (int direction = 0; direction < X_STEPS.length; direction++) {
+				final int predxIndex = xIndex + X_STEPS[direction];
+				final int predyIndex = yIndex + Y_STEPS[direction];
+
+				if (predxIndex >= 0 && predxIndex < xSize && predyIndex >= 0 && predyIndex < grid.getySize()) {
+					final int predCell = predyIndex * xSize + predxIndex;
+
+					if (distances[predCell] == UNREACHABLE) {
+						distances[predCell] = distances[cell] + 1;
+						queue[tail++] = predCell;
+					}
+				}
+			}
+		}
+
+		return distances;
+	}
+
+	private static List<Position> descend(final NavigationGrid<Void, Position> grid,
+										  final int[] distances,
+										  final int sourceCell,
+										  final int targetCell) {
+		final List<Position> positions = new ArrayList<>();
+
+		if (distances[sourceCell] == UNREACHABLE) {
+			return positions;
+		}
+
+		final int xSize = grid.getxSize();
+		int cell = sourceCell;
+
+		while (cell != targetCell) {
+			final int xIndex = cell % xSize;
+			final int yIndex = cell / xSize;
+			int nextCell = -1;
+
+			for (int direction = 0; direction < X_STEPS.length && nextCell < 0; direction++) {
+				final int succxIndex = xIndex + X_STEPS[direction];
+				final int succyIndex = yIndex + Y_STEPS[direction];
+
+				if (isFree(grid, succxIndex, succyIndex)) {
+					final int succCell = succyIndex * xSize + succxIndex;
+
+					if (distances[succCell] == distances[cell] - 1) {
+						nextCell = succCell;
+					}
+				}
+			}
+
+			assert nextCell >= 0 : "A cell at a finite distance should have a free neighbour closer to the target!";
+
+			positions.add(grid.getVertex(nextCell % xSize, nextCell / xSize));
+			cell = nextCell;
+		}
+
+		return positions;
+	}
+}
@@ -1,6 +1,13 @@
 package fr.tp.inf112.projects.robotsim.model.path;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 import fr.tp.inf112.projects.robotsim.model.Component;
 import fr.tp.inf112.projects.robotsim.model.Position;
@@ -9,4 +16,30 @@ public interface FactoryPathFinder {
 
 	List<Position> findPath(Component sourceComponent,
 							Component targetComponent);
+
+	default CompletableFuture<List<List<Position>>> findPaths(final List<PathQuery> queries) {
+		return findPaths(queries, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Finds the paths of many queries in parallel on the given executor. Identical
+	 * queries are only searched once.
+	 *
+	 * @return a future completed with the unmodifiable paths of the queries, in
+	 * the order of the queries.
+	 */
+	default CompletableFuture<List<List<Position>>> findPaths(final List<PathQuery> queries,
+															  final Executor executor) {
+		final Map<PathQuery, CompletableFuture<List<Position>>> searches = new HashMap<>();
+		final List<CompletableFuture<List<Position>>> paths = new ArrayList<>(queries.size());
+
+		for (final PathQuery query : queries) {
+			paths.add(searches.computeIfAbsent(query, key -> CompletableFuture.supplyAsync(() -> {
+				return Collections.unmodifiableList(findPath(key.sourceComponent(), key.targetComponent()));
+			}, executor)));
+		}
+
+		return CompletableFuture.allOf(paths.toArray(new CompletableFuture<?>[0]))
+								.thenApply(done -> paths.stream().map(CompletableFuture::join).toList());
+	}
 }
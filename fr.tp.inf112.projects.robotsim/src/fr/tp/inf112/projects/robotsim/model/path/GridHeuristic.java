@@ -0,0 +1,39 @@
+package fr.tp.inf112.projects.robotsim.model.path;
+
+/**
+ * Admissible estimates of the cost between two cells of a grid, in tenths of
+ * the cost of a straight step so that diagonal steps can be costed with
+ * integers.
+ */
+public enum GridHeuristic {
+
+	/** Exact distance on a 4-connected grid without obstacles. */
+	MANHATTAN {
+		@Override
+		public int estimate(final int xDistance,
+							final int yDistance) {
+			return STRAIGHT_COST * (xDistance + yDistance);
+		}
+	},
+
+	/** Exact distance on an 8-connected grid without obstacles; also admissible on 4-connected grids. */
+	OCTILE {
+		@Override
+		public int estimate(final int xDistance,
+							final int yDistance) {
+			return STRAIGHT_COST * Math.max(xDistance, yDistance)
+				   + (DIAGONAL_COST - STRAIGHT_COST) * Math.min(xDistance, yDistance);
+		}
+	};
+
+	public static final int STRAIGHT_COST = 10;
+
+	public static final int DIAGONAL_COST = 14;
+
+	/**
+	 * @param xDistance absolute difference of the x indexes of the cells.
+	 * @param yDistance absolute difference of the y indexes of the cells.
+	 */
+	public abstract int estimate(int xDistance,
+								 int yDistance);
+}
@@ -0,0 +1,241 @@
+package fr.tp.inf112.projects.robotsim.model.path;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+import fr.tp.inf112.projects.robotsim.model.Factory;
+import fr.tp.inf112.projects.robotsim.model.Position;
+
+/**
+ * Breadth first finder for large factories, numbering the cells of the grid
+ * rather than creating a vertex per cell.
+ *
+ * The grid graph is a {@link GridLatticeGraph}, which computes the edges of a
+ * cell from the free cells around it rather than storing them, and the vertex
+ * of a cell is its number, so that the grid only holds a bit and a byte per
+ * cell. As all the edges weigh one, the breadth first search finds the same
+ * shortest paths as Dijkstra, without a priority queue. Its arrays are reused
+ * by the next searches of the same thread.
+ */
+public class GridLatticeBfsFactoryPathFinder extends AbstractGraphFactoryPathFinder<GridLatticeGraph, Integer> {
+
+	private static final long serialVersionUID = 5270916634874211039L;
+
+	/**
+	 * Arrays of the searches of each thread, holding three integers per cell of
+	 * the largest grid searched by the thread.
+	 */
+	private static final ThreadLocal<SearchArrays> SEARCH_ARRAYS = ThreadLocal.withInitial(SearchArrays::new);
+
+	/**
+	 * Arrays of a breadth first search over the cells of a grid. A cell is reached
+	 * by the current search when its stamp is the one of the search, so that the
+	 * arrays need not be cleared between searches.
+	 */
+	private static final class SearchArrays {
+
+		private int[] stamps = new int[0];
+
+		private int[] parents = new int[0];
+
+		private int[] openCells = new int[0];
+
+		private int stamp;
+
+		private void start(final int cellCount) {
+			if (stamps.length < cellCount) {
+				stamps = new int[cellCount];
+				parents = new int[cellCount];
+				openCells = new int[cellCount];
+				stamp = 0;
+			}
+
+			stamp++;
+
+			// Stamps wrapped around, so that some cells may look reached
+			if (stamp == 0) {
+				Arrays.fill(stamps, 0);
+				stamp = 1;
+			}
+		}
+
+		private boolean isReached(final int cell) {
+			return stamps[cell] == stamp;
+		}
+
+		private void reach(final int cell,
+						   final int parentCell) {
+			stamps[cell] = stamp;
+			parents[cell] = parentCell;
+		}
+	}
+
+	public GridLatticeBfsFactoryPathFinder(final Factory factoryModel,
+										   final int resolution) {
+		super(factoryModel, resolution);
+	}
+
+	@Override
+	protected Class<?> getGridType() {
+		return GridLatticeBfsFactoryPathFinder.class;
+	}
+
+	@Override
+	protected List<Position> findPath(final GridLatticeGraph graph,
+									  final Integer sourceVertex,
+									  final Integer targetVertex) {
+		if (sourceVertex.equals(targetVertex)) {
+			return new ArrayList<>();
+		}
+
+		final SearchArrays search = search(graph, sourceVertex, new int[] { targetVertex });
+
+		return toPositions(graph, search, targetVertex);
+	}
+
+	/**
+	 * Builds a single search tree from the source vertex, grown until all the
+	 * target vertexes are reached.
+	 */
+	@Override
+	Map<Integer, List<Position>> findPaths(final NavigationGrid<GridLatticeGraph, Integer> grid,
+										   final Integer sourceVertex,
+										   final Collection<Integer> targetVertexes) {
+		final GridLatticeGraph graph = grid.getGraph();
+		final int[] targetCells = targetVertexes.stream().filter(targetVertex -> !targetVertex.equals(sourceVertex)).mapToInt(Integer::intValue).toArray();
+		final SearchArrays search = search(graph, sourceVertex, targetCells);
+		final Map<Integer, List<Position>> paths = new HashMap<>();
+
+		for (final Integer targetVertex : targetVertexes) {
+			final List<Position> path = targetVertex.equals(sourceVertex) ? new ArrayList<>() : toPositions(graph, search, targetVertex);
+			paths.put(targetVertex, Collections.unmodifiableList(path));
+		}
+
+		return paths;
+	}
+
+	/**
+	 * Grows the search tree of the source cell until all the target cells are
+	 * reached.
+	 *
+	 * @return the arrays of the search of the current thread, holding the parent
+	 * of each reached cell, the parent of the source cell being itself.
+	 */
+	private static SearchArrays search(final GridLatticeGraph graph,
+									   final int sourceCell,
+									   final int[] targetCells) {
+		final SearchArrays search = SEARCH_ARRAYS.get();
+		search.start(graph.getCellCount());
+
+		final int[] openCells = search.openCells;
+		final int[] successors = new int[4];
+		final int[] freeTargetCells = Arrays.stream(targetCells).filter(graph::isFree).sorted().distinct().toArray();
+		int head = 0;
+		int tail = 0;
+		int remainingTargetCount = freeTargetCells.length;
+
+		search.reach(sourceCell, sourceCell);
+		openCells[tail++] = sourceCell;
+
+		while (head < tail && remainingTargetCount > 0) {
+			final int cell = openCells[head++];
+			final int successorCount = graph.getSuccessors(cell, successors);
+
+			for (int index = 0; index < successorCount; index++) {
+				final int succCell = successors[index];
+
+				if (!search.isReached(succCell)) {
+					search.reach(succCell, cell);
+					openCells[tail++] = succCell;
+
+					if (Arrays.binarySearch(freeTargetCells, succCell) >= 0) {
+						remainingTargetCount--;
+					}
+				}
+			}
+		}
+
+		return search;
+	}
+
+	/**
+	 * @return the positions of the cells of the path, excluding the source one, or
+	 * an empty list if the target cell was not reached.
+	 */
+	private List<Position> toPositions(final GridLatticeGraph graph,
+									   final SearchArrays search,
+									   final int targetCell) {
+		final List<Position> positions = new ArrayList<>();
+
+		if (!search.isReached(targetCell)) {
+			return positions;
+		}
+
+		for (int cell = targetCell; search.parents[cell] != cell; cell = search.parents[cell]) {
+			positions.add(new Position(graph.getxIndex(cell) * getResolution(), graph.getyIndex(cell) * getResolution()));
+		}
+
+		Collections.reverse(positions);
+
+		return positions;
+	}
+
+	@Override
+	protected GridLatticeGraph newGraph() {
+		return new GridLatticeGraph(getFactoryModel().getWidth() / getResolution(), getFactoryModel().getHeight() / getResolution());
+	}
+
+	/**
+	 * The vertex of a cell is its number, computed when looked up rather than
+	 * stored by the grid.
+	 */
+	@Override
+	protected IntFunction<Integer> getCellVertexes() {
+		return Integer::valueOf;
+	}
+
+	@Override
+	protected Integer addVertex(final GridLatticeGraph graph,
+								final int xCoordinate,
+								final int yCoordinate) {
+		return graph.getCell(xCoordinate / getResolution(), yCoordinate / getResolution());
+	}
+
+	/**
+	 * The graph links every cell to its free neighbours, so an edge is added by
+	 * freeing its target cell, which adds the edges from all its neighbours.
+	 */
+	@Override
+	protected boolean addEdge(final GridLatticeGraph graph,
+							  final Integer vertex1,
+							  final Integer vertex2) {
+		return graph.setFree(vertex2, true);
+	}
+
+	@Override
+	protected boolean removeEdge(final GridLatticeGraph graph,
+								 final Integer vertex1,
+								 final Integer vertex2) {
+		return graph.setFree(vertex2, false);
+	}
+
+	/**
+	 * Cells are numbered across the current width of the factory, as when the
+	 * grid is built.
+	 */
+	@Override
+	protected int getxCoordinate(final Integer vertex) {
+		return vertex % (getFactoryModel().getWidth() / getResolution()) * getResolution();
+	}
+
+	@Override
+	protected int getyCoordinate(final Integer vertex) {
+		return vertex / (getFactoryModel().getWidth() / getResolution()) * getResolution();
+	}
+}
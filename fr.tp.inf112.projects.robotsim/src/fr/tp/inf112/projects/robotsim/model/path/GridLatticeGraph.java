@@ -0,0 +1,103 @@
+package fr.tp.inf112.projects.robotsim.model.path;
+
+import java.util.BitSet;
+
+/**
+ * Graph of the cells of a grid, each cell {@code yIndex * xSize + xIndex} being
+ * linked to its four neighbours when they are free.
+ *
+ * Rather than storing its edges, the graph computes the successors of a cell
+ * from the free cells around it. It thus only holds one bit per cell and can
+ * be repaired in place.
+ */
+final class GridLatticeGraph {
+
+	private static final int DIRECTION_COUNT = 4;
+
+	private static final int[] X_STEPS = { 0, 1, 0, -1 };
+
+	private static final int[] Y_STEPS = { -1, 0, 1, 0 };
+
+	private final int xSize;
+
+	private final int ySize;
+
+	/** Cells having their incoming edges. */
+	private final BitSet freeCells;
+
+	GridLatticeGraph(final int xSize,
+					 final int ySize) {
+		if ((long) xSize * ySize > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Too many cells to number them: " + xSize + "x" + ySize);
+		}
+
+		this.xSize = xSize;
+		this.ySize = ySize;
+		this.freeCells = new BitSet(xSize * ySize);
+	}
+
+	int getCellCount() {
+		return xSize * ySize;
+	}
+
+	int getxIndex(final int cell) {
+		return cell % xSize;
+	}
+
+	int getyIndex(final int cell) {
+		return cell / xSize;
+	}
+
+	int getCell(final int xIndex,
+				final int yIndex) {
+		return yIndex * xSize + xIndex;
+	}
+
+	boolean isFree(final int cell) {
+		return freeCells.get(cell);
+	}
+
+	/**
+	 * Adds or removes the edges leading to the given cell.
+	 *
+	 * @return {@code true} if the cell changed.
+	 */
+	boolean setFree(final int cell,
+					final boolean free) {
+		if (freeCells.get(cell) == free) {
+			return false;
+		}
+
+		freeCells.set(cell, free);
+
+		return true;
+	}
+
+	/**
+	 * Gives the cells the given cell has an edge to.
+	 *
+	 * @param successors receives the successor cells, and holds at least four.
+	 * @return the number of successor cells.
+	 */
+	int getSuccessors(final int cell,
+					  final int[] successors) {
+		final int xIndex = cell % xSize;
+		final int yIndex = cell / xSize;
+		int size = 0;
+
+		for (int direction = 0; direction < DIRECTION_COUNT; direction++) {
+			final int succxIndex = xIndex + X_STEPS[direction];
+			final int succyIndex = yIndex + Y_STEPS[direction];
+
+			if (succxIndex >= 0 && succxIndex < xSize && succyIndex >= 0 && succyIndex < ySize) {
+				final int succCell = succyIndex * xSize + succxIndex;
+
+				if (freeCells.get(succCell)) {
+					successors[size++] = succCell;
+				}
+			}
+		}
+
+		return size;
+	}
+}
@@ -0,0 +1,947 @@
+package fr.tp.inf112.projects.robotsim.model.path;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import fr.tp.inf112.projects.robotsim.model.Component;
+import fr.tp.inf112.projects.robotsim.model.Door;
+import fr.tp.inf112.projects.robotsim.model.Factory;
+import fr.tp.inf112.projects.robotsim.model.Position;
+import fr.tp.inf112.projects.robotsim.model.Room;
+
+/**
+ * Hierarchical path finder in the spirit of HPA*, abstracting the factory with
+ * its rooms and doors. The free cells of the grid are split into regions, the
+ * connected areas left once the cells of every door are blocked: typically the
+ * inside of each room and the space between the rooms. Each door is a gateway
+ * between the regions around it, and the gateways bordering the same region
+ * are linked by abstract edges weighted with their distance in that region.
+ * As in HPA*, large regions such as the aisles between the rooms are further
+ * split into square clusters of cells, the free cells of the cluster borders
+ * being always open gateways.
+ *
+ * A path is first planned on the abstract graph, from the gateways reachable
+ * from the source to the ones reaching the target, then refined by a single
+ * grid search restricted to the regions along the route. Opening or closing a
+ * door only toggles its gateway, while any other layout change rebuilds the
+ * abstract graph. Paths are not always the shortest ones, since the route is
+ * planned with approximate distances between gateways. A single instance should
+ * be shared by the robots of a factory so that they share their abstract graph.
+ */
+public class HierarchicalFactoryPathFinder extends AbstractGridSearchFactoryPathFinder {
+
+	private static final long serialVersionUID = -2364910728465910395L;
+
+	/** Region of the cells overlapping an obstacle or a door. */
+	private static final int NO_REGION = -1;
+
+	/** Gateway of the cells not overlapping a door. */
+	private static final int NO_GATEWAY = -1;
+
+	/** Cost of the gateways and goal of the searches that cannot be reached. */
+	private static final int UNREACHED = Integer.MAX_VALUE;
+
+	/** Default number of cells on each side of a cluster. */
+	public static final int DEFAULT_CLUSTER_SIZE = 32;
+
+	private final int clusterSize;
+
+	@com.fasterxml.jackson.annotation.JsonIgnore
+	private transient volatile AbstractGraph abstractGraph;
+
+	@com.fasterxml.jackson.annotation.JsonIgnore
+	private transient volatile ThreadLocal<SearchSpace> searchSpaces;
+
+	/**
+	 * A door of the factory or a segment of a cluster border in the abstract
+	 * graph, with the edges to the other gateways of its regions.
+	 */
+	private static final class Gateway {
+
+		/** Door of the gateway, or {@code null} for a cluster border. */
+		private final Door door;
+
+		/** Cells overlapping the door or on the cluster border. */
+		private final int[] cells;
+
+		private final List<Edge> edges;
+
+		/** Regions adjacent to the cells of the gateway. */
+		private int[] regions;
+
+		private volatile boolean open;
+
+		private Gateway(final Door door,
+						final int[] cells) {
+			this.door = door;
+			this.cells = cells;
+			this.edges = new ArrayList<>();
+			this.regions = new int[0];
+		}
+
+		private boolean isBorder() {
+			return door == null;
+		}
+
+		/**
+		 * @return the cell measuring the distances of a cluster border.
+		 */
+		private int getTransitionCell() {
+			return cells[cells.length / 2];
+		}
+
+		/**
+		 * @return the cells the distances to other gateways are measured from.
+		 */
+		private int[] getSourceCells() {
+			return isBorder() ? new int[] { getTransitionCell() } : cells;
+		}
+	}
+
+	/**
+	 * Abstract edge to a gateway bordering the same region, with the number of
+	 * steps between the two gateways in that region.
+	 */
+	private record Edge(int gateway, int region, int cost) {
+	}
+
+	/**
+	 * Rooms and doors abstraction of one grid, up to date with one layout of the
+	 * factory.
+	 */
+	private static final class AbstractGraph {
+
+		private final NavigationGrid<Void, Position> grid;
+
+		private volatile long layoutVersion;
+
+		/** Region of each cell, or {@link #NO_REGION}. */
+		private final int[] cellRegions;
+
+		/** Gateway of each cell, or {@link #NO_GATEWAY}. */
+		private final int[] cellGateways;
+
+		private final List<Gateway> gateways;
+
+		/** Gateways adjacent to each region. */
+		private int[][] regionGateways;
+
+		private AbstractGraph(final NavigationGrid<Void, Position> grid) {
+			this.grid = grid;
+			this.layoutVersion = grid.getLayoutVersion();
+			this.cellRegions = new int[grid.getxSize() * grid.getySize()];
+			this.cellGateways = new int[cellRegions.length];
+			this.gateways = new ArrayList<>();
+		}
+	}
+
+	/**
+	 * Scratch arrays of the grid searches of a thread. A cell holds a cost and a
+	 * parent only if it is marked with the current search.
+	 */
+	private static final class SearchSpace {
+
+		private final int[] marks;
+
+		private final int[] costs;
+
+		private final int[] parents;
+
+		private final int[] queue;
+
+		private int mark;
+
+		private SearchSpace(final int cellCount) {
+			marks = new int[cellCount];
+			costs = new int[cellCount];
+			parents = new int[cellCount];
+			queue = new int[cellCount];
+		}
+
+		private void clear() {
+			if (++mark == Integer.MAX_VALUE) {
+				Arrays.fill(marks, 0);
+				mark = 1;
+			}
+		}
+
+		private boolean isReached(final int cell) {
+			return marks[cell] == mark;
+		}
+
+		private int getCost(final int cell) {
+			return isReached(cell) ? costs[cell] : UNREACHED;
+		}
+
+		private void reach(final int cell,
+						   final int cost,
+						   final int parentCell) {
+			marks[cell] = mark;
+			costs[cell] = cost;
+			parents[cell] = parentCell;
+		}
+	}
+
+	public HierarchicalFactoryPathFinder(final Factory factoryModel,
+										 final int resolution) {
+		this(factoryModel, resolution, DEFAULT_CLUSTER_SIZE);
+	}
+
+	public HierarchicalFactoryPathFinder(final Factory factoryModel,
+										 final int resolution,
+										 final int clusterSize) {
+		super(factoryModel, resolution);
+
+		if (clusterSize < 2) {
+			throw new IllegalArgumentException("A cluster must have at least two cells on each side: " + clusterSize);
+		}
+
+		this.clusterSize = clusterSize;
+	}
+
+	public int getClusterSize() {
+		return clusterSize;
+	}
+
+	/**
+	 * @return the number of doors and cluster border segments in the abstract
+	 * graph of the current layout.
+	 */
+	public int getGatewayCount() {
+		final AbstractGraph currentGraph = abstractGraph;
+
+		return currentGraph == null ? 0 : currentGraph.gateways.size();
+	}
+
+	/**
+	 * @return the number of regions in the abstract graph of the current layout.
+	 */
+	public int getRegionCount() {
+		final AbstractGraph currentGraph = abstractGraph;
+
+		return currentGraph == null ? 0 : currentGraph.regionGateways.length;
+	}
+
+	/**
+	 * Each query plans its own route on the abstract graph rather than searching
+	 * a tree of the whole grid.
+	 */
+	@Override
+	protected boolean sharesSearchTrees() {
+		return false;
+	}
+
+	@Override
+	protected List<Position> findPath(final NavigationGrid<Void, Position> grid,
+									  final int sourceCell,
+									  final int targetCell) {
+		final AbstractGraph graph = getAbstractGraph(grid);
+		final List<Position> path = new ArrayList<>();
+		final int xSize = grid.getxSize();
+
+		// No path enters an obstacle
+		if (!isFree(grid, targetCell % xSize, targetCell / xSize)) {
+			return path;
+		}
+
+		final int sourceGateway = graph.cellGateways[sourceCell];
+		final int targetGateway = graph.cellGateways[targetCell];
+		final int[] sourceRegions = getRegions(graph, sourceCell);
+		final int[] targetRegions = getRegions(graph, targetCell);
+
+		final boolean[] regions = new boolean[graph.regionGateways.length];
+		final boolean[] gateways = new boolean[graph.gateways.size()];
+		mark(regions, sourceRegions);
+		mark(regions, targetRegions);
+		mark(gateways, sourceGateway);
+		mark(gateways, targetGateway);
+
+		if (intersects(sourceRegions, targetRegions) && searchCorridor(graph, sourceCell, targetCell, regions, gateways, path)) {
+			return path;
+		}
+
+		final List<Edge> route = planRoute(graph,
+										   sourceGateway,
+										   measureGateways(graph, new int[] { sourceCell }, sourceRegions, sourceGateway),
+										   measureGateways(graph, new int[] { targetCell }, targetRegions, targetGateway));
+
+		if (route == null) {
+			return path;
+		}
+
+		// Refines the route with a single search of its regions, so that the path does not zigzag between gateways
+		for (final Edge hop : route) {
+			mark(gateways, hop.gateway());
+
+			if (hop.region() != NO_REGION) {
+				regions[hop.region()] = true;
+			}
+		}
+
+		// The cluster borders of the regions may have been walked along when measuring the route
+		for (int region = 0; region < regions.length; region++) {
+			for (final int gateway : regions[region] ? graph.regionGateways[region] : new int[0]) {
+				gateways[gateway] |= graph.gateways.get(gateway).isBorder();
+			}
+		}
+
+		if (!searchCorridor(graph, sourceCell, targetCell, regions, gateways, path)) {
+			return new ArrayList<>();
+		}
+
+		return path;
+	}
+
+	private static void mark(final boolean[] marks,
+							 final int... indexes) {
+		for (final int index : indexes) {
+			if (index >= 0) {
+				marks[index] = true;
+			}
+		}
+	}
+
+	/**
+	 * @return the abstract graph of the given grid, built or updated for the
+	 * current layout while the caller holds the read lock of the grid.
+	 */
+	private AbstractGraph getAbstractGraph(final NavigationGrid<Void, Position> grid) {
+		AbstractGraph currentGraph = abstractGraph;
+
+		if (currentGraph == null || currentGraph.grid != grid || currentGraph.layoutVersion != grid.getLayoutVersion()) {
+			synchronized (this) {
+				currentGraph = abstractGraph;
+
+				if (currentGraph == null || currentGraph.grid != grid || !updateGateways(currentGraph)) {
+					currentGraph = buildAbstractGraph(grid);
+					abstractGraph = currentGraph;
+				}
+			}
+		}
+
+		return currentGraph;
+	}
+
+	/**
+	 * Toggles the gateways of the doors opened or closed since the abstract graph
+	 * was last updated.
+	 *
+	 * @return {@code false} if another layout change happened, which requires
+	 * the abstract graph to be rebuilt.
+	 */
+	private boolean updateGateways(final AbstractGraph graph) {
+		final long layoutVersion = graph.grid.getLayoutVersion();
+
+		if (graph.layoutVersion == layoutVersion) {
+			return true;
+		}
+
+		final List<NavigationGraphCache.LayoutChange> changes = NavigationGraphCache.getLayoutChangesSince(getFactoryModel(),
+																										   graph.layoutVersion);
+
+		if (changes == null) {
+			return false;
+		}
+
+		final List<Gateway> changedGateways = new ArrayList<>();
+
+		for (final NavigationGraphCache.LayoutChange change : changes) {
+			// Later changes are not repaired in the grid yet
+			if (change.layoutVersion() <= layoutVersion) {
+				final Gateway gateway = getGateway(graph, change);
+
+				if (gateway == null) {
+					return false;
+				}
+
+				changedGateways.add(gateway);
+			}
+		}
+
+		for (final Gateway gateway : changedGateways) {
+			gateway.open = isOpen(graph.grid, gateway);
+		}
+
+		graph.layoutVersion = layoutVersion;
+
+		return true;
+	}
+
+	/**
+	 * @return the gateway of the door whose change is the given one, or
+	 * {@code null} if the change is not the one of a known door.
+	 */
+	private static Gateway getGateway(final AbstractGraph graph,
+									  final NavigationGraphCache.LayoutChange change) {
+		for (final Gateway gateway : graph.gateways) {
+			final Door door = gateway.door;
+
+			if (door != null && door.getxCoordinate() == change.xCoordinate() && door.getyCoordinate() == change.yCoordinate() &&
+				door.getWidth() == change.width() && door.getHeight() == change.height()) {
+				return gateway;
+			}
+		}
+
+		return null;
+	}
+
+	private static boolean isOpen(final NavigationGrid<Void, Position> grid,
+								  final Gateway gateway) {
+		for (final int cell : gateway.cells) {
+			if (isFree(grid, cell % grid.getxSize(), cell / grid.getxSize())) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private AbstractGraph buildAbstractGraph(final NavigationGrid<Void, Position> grid) {
+		final AbstractGraph graph = new AbstractGraph(grid);
+		Arrays.fill(graph.cellGateways, NO_GATEWAY);
+		Arrays.fill(graph.cellRegions, NO_REGION);
+
+		for (final Component component : getFactoryModel().getComponents()) {
+			if (component instanceof Room room) {
+				for (final Door door : room.getDoors()) {
+					addGateway(graph, door);
+				}
+			}
+		}
+
+		addClusterGateways(graph);
+
+		final int regionCount = labelRegions(graph);
+		final List<List<Integer>> regionGateways = new ArrayList<>(regionCount);
+
+		for (int region = 0; region < regionCount; region++) {
+			regionGateways.add(new ArrayList<>());
+		}
+
+		for (int gatewayIndex = 0; gatewayIndex < graph.gateways.size(); gatewayIndex++) {
+			final Gateway gateway = graph.gateways.get(gatewayIndex);
+			gateway.regions = getAdjacentRegions(graph, gateway.cells);
+			gateway.open = isOpen(grid, gateway);
+
+			for (final int region : gateway.regions) {
+				regionGateways.get(region).add(gatewayIndex);
+			}
+		}
+
+		graph.regionGateways = new int[regionCount][];
+
+		for (int region = 0; region < regionCount; region++) {
+			graph.regionGateways[region] = regionGateways.get(region).stream().mapToInt(Integer::intValue).toArray();
+		}
+
+		// Costs do not depend on the doors being open, so toggling a door keeps them
+		for (int gatewayIndex = 0; gatewayIndex < graph.gateways.size(); gatewayIndex++) {
+			final Gateway gateway = graph.gateways.get(gatewayIndex);
+
+			for (final int region : gateway.regions) {
+				final int[] costs = measureGateways(graph, gateway.getSourceCells(), new int[] { region }, gatewayIndex);
+
+				for (int succGateway = 0; succGateway < costs.length; succGateway++) {
+					if (succGateway != gatewayIndex && costs[succGateway] != UNREACHED) {
+						gateway.edges.add(new Edge(succGateway, region, costs[succGateway]));
+					}
+				}
+			}
+		}
+
+		return graph;
+	}
+
+	private void addGateway(final AbstractGraph graph,
+							final Door door) {
+		final NavigationGrid<Void, Position> grid = graph.grid;
+		final int resolution = getResolution();
+		final int minxIndex = Math.max(0, Math.floorDiv(door.getxCoordinate(), resolution));
+		final int minyIndex = Math.max(0, Math.floorDiv(door.getyCoordinate(), resolution));
+		final int maxxIndex = Math.min(grid.getxSize() - 1, Math.floorDiv(door.getxCoordinate() + door.getWidth(), resolution));
+		final int maxyIndex = Math.min(grid.getySize() - 1, Math.floorDiv(door.getyCoordinate() + door.getHeight(), resolution));
+		final List<Integer> cells = new ArrayList<>();
+
+		for (int yIndex = minyIndex; yIndex <= maxyIndex; yIndex++) {
+			for (int xIndex = minxIndex; xIndex <= maxxIndex; xIndex++) {
+				final int cell = yIndex * grid.getxSize() + xIndex;
+
+				if (graph.cellGateways[cell] == NO_GATEWAY &&
+					door.overlays(xIndex * resolution, yIndex * resolution, resolution, resolution)) {
+					graph.cellGateways[cell] = graph.gateways.size();
+					cells.add(cell);
+				}
+			}
+		}
+
+		if (!cells.isEmpty()) {
+			graph.gateways.add(new Gateway(door, cells.stream().mapToInt(Integer::intValue).toArray()));
+		}
+	}
+
+	/**
+	 * Makes a gateway of each run of free cells along the last row and the last
+	 * column of the clusters, within the side of one cluster. The runs of the
+	 * rows cross the ones of the columns. Cells next to a door are left out, so
+	 * that the doors always lead to regions.
+	 */
+	private void addClusterGateways(final AbstractGraph graph) {
+		final NavigationGrid<Void, Position> grid = graph.grid;
+		final int xSize = grid.getxSize();
+		final int ySize = grid.getySize();
+		final int doorCount = graph.gateways.size();
+
+		for (int yIndex = clusterSize - 1; yIndex < ySize - 1; yIndex += clusterSize) {
+			addClusterGateways(graph, yIndex * xSize, 1, xSize, doorCount);
+		}
+
+		for (int xIndex = clusterSize - 1; xIndex < xSize - 1; xIndex += clusterSize) {
+			addClusterGateways(graph, xIndex, xSize, ySize, doorCount);
+		}
+	}
+
+	private void addClusterGateways(final AbstractGraph graph,
+									final int firstCell,
+									final int cellStep,
+									final int cellCount,
+									final int doorCount) {
+		final int xSize = graph.grid.getxSize();
+		final List<Integer> cells = new ArrayList<>();
+
+		for (int index = 0; index <= cellCount; index++) {
+			final int cell = firstCell + index * cellStep;
+			final boolean border = index < cellCount && graph.cellGateways[cell] == NO_GATEWAY &&
+								   isFree(graph.grid, cell % xSize, cell / xSize) && !isNextToDoor(graph, cell, doorCount);
+
+			if (!cells.isEmpty() && (!border || index % clusterSize == 0)) {
+				graph.gateways.add(new Gateway(null, cells.stream().mapToInt(Integer::intValue).toArray()));
+				cells.clear();
+			}
+
+			if (border) {
+				graph.cellGateways[cell] = graph.gateways.size();
+				cells.add(cell);
+			}
+		}
+	}
+
+	private static boolean isNextToDoor(final AbstractGraph graph,
+										final int cell,
+										final int doorCount) {
+		final int xSize = graph.grid.getxSize();
+
+		for (int direction = 0; direction < X_STEPS.length; direction++) {
+			final int succxIndex = cell % xSize + X_STEPS[direction];
+			final int succyIndex = cell / xSize + Y_STEPS[direction];
+
+			if (succxIndex >= 0 && succxIndex < xSize && succyIndex >= 0 && succyIndex < graph.grid.getySize()) {
+				final int gateway = graph.cellGateways[succyIndex * xSize + succxIndex];
+
+				if (gateway != NO_GATEWAY && gateway < doorCount) {
+					return true;
+				}
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Labels the connected areas of free cells not overlapping a door.
+	 *
+	 * @return the number of regions.
+	 */
+	private int labelRegions(final AbstractGraph graph) {
+		final NavigationGrid<Void, Position> grid = graph.grid;
+		final int xSize = grid.getxSize();
+		final int[] queue = getSearchSpace(graph).queue;
+		int regionCount = 0;
+
+		for (int firstCell = 0; firstCell < graph.cellRegions.length; firstCell++) {
+			if (!isRegionCell(graph, firstCell)) {
+				continue;
+			}
+
+			int head = 0;
+			int tail = 0;
+			graph.cellRegions[firstCell] = regionCount;
+			queue[tail++] = firstCell;
+
+			while (head < tail) {
+				final int cell = queue[head++];
+
+				for (int direction = 0; direction < X_STEPS.length; direction++) {
+					final int succxIndex = cell % xSize + X_STEPS[direction];
+					final int succyIndex = cell / xSize + Y_STEPS[direction];
+
+					if (succxIndex >= 0 && succxIndex < xSize && succyIndex >= 0 && succyIndex < grid.getySize()) {
+						final int succCell = succyIndex * xSize + succxIndex;
+
+						if (isRegionCell(graph, succCell)) {
+							graph.cellRegions[succCell] = regionCount;
+							queue[tail++] = succCell;
+						}
+					}
+				}
+			}
+
+			regionCount++;
+		}
+
+		return regionCount;
+	}
+
+	private static boolean isRegionCell(final AbstractGraph graph,
+										final int cell) {
+		final int xSize = graph.grid.getxSize();
+
+		return graph.cellRegions[cell] == NO_REGION && graph.cellGateways[cell] == NO_GATEWAY &&
+			   isFree(graph.grid, cell % xSize, cell / xSize);
+	}
+
+	/**
+	 * @return the regions of the given cell, or the regions around it if it
+	 * overlaps a door or an obstacle.
+	 */
+	private static int[] getRegions(final AbstractGraph graph,
+									final int cell) {
+		if (graph.cellRegions[cell] != NO_REGION) {
+			return new int[] { graph.cellRegions[cell] };
+		}
+
+		if (graph.cellGateways[cell] != NO_GATEWAY) {
+			return graph.gateways.get(graph.cellGateways[cell]).regions;
+		}
+
+		return getAdjacentRegions(graph, new int[] { cell });
+	}
+
+	private static int[] getAdjacentRegions(final AbstractGraph graph,
+											final int[] cells) {
+		final int xSize = graph.grid.getxSize();
+		int[] regions = new int[0];
+
+		for (final int cell : cells) {
+			for (int direction = 0; direction < X_STEPS.length; direction++) {
+				final int succxIndex = cell % xSize + X_STEPS[direction];
+				final int succyIndex = cell / xSize + Y_STEPS[direction];
+
+				if (succxIndex >= 0 && succxIndex < xSize && succyIndex >= 0 && succyIndex < graph.grid.getySize()) {
+					final int region = graph.cellRegions[succyIndex * xSize + succxIndex];
+
+					if (region != NO_REGION && !contains(regions, region)) {
+						regions = union(regions, new int[] { region });
+					}
+				}
+			}
+		}
+
+		return regions;
+	}
+
+	/**
+	 * Breadth first search from the given cells through the given regions and the
+	 * cells of the given gateway. The search goes along the cluster borders of the
+	 * regions, measuring the steps to their transition cell, but stops at the
+	 * doors, whether they are open or not, measuring the steps to their nearest
+	 * cell. Doors being short, the route hardly depends on their cell it goes
+	 * through.
+	 *
+	 * @return the number of steps to each gateway, or {@link #UNREACHED}.
+	 */
+	private int[] measureGateways(final AbstractGraph graph,
+								  final int[] sourceCells,
+								  final int[] regions,
+								  final int sourceGateway) {
+		final SearchSpace space = getSearchSpace(graph);
+		final int xSize = graph.grid.getxSize();
+		final int[] costs = new int[graph.gateways.size()];
+		final boolean[] adjacentGateways = new boolean[graph.gateways.size()];
+		Arrays.fill(costs, UNREACHED);
+		space.clear();
+
+		int head = 0;
+		int tail = 0;
+		int remainingGatewayCount = 0;
+
+		for (final int region : regions) {
+			for (final int gateway : graph.regionGateways[region]) {
+				if (!adjacentGateways[gateway]) {
+					adjacentGateways[gateway] = true;
+					remainingGatewayCount++;
+				}
+			}
+		}
+
+		for (final int sourceCell : sourceCells) {
+			space.reach(sourceCell, 0, NO_PARENT);
+			space.queue[tail++] = sourceCell;
+			remainingGatewayCount -= measure(graph, costs, sourceCell, 0);
+		}
+
+		while (head < tail && remainingGatewayCount > 0) {
+			final int cell = space.queue[head++];
+			final int cost = space.costs[cell];
+
+			for (int direction = 0; direction < X_STEPS.length; direction++) {
+				final int succxIndex = cell % xSize + X_STEPS[direction];
+				final int succyIndex = cell / xSize + Y_STEPS[direction];
+
+				if (succxIndex < 0 || succxIndex >= xSize || succyIndex < 0 || succyIndex >= graph.grid.getySize()) {
+					continue;
+				}
+
+				final int succCell = succyIndex * xSize + succxIndex;
+
+				if (space.isReached(succCell)) {
+					continue;
+				}
+
+				final int gateway = graph.cellGateways[succCell];
+
+				if (gateway == NO_GATEWAY ? contains(regions, graph.cellRegions[succCell]) :
+					gateway == sourceGateway || adjacentGateways[gateway]) {
+					space.reach(succCell, cost + 1, cell);
+					remainingGatewayCount -= measure(graph, costs, succCell, cost + 1);
+
+					if (gateway == NO_GATEWAY || gateway == sourceGateway || graph.gateways.get(gateway).isBorder()) {
+						space.queue[tail++] = succCell;
+					}
+				}
+			}
+		}
+
+		return costs;
+	}
+
+	/**
+	 * Records the cost of the gateway of the given cell if the cell is its first
+	 * reached door cell or its transition cell.
+	 *
+	 * @return the number of gateways measured, 0 or 1.
+	 */
+	private static int measure(final AbstractGraph graph,
+							   final int[] costs,
+							   final int cell,
+							   final int cost) {
+		final int gateway = graph.cellGateways[cell];
+
+		if (gateway == NO_GATEWAY || costs[gateway] != UNREACHED) {
+			return 0;
+		}
+
+		if (graph.gateways.get(gateway).isBorder() && graph.gateways.get(gateway).getTransitionCell() != cell) {
+			return 0;
+		}
+
+		costs[gateway] = cost;
+
+		return 1;
+	}
+
+	/**
+	 * Dijkstra search of the abstract graph, from the gateways reachable from the
+	 * source to the ones reaching the target, through the open gateways.
+	 *
+	 * @return the hops of the route, each one being the edge reaching a gateway,
+	 * the first one with no region, or {@code null} if there is no route.
+	 */
+	private static List<Edge> planRoute(final AbstractGraph graph,
+										final int sourceGateway,
+										final int[] sourceCosts,
+										final int[] targetCosts) {
+		final int gatewayCount = graph.gateways.size();
+		final int target = gatewayCount;
+		final int[] costs = new int[gatewayCount + 1];
+		final Edge[] hops = new Edge[gatewayCount + 1];
+		final int[] parents = new int[gatewayCount + 1];
+		final PriorityQueue<Long> openGateways = new PriorityQueue<>();
+		Arrays.fill(costs, UNREACHED);
+
+		for (int gateway = 0; gateway < gatewayCount; gateway++) {
+			// A component standing in a doorway may leave it even if the door closed
+			if (sourceCosts[gateway] != UNREACHED && (graph.gateways.get(gateway).open || gateway == sourceGateway)) {
+				costs[gateway] = sourceCosts[gateway];
+				hops[gateway] = new Edge(gateway, NO_REGION, sourceCosts[gateway]);
+				parents[gateway] = NO_PARENT;
+				openGateways.add(encode(costs[gateway], gateway));
+			}
+		}
+
+		while (!openGateways.isEmpty()) {
+			final long openGateway = openGateways.poll();
+			final int gateway = (int) openGateway;
+
+			if (gateway == target) {
+				final List<Edge> route = new ArrayList<>();
+
+				for (int hop = parents[target]; hop != NO_PARENT; hop = parents[hop]) {
+					route.add(hops[hop]);
+				}
+
+				Collections.reverse(route);
+
+				return route;
+			}
+
+			if ((int) (openGateway >>> 32) != costs[gateway]) {
+				continue;
+			}
+
+			if (targetCosts[gateway] != UNREACHED && costs[gateway] + targetCosts[gateway] < costs[target]) {
+				costs[target] = costs[gateway] + targetCosts[gateway];
+				parents[target] = gateway;
+				openGateways.add(encode(costs[target], target));
+			}
+
+			for (final Edge edge : graph.gateways.get(gateway).edges) {
+				final int succCost = costs[gateway] + edge.cost();
+
+				if (graph.gateways.get(edge.gateway()).open && succCost < costs[edge.gateway()]) {
+					costs[edge.gateway()] = succCost;
+					hops[edge.gateway()] = edge;
+					parents[edge.gateway()] = gateway;
+					openGateways.add(encode(succCost, edge.gateway()));
+				}
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * A* search of the grid from the source cell to the target cell, only
+	 * entering the free cells of the given regions and gateways. The positions of
+	 * the path found are added to the path.
+	 *
+	 * @return {@code true} if the target was reached.
+	 */
+	private boolean searchCorridor(final AbstractGraph graph,
+								   final int sourceCell,
+								   final int targetCell,
+								   final boolean[] regions,
+								   final boolean[] gateways,
+								   final List<Position> path) {
+		final NavigationGrid<Void, Position> grid = graph.grid;
+		final SearchSpace space = getSearchSpace(graph);
+		final int xSize = grid.getxSize();
+		final int targetxIndex = targetCell % xSize;
+		final int targetyIndex = targetCell / xSize;
+		final PriorityQueue<Long> openCells = new PriorityQueue<>();
+		space.clear();
+		space.reach(sourceCell, 0, NO_PARENT);
+		openCells.add(encode(estimate(sourceCell, xSize, targetxIndex, targetyIndex), sourceCell));
+
+		while (!openCells.isEmpty()) {
+			final long openCell = openCells.poll();
+			final int cell = (int) openCell;
+
+			if (cell == targetCell) {
+				path.addAll(toPositions(grid, space.parents, cell));
+
+				return true;
+			}
+
+			final int cost = space.costs[cell];
+
+			if ((int) (openCell >>> 32) != cost + estimate(cell, xSize, targetxIndex, targetyIndex)) {
+				continue;
+			}
+
+			for (int direction = 0; direction < X_STEPS.length; direction++) {
+				final int succxIndex = cell % xSize + X_STEPS[direction];
+				final int succyIndex = cell / xSize + Y_STEPS[direction];
+
+				if (!isFree(grid, succxIndex, succyIndex)) {
+					continue;
+				}
+
+				final int succCell = succyIndex * xSize + succxIndex;
+				final int gateway = graph.cellGateways[succCell];
+				final boolean allowed = gateway == NO_GATEWAY ? regions[graph.cellRegions[succCell]] : gateways[gateway];
+
+				if (allowed && cost + 1 < space.getCost(succCell)) {
+					space.reach(succCell, cost + 1, cell);
+					openCells.add(encode(cost + 1 + estimate(succCell, xSize, targetxIndex, targetyIndex), succCell));
+				}
+			}
+		}
+
+		return false;
+	}
+
+	private static int estimate(final int cell,
+								final int xSize,
+								final int targetxIndex,
+								final int targetyIndex) {
+		return Math.abs(cell % xSize - targetxIndex) + Math.abs(cell / xSize - targetyIndex);
+	}
+
+	private static long encode(final int cost,
+							   final int index) {
+		return (long) cost << 32 | index;
+	}
+
+	private SearchSpace getSearchSpace(final AbstractGraph graph) {
+		ThreadLocal<SearchSpace> currentSearchSpaces = searchSpaces;
+
+		if (currentSearchSpaces == null) {
+			synchronized (this) {
+				currentSearchSpaces = searchSpaces;
+
+				if (currentSearchSpaces == null) {
+					currentSearchSpaces = new ThreadLocal<>();
+					searchSpaces = currentSearchSpaces;
+				}
+			}
+		}
+
+		SearchSpace space = currentSearchSpaces.get();
+
+		if (space == null || space.marks.length != graph.cellRegions.length) {
+			space = new SearchSpace(graph.cellRegions.length);
+			currentSearchSpaces.set(space);
+		}
+
+		return space;
+	}
+
+	private static boolean contains(final int[] values,
+									final int value) {
+		for (final int element : values) {
+			if (element == value) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private static boolean intersects(final int[] values1,
+									  final int[] values2) {
+		for (final int value : values1) {
+			if (contains(values2, value)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private static int[] union(final int[] values1,
+							   final int[] values2) {
+		final int[] values = Arrays.copyOf(values1, values1.length + values2.length);
+		int size = values1.length;
+
+		for (final int value : values2) {
+			if (!contains(values1, value)) {
+				values[size++] = value;
+			}
+		}
+
+		return Arrays.copyOf(values, size);
+	}
+}
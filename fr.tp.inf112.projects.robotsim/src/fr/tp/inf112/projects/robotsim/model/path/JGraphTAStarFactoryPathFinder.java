@@ -0,0 +1,64 @@
+package fr.tp.inf112.projects.robotsim.model.path;
+
+import java.util.List;
+
+import org.jgrapht.GraphPath;
+import org.jgrapht.alg.interfaces.AStarAdmissibleHeuristic;
+import org.jgrapht.alg.shortestpath.AStarShortestPath;
+import org.jgrapht.graph.DefaultDirectedGraph;
+import org.jgrapht.graph.DefaultEdge;
+
+import fr.tp.inf112.projects.robotsim.model.Factory;
+import fr.tp.inf112.projects.robotsim.model.Position;
+import fr.tp.inf112.projects.robotsim.model.shapes.PositionedShape;
+
+/**
+ * A* search with the JGraphT {@link AStarShortestPath} on the same graph as the
+ * {@link JGraphTDijkstraFactoryPathFinder}, which both finders share.
+ */
+public class JGraphTAStarFactoryPathFinder extends JGraphTDijkstraFactoryPathFinder {
+
+	private static final long serialVersionUID = 6280315986107351772L;
+
+	private final GridHeuristic heuristic;
+
+	public JGraphTAStarFactoryPathFinder(final Factory factoryModel,
+										 final int resolution) {
+		this(factoryModel, resolution, GridHeuristic.MANHATTAN);
+	}
+
+	public JGraphTAStarFactoryPathFinder(final Factory factoryModel,
+										 final int resolution,
+										 final GridHeuristic heuristic) {
+		super(factoryModel, resolution);
+
+		this.heuristic = heuristic;
+	}
+
+	public GridHeuristic getHeuristic() {
+		return heuristic;
+	}
+
+	@Override
+	protected List<Position> findPath(final DefaultDirectedGraph<PositionedShape, DefaultEdge> graph,
+									  final PositionedShape sourceVertex,
+									  final PositionedShape targetVertex) {
+		final AStarShortestPath<PositionedShape, DefaultEdge> algorithm = new AStarShortestPath<>(graph, new CellDistanceHeuristic());
+		final GraphPath<PositionedShape, DefaultEdge> shortestPath = algorithm.getPath(sourceVertex, targetVertex);
+
+		return toPositions(shortestPath, sourceVertex);
+	}
+
+	/** Estimates the number of unit weight edges between the cells of two vertexes. */
+	private class CellDistanceHeuristic implements AStarAdmissibleHeuristic<PositionedShape> {
+
+		@Override
+		public double getCostEstimate(final PositionedShape sourceVertex,
+									  final PositionedShape targetVertex) {
+			final int xDistance = Math.abs(sourceVertex.getxCoordinate() - targetVertex.getxCoordinate()) / getResolution();
+			final int yDistance = Math.abs(sourceVertex.getyCoordinate() - targetVertex.getyCoordinate()) / getResolution();
+
+			return (double) heuristic.estimate(xDistance, yDistance) / GridHeuristic.STRAIGHT_COST;
+		}
+	}
+}
@@ -2,23 +2,24 @@ package fr.tp.inf112.projects.robotsim.model.path;
 
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.jgrapht.GraphPath;
+import org.jgrapht.alg.interfaces.ShortestPathAlgorithm.SingleSourcePaths;
 import org.jgrapht.alg.shortestpath.DijkstraShortestPath;
-import org.jgrapht.graph.AbstractBaseGraph;
 import org.jgrapht.graph.DefaultDirectedGraph;
 import org.jgrapht.graph.DefaultEdge;
-import org.jgrapht.traverse.DepthFirstIterator;
 
-import fr.tp.inf112.projects.robotsim.model.Component;
 import fr.tp.inf112.projects.robotsim.model.Factory;
 import fr.tp.inf112.projects.robotsim.model.Position;
 import fr.tp.inf112.projects.robotsim.model.shapes.PositionedShape;
 import fr.tp.inf112.projects.robotsim.model.shapes.RectangularShape;
 
-public class JGraphTDijkstraFactoryPathFinder extends AbstractFactoryPathFinder<DefaultDirectedGraph<PositionedShape, DefaultEdge>, PositionedShape> implements Serializable {
+public class JGraphTDijkstraFactoryPathFinder extends AbstractGraphFactoryPathFinder<DefaultDirectedGraph<PositionedShape, DefaultEdge>, PositionedShape> implements Serializable {
 	
 	/**
 	 * 
@@ -31,18 +32,42 @@ public class JGraphTDijkstraFactoryPathFinder extends AbstractFactoryPathFinder<
 	}
 
 	@Override
-	public List<Position> findPath(final Component sourceComponent,
-								   final Component targetComponent) {
-		buildGraph();
-		
-		final PositionedShape sourceVertex = getVertex(sourceComponent.getPosition());
-		assert sourceVertex != null : "Start vertex should never be null!";
+	protected Class<?> getGridType() {
+		return JGraphTDijkstraFactoryPathFinder.class;
+	}
 
-		final PositionedShape targetVertex = getVertex(targetComponent.getPosition());
-		assert targetVertex != null : "Target vertex should never be null!";
-		
-		final AbstractBaseGraph<PositionedShape, DefaultEdge> graph = getGraph(); 
+	@Override
+	protected List<Position> findPath(final DefaultDirectedGraph<PositionedShape, DefaultEdge> graph,
+									  final PositionedShape sourceVertex,
+									  final PositionedShape targetVertex) {
 		final GraphPath<PositionedShape, DefaultEdge> shortestPath = DijkstraShortestPath.findPathBetween(graph, sourceVertex, targetVertex);
+
+		return toPositions(shortestPath, sourceVertex);
+	}
+
+	/**
+	 * Builds a single shortest path tree from the source vertex.
+	 */
+	@Override
+	Map<PositionedShape, List<Position>> findPaths(final NavigationGrid<DefaultDirectedGraph<PositionedShape, DefaultEdge>, PositionedShape> grid,
+												   final PositionedShape sourceVertex,
+												   final Collection<PositionedShape> targetVertexes) {
+		if (targetVertexes.size() == 1) {
+			return super.findPaths(grid, sourceVertex, targetVertexes);
+		}
+
+		final SingleSourcePaths<PositionedShape, DefaultEdge> shortestPaths = new DijkstraShortestPath<>(grid.getGraph()).getPaths(sourceVertex);
+		final Map<PositionedShape, List<Position>> paths = new HashMap<>();
+
+		for (final PositionedShape targetVertex : targetVertexes) {
+			paths.put(targetVertex, Collections.unmodifiableList(toPositions(shortestPaths.getPath(targetVertex), sourceVertex)));
+		}
+
+		return paths;
+	}
+
+	protected static List<Position> toPositions(final GraphPath<PositionedShape, DefaultEdge> shortestPath,
+												final PositionedShape sourceVertex) {
 		final List<Position> shortestPathPositions = new ArrayList<>();
 		
 		if (shortestPath != null) {
@@ -56,54 +81,36 @@ public class JGraphTDijkstraFactoryPathFinder extends AbstractFactoryPathFinder<
 		return shortestPathPositions;
 	}
 
-	@Override
-	protected PositionedShape getVertex(final int xIndex,
-										final int yIndex) {
-		final Iterator<PositionedShape> iterator = getGraphVertexesIterator();
-		final int resolution = getResolution();
-		final Position position = new Position(xIndex * resolution, yIndex * resolution);
-
-		while (iterator.hasNext()) {
-			final PositionedShape shape = iterator.next();
-			
-			if (position.equals(shape.getPosition())) {
-				return shape;
-			}
-		}
-		
-		return null;
-	}
-
-	@Override
-	protected float overlayedSurface(final PositionedShape vertex,
-									 final PositionedShape shape) {
-		return vertex.getOverlayedSurface(shape);
-	}
-
-	@Override
-	protected Iterator<PositionedShape> getGraphVertexesIterator() {
-		return new DepthFirstIterator<>(getGraph());
-	}
-
 	@Override
 	protected DefaultDirectedGraph<PositionedShape, DefaultEdge> newGraph() {
 		return new DefaultDirectedGraph<PositionedShape, DefaultEdge>(DefaultEdge.class);
 	}
 
 	@Override
-	protected boolean addVertex(final int xCoordinate,
-								final int yCoordinate) {
+	protected PositionedShape addVertex(final DefaultDirectedGraph<PositionedShape, DefaultEdge> graph,
+										final int xCoordinate,
+										final int yCoordinate) {
 		final PositionedShape vertex = new RectangularShape(xCoordinate,
 															yCoordinate,
 															getResolution(),
 															getResolution());
-		return getGraph().addVertex(vertex);
+		graph.addVertex(vertex);
+		
+		return vertex;
 	}
 
 	@Override
-	protected boolean addEdge(final PositionedShape vertex1,
+	protected boolean addEdge(final DefaultDirectedGraph<PositionedShape, DefaultEdge> graph,
+							  final PositionedShape vertex1,
 							  final PositionedShape vertex2) {
-		return getGraph().addEdge(vertex1, vertex2) != null;
+		return graph.addEdge(vertex1, vertex2) != null;
+	}
+
+	@Override
+	protected boolean removeEdge(final DefaultDirectedGraph<PositionedShape, DefaultEdge> graph,
+								 final PositionedShape vertex1,
+								 final PositionedShape vertex2) {
+		return graph.removeEdge(vertex1, vertex2) != null;
 	}
 
 	@Override
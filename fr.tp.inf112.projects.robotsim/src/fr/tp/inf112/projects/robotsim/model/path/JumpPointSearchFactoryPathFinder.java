@@ -0,0 +1,183 @@
+package fr.tp.inf112.projects.robotsim.model.path;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import fr.tp.inf112.projects.robotsim.model.Factory;
+import fr.tp.inf112.projects.robotsim.model.Position;
+
+/**
+ * Jump point search on the 4-connected uniform grid of the factory.
+ *
+ * Instead of expanding every cell, the search jumps along rows and columns and
+ * only stops at cells where the shortest paths may turn: the target, cells
+ * next to an obstacle corner and, when moving vertically, cells from which a
+ * horizontal jump finds such a cell. On open floors this expands orders of
+ * magnitude fewer cells than A* while returning paths of the same length.
+ */
+public class JumpPointSearchFactoryPathFinder extends AbstractGridSearchFactoryPathFinder {
+
+	private static final long serialVersionUID = -5230815447016829760L;
+
+	private static final int NO_JUMP_POINT = -1;
+
+	public JumpPointSearchFactoryPathFinder(final Factory factoryModel,
+											final int resolution) {
+		super(factoryModel, resolution);
+	}
+
+	@Override
+	protected List<Position> findPath(final NavigationGrid<Void, Position> grid,
+									  final int sourceCell,
+									  final int targetCell) {
+		return toPositions(grid, searchPath(grid, sourceCell, targetCell), targetCell);
+	}
+
+	/**
+	 * @return the parents of the cells in the search tree, or {@code null} if the
+	 * target cannot be reached.
+	 */
+	private int[] searchPath(final NavigationGrid<Void, Position> grid,
+							 final int sourceCell,
+							 final int targetCell) {
+		final int xSize = grid.getxSize();
+		final int targetxIndex = targetCell % xSize;
+		final int targetyIndex = targetCell / xSize;
+		final int[] costs = new int[xSize * grid.getySize()];
+		final int[] parents = new int[costs.length];
+		Arrays.fill(costs, Integer.MAX_VALUE);
+
+		final PriorityQueue<Long> openCells = new PriorityQueue<>();
+		costs[sourceCell] = 0;
+		parents[sourceCell] = NO_PARENT;
+		openCells.add(encode(distance(sourceCell, targetCell, xSize), sourceCell));
+
+		while (!openCells.isEmpty()) {
+			final long openCell = openCells.poll();
+			final int cell = (int) openCell;
+
+			if (cell == targetCell) {
+				return parents;
+			}
+
+			if ((int) (openCell >>> 32) != costs[cell] + distance(cell, targetCell, xSize)) {
+				continue;
+			}
+
+			final int xIndex = cell % xSize;
+			final int yIndex = cell / xSize;
+			final int parentCell = parents[cell];
+
+			if (parentCell == NO_PARENT) {
+				jumpAndOpen(grid, openCells, costs, parents, cell, 1, 0, targetxIndex, targetyIndex);
+				jumpAndOpen(grid, openCells, costs, parents, cell, -1, 0, targetxIndex, targetyIndex);
+				jumpAndOpen(grid, openCells, costs, parents, cell, 0, 1, targetxIndex, targetyIndex);
+				jumpAndOpen(grid, openCells, costs, parents, cell, 0, -1, targetxIndex, targetyIndex);
+			}
+			else {
+				// Only the directions that paths coming from the parent may need are explored
+				final int xDirection = Integer.signum(xIndex - parentCell % xSize);
+				final int yDirection = Integer.signum(yIndex - parentCell / xSize);
+
+				if (xDirection != 0) {
+					jumpAndOpen(grid, openCells, costs, parents, cell, xDirection, 0, targetxIndex, targetyIndex);
+					jumpAndOpen(grid, openCells, costs, parents, cell, 0, 1, targetxIndex, targetyIndex);
+					jumpAndOpen(grid, openCells, costs, parents, cell, 0, -1, targetxIndex, targetyIndex);
+				}
+				else {
+					jumpAndOpen(grid, openCells, costs, parents, cell, 0, yDirection, targetxIndex, targetyIndex);
+					jumpAndOpen(grid, openCells, costs, parents, cell, 1, 0, targetxIndex, targetyIndex);
+					jumpAndOpen(grid, openCells, costs, parents, cell, -1, 0, targetxIndex, targetyIndex);
+				}
+			}
+		}
+
+		return null;
+	}
+
+	private static void jumpAndOpen(final NavigationGrid<Void, Position> grid,
+									final PriorityQueue<Long> openCells,
+									final int[] costs,
+									final int[] parents,
+									final int cell,
+									final int xDirection,
+									final int yDirection,
+									final int targetxIndex,
+									final int targetyIndex) {
+		final int xSize = grid.getxSize();
+		final int jumpPoint = jump(grid, cell % xSize, cell / xSize, xDirection, yDirection, targetxIndex, targetyIndex);
+
+		if (jumpPoint != NO_JUMP_POINT) {
+			final int jumpPointCost = costs[cell] + distance(cell, jumpPoint, xSize);
+
+			if (jumpPointCost < costs[jumpPoint]) {
+				costs[jumpPoint] = jumpPointCost;
+				parents[jumpPoint] = cell;
+				openCells.add(encode(jumpPointCost + distance(jumpPoint, targetyIndex * xSize + targetxIndex, xSize), jumpPoint));
+			}
+		}
+	}
+
+	/**
+	 * Moves from the given cell in the given direction until reaching a jump
+	 * point.
+	 *
+	 * @return the jump point, or {@link #NO_JUMP_POINT} if an obstacle or the
+	 * border of the grid is reached first.
+	 */
+	private static int jump(final NavigationGrid<Void, Position> grid,
+							final int xIndex,
+							final int yIndex,
+							final int xDirection,
+							final int yDirection,
+							final int targetxIndex,
+							final int targetyIndex) {
+		int x = xIndex;
+		int y = yIndex;
+
+		while (true) {
+			x += xDirection;
+			y += yDirection;
+
+			if (!isFree(grid, x, y)) {
+				return NO_JUMP_POINT;
+			}
+
+			if (x == targetxIndex && y == targetyIndex) {
+				return y * grid.getxSize() + x;
+			}
+
+			if (xDirection != 0) {
+				// A forced neighbour: the cell above or below is only reachable optimally through this one
+				if ((isFree(grid, x, y - 1) && !isFree(grid, x - xDirection, y - 1)) ||
+					(isFree(grid, x, y + 1) && !isFree(grid, x - xDirection, y + 1))) {
+					return y * grid.getxSize() + x;
+				}
+			}
+			else {
+				if ((isFree(grid, x - 1, y) && !isFree(grid, x - 1, y - yDirection)) ||
+					(isFree(grid, x + 1, y) && !isFree(grid, x + 1, y - yDirection))) {
+					return y * grid.getxSize() + x;
+				}
+
+				// Vertical moves stop where a horizontal jump finds a jump point
+				if (jump(grid, x, y, 1, 0, targetxIndex, targetyIndex) != NO_JUMP_POINT ||
+					jump(grid, x, y, -1, 0, targetxIndex, targetyIndex) != NO_JUMP_POINT) {
+					return y * grid.getxSize() + x;
+				}
+			}
+		}
+	}
+
+	private static int distance(final int cell1,
+								final int cell2,
+								final int xSize) {
+		return GridHeuristic.MANHATTAN.estimate(Math.abs(cell1 % xSize - cell2 % xSize), Math.abs(cell1 / xSize - cell2 / xSize));
+	}
+
+	private static long encode(final int estimatedCost,
+							   final int cell) {
+		return (long) estimatedCost << 32 | cell;
+	}
+}
@@ -0,0 +1,179 @@
+package fr.tp.inf112.projects.robotsim.model.path;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import fr.tp.inf112.projects.robotsim.model.Factory;
+import fr.tp.inf112.projects.robotsim.model.notifier.FactoryLayoutListener;
+
+/**
+ * Navigation grids shared by the path finders of a factory, so that robots
+ * using finders of the same type and resolution hold a single graph.
+ *
+ * Grids are keyed by factory identity, grid type and resolution, and are
+ * tagged with the layout version of the factory they are up to date with. The
+ * cache listens to the layout changes of the factory and, when a finder asks
+ * for a stale grid, repairs only the cells of the areas that changed since. A
+ * grid is rebuilt from scratch only if more changes happened than the cache
+ * remembers. Factories are weakly referenced so that their grids are released
+ * with them.
+ */
+final class NavigationGraphCache {
+
+	/** Number of layout changes remembered per factory for repairing grids. */
+	private static final int MAX_RECORDED_CHANGES = 256;
+
+	private static final Map<Factory, FactoryGrids> GRIDS = new WeakHashMap<>();
+
+	private record GridKey(Class<?> gridType, int resolution) {
+	}
+
+	/** Area of the factory where obstacles may have changed, for a given layout version. */
+	record LayoutChange(long layoutVersion, int xCoordinate, int yCoordinate, int width, int height) {
+	}
+
+	private NavigationGraphCache() {
+	}
+
+	static <Graph, Vertex> NavigationGrid<Graph, Vertex> getGrid(final AbstractFactoryPathFinder<Graph, Vertex> finder) {
+		final Factory factory = finder.getFactoryModel();
+		final FactoryGrids factoryGrids;
+
+		synchronized (GRIDS) {
+			factoryGrids = GRIDS.computeIfAbsent(factory, FactoryGrids::new);
+		}
+
+		return factoryGrids.getGrid(factory, finder);
+	}
+
+	/**
+	 * @return the layout changes of the factory that happened after the given
+	 * layout version, oldest first, or {@code null} if some of them are no longer
+	 * remembered or if the factory has no grid yet.
+	 */
+	static List<LayoutChange> getLayoutChangesSince(final Factory factory,
+													final long layoutVersion) {
+		final FactoryGrids factoryGrids;
+
+		synchronized (GRIDS) {
+			factoryGrids = GRIDS.get(factory);
+		}
+
+		return factoryGrids == null ? null : factoryGrids.getChangesSince(layoutVersion);
+	}
+
+	private static final class FactoryGrids implements FactoryLayoutListener {
+
+		private final Map<GridKey, NavigationGrid<?, ?>> grids;
+
+		/** Recent layout changes, oldest first, guarded by their own monitor. */
+		private final Deque<LayoutChange> changes;
+
+		/** Last layout version no longer remembered. Guarded by the changes. */
+		private long forgottenLayoutVersion;
+
+		private FactoryGrids(final Factory factory) {
+			grids = new HashMap<>();
+			changes = new ArrayDeque<>();
+
+			factory.addLayoutListener(this);
+		}
+
+		@Override
+		public void layoutChanged(final Factory factory,
+								  final long layoutVersion,
+								  final int xCoordinate,
+								  final int yCoordinate,
+								  final int width,
+								  final int height) {
+			synchronized (changes) {
+				if (changes.size() == MAX_RECORDED_CHANGES) {
+					forgottenLayoutVersion = Math.max(forgottenLayoutVersion, changes.removeFirst().layoutVersion());
+				}
+
+				// Changes made concurrently may be notified out of order
+				final Deque<LayoutChange> laterChanges = new ArrayDeque<>();
+
+				while (!changes.isEmpty() && changes.peekLast().layoutVersion() > layoutVersion) {
+					laterChanges.addFirst(changes.removeLast());
+				}
+
+				changes.addLast(new LayoutChange(layoutVersion, xCoordinate, yCoordinate, width, height));
+				changes.addAll(laterChanges);
+			}
+		}
+
+		/**
+		 * @return the changes that happened after the given layout version, up to
+		 * the first one not notified yet, or {@code null} if some of them are no
+		 * longer remembered.
+		 */
+		private List<LayoutChange> getChangesSince(final long layoutVersion) {
+			synchronized (changes) {
+				if (forgottenLayoutVersion > layoutVersion) {
+					return null;
+				}
+
+				final List<LayoutChange> changesSince = new ArrayList<>();
+				long expectedVersion = layoutVersion + 1;
+
+				for (final LayoutChange change : changes) {
+					if (change.layoutVersion() > layoutVersion) {
+						if (change.layoutVersion() != expectedVersion) {
+							break;
+						}
+
+						changesSince.add(change);
+						expectedVersion++;
+					}
+				}
+
+				return changesSince;
+			}
+		}
+
+		// Finders asking for a grid being built or repaired wait for it rather than doing it again
+		@SuppressWarnings("unchecked")
+		private synchronized <Graph, Vertex> NavigationGrid<Graph, Vertex> getGrid(final Factory factory,
+																				  final AbstractFactoryPathFinder<Graph, Vertex> finder) {
+			// Read before updating, so that a layout change during the update triggers a new one
+			final long layoutVersion = factory.getLayoutVersion();
+			final GridKey key = new GridKey(finder.getGridType(), finder.getResolution());
+			NavigationGrid<Graph, Vertex> grid = (NavigationGrid<Graph, Vertex>) grids.get(key);
+
+			if (grid != null && grid.getLayoutVersion() != layoutVersion) {
+				final List<LayoutChange> changesSince = getChangesSince(grid.getLayoutVersion());
+
+				if (changesSince == null) {
+					grid = null;
+				}
+				else {
+					grid.getLock().writeLock().lock();
+
+					try {
+						// The version read above may not be recorded yet, hence stamping the last change repaired
+						for (final LayoutChange change : changesSince) {
+							finder.repairGrid(grid, change);
+							grid.setLayoutVersion(change.layoutVersion());
+						}
+					}
+					finally {
+						grid.getLock().writeLock().unlock();
+					}
+				}
+			}
+
+			if (grid == null) {
+				grid = finder.createGrid(layoutVersion);
+				grids.put(key, grid);
+			}
+
+			return grid;
+		}
+	}
+}
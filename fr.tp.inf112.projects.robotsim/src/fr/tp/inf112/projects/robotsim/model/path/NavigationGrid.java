@@ -0,0 +1,171 @@
+package fr.tp.inf112.projects.robotsim.model.path;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.function.IntFunction;
+import java.util.function.UnaryOperator;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Grid graph built by a path finder for a factory, together with the constant
+ * time lookup tables of its vertexes and the data its finders derive from it.
+ *
+ * A grid is shared by all the path finders of the factory through the
+ * {@link NavigationGraphCache}. Searches hold the read lock of the grid, while
+ * the cache holds its write lock to repair the cells of a changed area of the
+ * factory.
+ */
+final class NavigationGrid<Graph, Vertex> {
+
+	private final Graph graph;
+
+	private final int xSize;
+
+	private final int ySize;
+
+	/** Layout version of the factory this grid is up to date with. */
+	private volatile long layoutVersion;
+
+	/**
+	 * Vertexes of the grid indexed by {@code yIndex * xSize + xIndex}, or
+	 * {@code null} if they are computed from this index.
+	 */
+	private final Object[] vertexes;
+
+	private final IntFunction<Vertex> cellVertexes;
+
+	/** Cells of the grid overlapping an obstacle, indexed as the vertexes. */
+	private final boolean[] obstacleCells;
+
+	private final ReadWriteLock lock;
+
+	/** Data derived from the graph by the finders sharing the grid, by type. */
+	private final ConcurrentMap<Class<?>, Object> derivedData;
+
+	NavigationGrid(final Graph graph,
+				   final int xSize,
+				   final int ySize,
+				   final long layoutVersion) {
+		this(graph, xSize, ySize, layoutVersion, null);
+	}
+
+	/**
+	 * @param cellVertexes gives the vertex of a cell from its index, for graphs
+	 * numbering their cells rather than creating a vertex per cell, or
+	 * {@code null} to store the vertex set for each cell.
+	 */
+	NavigationGrid(final Graph graph,
+				   final int xSize,
+				   final int ySize,
+				   final long layoutVersion,
+				   final IntFunction<Vertex> cellVertexes) {
+		this.graph = graph;
+		this.xSize = Math.max(0, xSize);
+		this.ySize = Math.max(0, ySize);
+		this.layoutVersion = layoutVersion;
+		this.vertexes = cellVertexes == null ? new Object[this.xSize * this.ySize] : null;
+		this.cellVertexes = cellVertexes;
+		this.obstacleCells = new boolean[this.xSize * this.ySize];
+		this.lock = new ReentrantReadWriteLock();
+		this.derivedData = new ConcurrentHashMap<>();
+	}
+
+	Graph getGraph() {
+		return graph;
+	}
+
+	int getxSize() {
+		return xSize;
+	}
+
+	int getySize() {
+		return ySize;
+	}
+
+	long getLayoutVersion() {
+		return layoutVersion;
+	}
+
+	void setLayoutVersion(final long layoutVersion) {
+		this.layoutVersion = layoutVersion;
+	}
+
+	ReadWriteLock getLock() {
+		return lock;
+	}
+
+	/**
+	 * @return the data of the given type derived from the graph, which may be out
+	 * of date with the layout of the grid, or {@code null} if there is none.
+	 */
+	<Data> Data getDerivedData(final Class<Data> type) {
+		return type.cast(derivedData.get(type));
+	}
+
+	/**
+	 * Replaces the data of the given type derived from the graph, atomically for
+	 * all the finders sharing the grid.
+	 *
+	 * @param update gives the new data from the current one, which may be
+	 * {@code null}.
+	 * @return the new data.
+	 */
+	<Data> Data updateDerivedData(final Class<Data> type,
+								  final UnaryOperator<Data> update) {
+		return type.cast(derivedData.compute(type, (key, data) -> update.apply(type.cast(data))));
+	}
+
+	void setCell(final int xIndex,
+				 final int yIndex,
+				 final Vertex vertex,
+				 final boolean obstacle) {
+		if (vertexes != null) {
+			vertexes[yIndex * xSize + xIndex] = vertex;
+		}
+
+		obstacleCells[yIndex * xSize + xIndex] = obstacle;
+	}
+
+	boolean isObstacle(final int xIndex,
+					   final int yIndex) {
+		return obstacleCells[yIndex * xSize + xIndex];
+	}
+
+	void setObstacle(final int xIndex,
+					 final int yIndex,
+					 final boolean obstacle) {
+		obstacleCells[yIndex * xSize + xIndex] = obstacle;
+	}
+
+	/**
+	 * @return the vertex of the given cell, or {@code null} if the cell is outside
+	 * the grid.
+	 */
+	@SuppressWarnings("unchecked")
+	Vertex getVertex(final int xIndex,
+					 final int yIndex) {
+		if (xIndex < 0 || xIndex >= xSize || yIndex < 0 || yIndex >= ySize) {
+			return null;
+		}
+
+		final int cell = yIndex * xSize + xIndex;
+
+		return vertexes == null ? cellVertexes.apply(cell) : (Vertex) vertexes[cell];
+	}
+
+	/**
+	 * @return the vertex of the given cell, or {@code null} if the cell is outside
+	 * the grid or overlaps an obstacle.
+	 */
+	Vertex getFreeVertex(final int xIndex,
+						 final int yIndex) {
+		final Vertex vertex = getVertex(xIndex, yIndex);
+
+		if (vertex == null || obstacleCells[yIndex * xSize + xIndex]) {
+			return null;
+		}
+
+		return vertex;
+	}
+}
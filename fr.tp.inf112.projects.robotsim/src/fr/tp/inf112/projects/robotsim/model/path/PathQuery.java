@@ -0,0 +1,10 @@
+package fr.tp.inf112.projects.robotsim.model.path;
+
+import fr.tp.inf112.projects.robotsim.model.Component;
+
+/**
+ * A path to find in a batch, from a source component to a target component.
+ * Two queries are equal when they link the same components.
+ */
+public record PathQuery(Component sourceComponent, Component targetComponent) {
+}
@@ -0,0 +1,123 @@
+package fr.tp.inf112.projects.robotsim.model.path;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+import fr.tp.inf112.projects.robotsim.model.Component;
+
+/**
+ * Space-time reservations of the cells of a grid by mobile components: a cell
+ * reserved by a component at a tick cannot be entered by another one at that
+ * tick.
+ *
+ * Ticks are read from a clock, typically the tick count of a
+ * {@link fr.tp.inf112.projects.robotsim.model.simulation.TickSimulationEngine},
+ * so that all the components agree on the current tick. A table must be shared
+ * by all the cooperative finders of a factory, which must have the same
+ * resolution. The reservations and the clock are not serialized.
+ */
+public class ReservationTable implements Serializable {
+
+	private static final long serialVersionUID = 4459187342862905275L;
+
+	@com.fasterxml.jackson.annotation.JsonIgnore
+	private transient LongSupplier clock;
+
+	/** Components reserving a cell at a tick, keyed by {@code tick << 32 | cell}. */
+	@com.fasterxml.jackson.annotation.JsonIgnore
+	private transient Map<Long, Component> reservations;
+
+	@com.fasterxml.jackson.annotation.JsonIgnore
+	private transient Map<Component, List<Long>> componentReservations;
+
+	public ReservationTable(final LongSupplier clock) {
+		this.clock = clock;
+	}
+
+	public synchronized void setClock(final LongSupplier clock) {
+		this.clock = clock;
+	}
+
+	/**
+	 * @return the current tick, or 0 if the table has no clock.
+	 */
+	public synchronized long getTime() {
+		return clock == null ? 0 : clock.getAsLong();
+	}
+
+	private Map<Long, Component> getReservations() {
+		if (reservations == null) {
+			reservations = new HashMap<>();
+			componentReservations = new IdentityHashMap<>();
+		}
+
+		return reservations;
+	}
+
+	/**
+	 * @return the component reserving the given cell at the given tick, or
+	 * {@code null} if the cell is free at that tick.
+	 */
+	synchronized Component getReservation(final int cell,
+										   final long time) {
+		return getReservations().get(key(cell, time));
+	}
+
+	/**
+	 * Reserves the given cell at the given tick, unless it is already reserved by
+	 * another component.
+	 *
+	 * @return {@code true} if the cell is now reserved by the given component.
+	 */
+	synchronized boolean reserve(final Component component,
+								 final int cell,
+								 final long time) {
+		final Long key = key(cell, time);
+		final Component owner = getReservations().putIfAbsent(key, component);
+
+		if (owner == null) {
+			componentReservations.computeIfAbsent(component, c -> new ArrayList<>()).add(key);
+
+			return true;
+		}
+
+		return owner == component;
+	}
+
+	/**
+	 * Frees all the cells reserved by the given component.
+	 */
+	public synchronized void release(final Component component) {
+		final List<Long> keys = componentReservations == null ? null : componentReservations.remove(component);
+
+		if (keys != null) {
+			for (final Long key : keys) {
+				reservations.remove(key, component);
+			}
+		}
+	}
+
+	public synchronized int getSize() {
+		return reservations == null ? 0 : reservations.size();
+	}
+
+	public synchronized void clear() {
+		reservations = null;
+		componentReservations = null;
+	}
+
+	private static Long key(final int cell,
+							final long time) {
+		return time << 32 | cell;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + " [time=" + getTime() + ", size=" + getSize() + "]";
+	}
+}
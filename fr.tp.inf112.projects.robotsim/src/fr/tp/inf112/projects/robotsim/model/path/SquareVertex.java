@@ -1,5 +1,13 @@
 package fr.tp.inf112.projects.robotsim.model.path;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import fr.tp.inf112.projects.graph.Edge;
+import fr.tp.inf112.projects.graph.Vertex;
 import fr.tp.inf112.projects.graph.impl.GridVertex;
 import fr.tp.inf112.projects.robotsim.model.Position;
 import fr.tp.inf112.projects.robotsim.model.shapes.RectangularShape;
@@ -7,6 +15,11 @@ import fr.tp.inf112.projects.robotsim.model.shapes.RectangularShape;
 public class SquareVertex extends GridVertex {
 	
 	private final RectangularShape shape;
+	
+	/** Outgoing edges by end vertex, including the disabled ones so that they can be enabled again. */
+	private final Map<Vertex, Edge> edges;
+	
+	private final Set<Vertex> successors;
 
 	public SquareVertex(final String label,
 						final int xCoordinate,
@@ -15,6 +28,36 @@ public class SquareVertex extends GridVertex {
 		super(label, xCoordinate, yCoordinate);
 
 		this.shape = new RectangularShape(xCoordinate, yCoordinate, size, size);
+		this.edges = new LinkedHashMap<>();
+		this.successors = new LinkedHashSet<>();
+	}
+
+	@Override
+	public boolean addEdge(final Edge edge) {
+		edges.put(edge.getVertex2(), edge);
+		
+		return successors.add(edge.getVertex2());
+	}
+
+	@Override
+	public Set<Vertex> getSuccessors() {
+		return Collections.unmodifiableSet(successors);
+	}
+
+	/**
+	 * @return the edge from this vertex to the given one, whether it is enabled or
+	 * not, or {@code null} if there never was one.
+	 */
+	public Edge getEdge(final Vertex successor) {
+		return edges.get(successor);
+	}
+
+	/**
+	 * Disables the edge from this vertex to the given one. The edge can be enabled
+	 * again by adding it back with {@link #addEdge(Edge)}.
+	 */
+	public boolean removeSuccessor(final Vertex successor) {
+		return successors.remove(successor);
 	}
 
 	public RectangularShape getShape() {
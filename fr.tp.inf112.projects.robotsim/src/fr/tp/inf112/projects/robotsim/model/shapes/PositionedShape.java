@@ -47,7 +47,19 @@ public abstract class PositionedShape implements Shape, Serializable {
 	public abstract int getHeight();
 
 	public boolean overlays(final PositionedShape shape) {
-		return getOverlayedSurface(shape) > 0.0f;
+		return overlays(shape.getxCoordinate(), shape.getyCoordinate(), shape.getWidth(), shape.getHeight());
+	}
+
+	/**
+	 * Same as {@link #overlays(PositionedShape)} for the rectangle of the given
+	 * coordinates and size, without allocating a shape.
+	 */
+	public boolean overlays(final int xCoordinate,
+							final int yCoordinate,
+							final int width,
+							final int height) {
+		return intersectionLength(getxCoordinate(), getWidth(), xCoordinate, width) > 0
+			   && intersectionLength(getyCoordinate(), getHeight(), yCoordinate, height) > 0;
 	}
 
 	public float getOverlayedSurface(final PositionedShape shape) {
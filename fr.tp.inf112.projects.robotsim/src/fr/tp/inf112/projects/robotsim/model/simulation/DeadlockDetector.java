@@ -0,0 +1,236 @@
+package fr.tp.inf112.projects.robotsim.model.simulation;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jgrapht.Graph;
+import org.jgrapht.alg.cycle.CycleDetector;
+import org.jgrapht.alg.cycle.TarjanSimpleCycles;
+import org.jgrapht.graph.DefaultDirectedGraph;
+import org.jgrapht.graph.DefaultEdge;
+
+import fr.tp.inf112.projects.robotsim.model.Component;
+import fr.tp.inf112.projects.robotsim.model.Factory;
+import fr.tp.inf112.projects.robotsim.model.Robot;
+
+/**
+ * Detects the robots of a factory waiting for each other in a cycle, which
+ * would otherwise wait forever, and makes one robot of each cycle give way.
+ *
+ * A wait-for graph links each robot waiting to move to the robot occupying the
+ * position it waits for. Since a robot waits for at most one other, the cycles
+ * of this graph are disjoint. In each cycle, the robot with the lowest priority
+ * steps aside; by default, the robot that has been waiting for the shortest
+ * time, ties being broken by name.
+ *
+ * The detector resolves cycles after every tick when set on a
+ * {@link TickSimulationEngine}, from the clock thread of the engine between two
+ * ticks, while no component moves: making a robot give way changes its state,
+ * which is only safe when no other thread steps it. The other engines step
+ * each robot from its own thread, so they only allow {@link #detect(Factory)
+ * detecting} cycles, which reads the robots and may see some of them moving.
+ * The detector counts the cycles detected and resolved and measures the time
+ * from the detection of a cycle to the first run where it is gone.
+ */
+public class DeadlockDetector {
+
+	private static final Logger LOGGER = Logger.getLogger(DeadlockDetector.class.getName());
+
+	private final Comparator<Robot> priority;
+
+	/** First run at which each waiting robot was seen waiting, in nanoseconds. */
+	private final Map<Robot, Long> waitingSinceNs;
+
+	/** Cycles still present at the last run, with the time they were first detected. */
+	private Map<Set<Robot>, Long> pendingCycles;
+
+	private final AtomicLong detectionRunCount;
+
+	private final AtomicLong detectedCycleCount;
+
+	private final AtomicLong resolvedCycleCount;
+
+	private final AtomicLong failedResolutionCount;
+
+	private final AtomicLong totalResolutionLatencyNs;
+
+	private final AtomicLong maxResolutionLatencyNs;
+
+	public DeadlockDetector() {
+		this(null);
+	}
+
+	/**
+	 * @param priority orders the robots of a cycle, the first ones being the
+	 * first asked to give way, or {@code null} for the default order.
+	 */
+	public DeadlockDetector(final Comparator<Robot> priority) {
+		this.waitingSinceNs = new IdentityHashMap<>();
+		this.pendingCycles = new HashMap<>();
+		this.priority = priority == null ? defaultPriority() : priority;
+		this.detectionRunCount = new AtomicLong();
+		this.detectedCycleCount = new AtomicLong();
+		this.resolvedCycleCount = new AtomicLong();
+		this.failedResolutionCount = new AtomicLong();
+		this.totalResolutionLatencyNs = new AtomicLong();
+		this.maxResolutionLatencyNs = new AtomicLong();
+	}
+
+	private Comparator<Robot> defaultPriority() {
+		final Comparator<Robot> latestWaiting = Comparator.comparingLong(robot -> -waitingSinceNs.getOrDefault(robot, Long.MAX_VALUE));
+
+		return latestWaiting.thenComparing(Robot::getName, Comparator.nullsFirst(Comparator.naturalOrder()));
+	}
+
+	/**
+	 * Builds the wait-for graph of the robots of the factory.
+	 */
+	public Graph<Robot, DefaultEdge> buildWaitForGraph(final Factory factory) {
+		final Graph<Robot, DefaultEdge> graph = new DefaultDirectedGraph<>(DefaultEdge.class);
+
+		for (final Component component : factory.getComponents()) {
+			if (component instanceof Robot robot) {
+				final Component blockingComponent = robot.getBlockingComponent();
+
+				if (blockingComponent instanceof Robot blockingRobot) {
+					graph.addVertex(robot);
+					graph.addVertex(blockingRobot);
+					graph.addEdge(robot, blockingRobot);
+				}
+			}
+		}
+
+		return graph;
+	}
+
+	/**
+	 * @return the cycles of robots waiting for each other in the factory.
+	 */
+	public List<List<Robot>> detect(final Factory factory) {
+		return findCycles(buildWaitForGraph(factory));
+	}
+
+	private static List<List<Robot>> findCycles(final Graph<Robot, DefaultEdge> graph) {
+		final List<List<Robot>> cycles = new ArrayList<>();
+
+		// Most runs find no cycle, which is checked without enumerating them
+		if (new CycleDetector<>(graph).detectCycles()) {
+			new TarjanSimpleCycles<>(graph).findSimpleCycles(cycles::add);
+		}
+
+		return cycles;
+	}
+
+	/**
+	 * Detects the cycles of waiting robots of the factory and makes one robot of
+	 * each cycle give way. Called by the tick engine between two ticks only.
+	 *
+	 * @return the number of cycles detected.
+	 */
+	synchronized int detectAndResolve(final Factory factory) {
+		final long nowNs = System.nanoTime();
+		final Graph<Robot, DefaultEdge> graph = buildWaitForGraph(factory);
+		detectionRunCount.incrementAndGet();
+
+		waitingSinceNs.keySet().retainAll(graph.vertexSet());
+
+		for (final Robot robot : graph.vertexSet()) {
+			if (graph.outDegreeOf(robot) > 0) {
+				waitingSinceNs.putIfAbsent(robot, nowNs);
+			}
+		}
+
+		final List<List<Robot>> cycles = findCycles(graph);
+		final Map<Set<Robot>, Long> currentCycles = new HashMap<>();
+
+		for (final List<Robot> cycle : cycles) {
+			final Set<Robot> cycleRobots = new HashSet<>(cycle);
+			Long detectedNs = pendingCycles.get(cycleRobots);
+
+			if (detectedNs == null) {
+				detectedNs = nowNs;
+				detectedCycleCount.incrementAndGet();
+				LOGGER.log(Level.FINE, "Robots waiting in a cycle: {0}", cycle);
+			}
+
+			currentCycles.put(cycleRobots, detectedNs);
+			resolve(cycle);
+		}
+
+		for (final Map.Entry<Set<Robot>, Long> pendingCycle : pendingCycles.entrySet()) {
+			if (!currentCycles.containsKey(pendingCycle.getKey())) {
+				recordResolution(nowNs - pendingCycle.getValue());
+			}
+		}
+
+		pendingCycles = currentCycles;
+
+		return cycles.size();
+	}
+
+	private void resolve(final List<Robot> cycle) {
+		final List<Robot> candidates = new ArrayList<>(cycle);
+		candidates.sort(priority);
+
+		for (final Robot robot : candidates) {
+			if (robot.giveWay()) {
+				return;
+			}
+		}
+
+		// Every robot of the cycle is hemmed in, the cycle is tried again at the next run
+		failedResolutionCount.incrementAndGet();
+	}
+
+	private void recordResolution(final long latencyNs) {
+		resolvedCycleCount.incrementAndGet();
+		totalResolutionLatencyNs.addAndGet(latencyNs);
+		maxResolutionLatencyNs.accumulateAndGet(latencyNs, Math::max);
+	}
+
+	public long getDetectionRunCount() {
+		return detectionRunCount.get();
+	}
+
+	public long getDetectedCycleCount() {
+		return detectedCycleCount.get();
+	}
+
+	public long getResolvedCycleCount() {
+		return resolvedCycleCount.get();
+	}
+
+	/**
+	 * @return the number of runs at which no robot of a detected cycle could give
+	 * way.
+	 */
+	public long getFailedResolutionCount() {
+		return failedResolutionCount.get();
+	}
+
+	public long getMaxResolutionLatencyNs() {
+		return maxResolutionLatencyNs.get();
+	}
+
+	public long getAverageResolutionLatencyNs() {
+		final long resolvedCount = getResolvedCycleCount();
+
+		return resolvedCount == 0 ? 0 : totalResolutionLatencyNs.get() / resolvedCount;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + " [runs=" + getDetectionRunCount() + ", detected=" + getDetectedCycleCount()
+				+ ", resolved=" + getResolvedCycleCount() + ", failed=" + getFailedResolutionCount()
+				+ ", averageLatencyNs=" + getAverageResolutionLatencyNs() + ", maxLatencyNs=" + getMaxResolutionLatencyNs() + "]";
+	}
+}
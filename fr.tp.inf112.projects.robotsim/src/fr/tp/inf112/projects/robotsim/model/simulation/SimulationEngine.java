@@ -0,0 +1,13 @@
+package fr.tp.inf112.projects.robotsim.model.simulation;
+
+import fr.tp.inf112.projects.robotsim.model.Factory;
+
+/**
+ * Strategy used by a {@link Factory} to advance its components once the
+ * simulation is started. Engines keep running until
+ * {@link Factory#isSimulationStarted()} returns {@code false}.
+ */
+public interface SimulationEngine {
+
+	boolean start(Factory factory);
+}
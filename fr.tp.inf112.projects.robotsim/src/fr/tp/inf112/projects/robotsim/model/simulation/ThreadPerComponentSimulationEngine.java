@@ -0,0 +1,20 @@
+package fr.tp.inf112.projects.robotsim.model.simulation;
+
+import fr.tp.inf112.projects.robotsim.model.Component;
+import fr.tp.inf112.projects.robotsim.model.Factory;
+
+/**
+ * Default engine: each component runs its own {@link Component#run()} loop in a
+ * dedicated platform thread.
+ */
+public class ThreadPerComponentSimulationEngine implements SimulationEngine {
+
+	@Override
+	public boolean start(final Factory factory) {
+		for (final Component component : factory.getComponents()) {
+			new Thread(component, component.getName() + "-thread").start();
+		}
+		
+		return true;
+	}
+}
@@ -0,0 +1,189 @@
+package fr.tp.inf112.projects.robotsim.model.simulation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import fr.tp.inf112.projects.robotsim.model.Component;
+import fr.tp.inf112.projects.robotsim.model.Factory;
+
+/**
+ * Advances all the components of a factory in discrete ticks: at each tick,
+ * every component behaves exactly once, then the engine waits for the end of the
+ * tick period before starting the next one.
+ *
+ * Without a seed, each tick is split over a small pool of worker threads. With a
+ * seed, components are stepped one after the other in an order drawn from a
+ * random generator initialized with that seed, so that two runs of the same
+ * factory produce the same sequence of moves.
+ */
+public class TickSimulationEngine implements SimulationEngine {
+
+	/** Tick period value that runs ticks back to back, without sleeping. */
+	public static final long AS_FAST_AS_POSSIBLE = 0;
+
+	/** Same pace as the component threads of the default engine. */
+	public static final long DEFAULT_TICK_PERIOD_MS = 50;
+
+	private static final Logger LOGGER = Logger.getLogger(TickSimulationEngine.class.getName());
+
+	private final int workerCount;
+
+	private final long tickPeriodMs;
+
+	private final Long seed;
+
+	private final AtomicLong tickCount;
+
+	private volatile DeadlockDetector deadlockDetector;
+
+	public TickSimulationEngine(final int workerCount) {
+		this(workerCount, DEFAULT_TICK_PERIOD_MS, null);
+	}
+
+	public TickSimulationEngine(final int workerCount,
+								final long tickPeriodMs,
+								final Long seed) {
+		if (workerCount < 1) {
+			throw new IllegalArgumentException("At least one worker is required: " + workerCount);
+		}
+		
+		if (tickPeriodMs < 0) {
+			throw new IllegalArgumentException("Negative tick period: " + tickPeriodMs);
+		}
+		
+		this.workerCount = workerCount;
+		this.tickPeriodMs = tickPeriodMs;
+		this.seed = seed;
+		this.tickCount = new AtomicLong();
+	}
+
+	public int getWorkerCount() {
+		return workerCount;
+	}
+
+	public long getTickPeriodMs() {
+		return tickPeriodMs;
+	}
+
+	public Long getSeed() {
+		return seed;
+	}
+
+	public boolean isDeterministic() {
+		return seed != null;
+	}
+
+	public DeadlockDetector getDeadlockDetector() {
+		return deadlockDetector;
+	}
+
+	/**
+	 * Sets the detector run at the end of every tick, or {@code null} to run none.
+	 */
+	public void setDeadlockDetector(final DeadlockDetector deadlockDetector) {
+		this.deadlockDetector = deadlockDetector;
+	}
+
+	/**
+	 * @return the number of ticks completed since this engine was created.
+	 */
+	public long getTickCount() {
+		return tickCount.get();
+	}
+
+	@Override
+	public boolean start(final Factory factory) {
+		final Thread clockThread = new Thread(() -> runTicks(factory), factory.getName() + "-clock");
+		clockThread.setDaemon(true);
+		clockThread.start();
+		
+		return true;
+	}
+
+	private void runTicks(final Factory factory) {
+		final Random random = isDeterministic() ? new Random(seed) : null;
+		final ExecutorService workers = isDeterministic() ? null : Executors.newFixedThreadPool(workerCount, runnable -> {
+			final Thread thread = new Thread(runnable, factory.getName() + "-tick-worker");
+			thread.setDaemon(true);
+			
+			return thread;
+		});
+
+		try {
+			while (factory.isSimulationStarted()) {
+				final long tickStartNs = System.nanoTime();
+				final List<Component> components = new ArrayList<>(factory.getComponents());
+				
+				if (random != null) {
+					Collections.shuffle(components, random);
+					step(components);
+				}
+				else {
+					workers.invokeAll(partition(components));
+				}
+
+				final DeadlockDetector detector = deadlockDetector;
+
+				// Run between ticks, while no component moves
+				if (detector != null) {
+					detector.detectAndResolve(factory);
+				}
+				
+				tickCount.incrementAndGet();
+				
+				if (tickPeriodMs > AS_FAST_AS_POSSIBLE) {
+					final long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - tickStartNs);
+					
+					if (elapsedMs < tickPeriodMs) {
+						Thread.sleep(tickPeriodMs - elapsedMs);
+					}
+				}
+			}
+		}
+		catch (final InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+		finally {
+			if (workers != null) {
+				workers.shutdownNow();
+			}
+		}
+	}
+
+	private List<Callable<Void>> partition(final List<Component> components) {
+		final List<Callable<Void>> tasks = new ArrayList<>(workerCount);
+		final int chunkSize = (components.size() + workerCount - 1) / workerCount;
+		
+		for (int start = 0; start < components.size(); start += chunkSize) {
+			final List<Component> chunk = components.subList(start, Math.min(start + chunkSize, components.size()));
+			tasks.add(() -> {
+				step(chunk);
+				
+				return null;
+			});
+		}
+		
+		return tasks;
+	}
+
+	private static void step(final List<Component> components) {
+		for (final Component component : components) {
+			try {
+				component.behave();
+			}
+			catch (final RuntimeException ex) {
+				// One failing component must not stall the whole simulation
+				LOGGER.log(Level.WARNING, "Component " + component.getName() + " failed to behave", ex);
+			}
+		}
+	}
+}
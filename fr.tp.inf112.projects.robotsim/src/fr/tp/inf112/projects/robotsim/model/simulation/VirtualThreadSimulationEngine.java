@@ -0,0 +1,66 @@
+package fr.tp.inf112.projects.robotsim.model.simulation;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import fr.tp.inf112.projects.robotsim.model.Component;
+import fr.tp.inf112.projects.robotsim.model.Factory;
+
+/**
+ * Runs the {@link Component#run()} loop of each component in its own virtual
+ * thread, so that the number of simulated components is no longer bounded by
+ * the number of platform threads the JVM can create.
+ */
+public class VirtualThreadSimulationEngine implements SimulationEngine {
+
+	private final List<Thread> componentThreads;
+
+	public VirtualThreadSimulationEngine() {
+		componentThreads = new CopyOnWriteArrayList<>();
+	}
+
+	@Override
+	public boolean start(final Factory factory) {
+		componentThreads.removeIf(thread -> !thread.isAlive());
+		
+		for (final Component component : factory.getComponents()) {
+			componentThreads.add(Thread.ofVirtual().name(component.getName() + "-vthread").start(component));
+		}
+		
+		return true;
+	}
+
+	/**
+	 * @return the number of component tasks that have not completed yet.
+	 */
+	public int getLiveTaskCount() {
+		int count = 0;
+		
+		for (final Thread thread : componentThreads) {
+			if (thread.isAlive()) {
+				count++;
+			}
+		}
+		
+		return count;
+	}
+
+	/**
+	 * @return the number of live component tasks currently parked, i.e. sleeping
+	 * between two steps or waiting for a lock, and therefore not holding a carrier
+	 * thread.
+	 */
+	public int getParkedTaskCount() {
+		int count = 0;
+		
+		for (final Thread thread : componentThreads) {
+			final Thread.State state = thread.getState();
+			
+			if (state == Thread.State.WAITING || state == Thread.State.TIMED_WAITING) {
+				count++;
+			}
+		}
+		
+		return count;
+	}
+}
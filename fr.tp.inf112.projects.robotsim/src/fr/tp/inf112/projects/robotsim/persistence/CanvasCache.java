@@ -0,0 +1,68 @@
+package fr.tp.inf112.projects.robotsim.persistence;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Least recently used cache of the canvas files sent by the persistence server, holding the
+ * payload of their read responses, bounded by its size in bytes. Thread safe.
+ */
+public final class CanvasCache {
+
+    /**
+     * @param version the version of the canvas file.
+     * @param payload the version followed by the bytes of the file.
+     */
+    record Entry(long version, byte[] payload) {}
+
+    private final long maxBytes;
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long size;
+
+    /**
+     * @param maxBytes the maximum size of the cached payloads, {@code 0} to cache nothing.
+     */
+    public CanvasCache(final long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("Cache size must not be negative: " + maxBytes);
+        }
+
+        this.maxBytes = maxBytes;
+    }
+
+    synchronized Entry get(final String canvasId) {
+        return entries.get(canvasId);
+    }
+
+    /**
+     * Caches the entry unless a later version of the canvas is cached.
+     */
+    synchronized void put(final String canvasId, final Entry entry) {
+        final Entry cachedEntry = entries.get(canvasId);
+        if (cachedEntry != null && cachedEntry.version() > entry.version()) {
+            return;
+        }
+
+        remove(canvasId);
+        if (entry.payload().length > maxBytes) {
+            return;
+        }
+
+        entries.put(canvasId, entry);
+        size += entry.payload().length;
+
+        final Iterator<Entry> eldestEntries = entries.values().iterator();
+        while (size > maxBytes) {
+            size -= eldestEntries.next().payload().length;
+            eldestEntries.remove();
+        }
+    }
+
+    synchronized void remove(final String canvasId) {
+        final Entry entry = entries.remove(canvasId);
+        if (entry != null) {
+            size -= entry.payload().length;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package fr.tp.inf112.projects.robotsim.persistence;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Versions of the canvas files of the persistence server, increased at each persist of the
+ * server whatever the resolution of the file system clock. Thread safe.
+ *
+ * The version of a file is seeded from its modification time in nanoseconds the first time
+ * the server sees it, so that it also identifies files written before the server started.
+ * The modification time is checked again at each read, so that a file changed behind the
+ * server gets a new version, unless changed within the same tick of the file system clock
+ * as the last persist of the server.
+ */
+public final class CanvasVersions {
+
+    /**
+     * @param version the version of the canvas file.
+     * @param modificationTime the modification time of the file when given this version.
+     */
+    private record Version(long version, long modificationTime) {}
+
+    private final Map<String, Version> versions = new HashMap<>();
+
+    /**
+     * @return the version of the canvas file, increased if the file was changed behind the
+     * server.
+     * @throws java.nio.file.NoSuchFileException if the file does not exist.
+     */
+    synchronized long get(final String canvasId, final Path file) throws IOException {
+        final long modificationTime = getModificationTime(file);
+        final Version version = versions.get(canvasId);
+        if (version != null && version.modificationTime() == modificationTime) {
+            return version.version();
+        }
+
+        return put(canvasId, version, modificationTime);
+    }
+
+    /**
+     * Gives a version to the canvas file just written, later than all the previous ones.
+     * The caller prevents concurrent writes of the file.
+     *
+     * @return the new version of the file.
+     */
+    synchronized long next(final String canvasId, final Path file) throws IOException {
+        return put(canvasId, versions.get(canvasId), getModificationTime(file));
+    }
+
+    /**
+     * Forgets the version of a canvas file deleted behind the server, seeded again if the file
+     * comes back.
+     */
+    synchronized void remove(final String canvasId) {
+        versions.remove(canvasId);
+    }
+
+    private long put(final String canvasId, final Version previousVersion, final long modificationTime) {
+        final long version = previousVersion == null ? modificationTime : Math.max(previousVersion.version() + 1, modificationTime);
+        versions.put(canvasId, new Version(version, modificationTime));
+        return version;
+    }
+
+    private static long getModificationTime(final Path file) throws IOException {
+        return Files.getLastModifiedTime(file).to(TimeUnit.NANOSECONDS);
+    }
+}
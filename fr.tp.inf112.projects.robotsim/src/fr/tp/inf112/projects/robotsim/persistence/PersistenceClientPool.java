@@ -0,0 +1,135 @@
+package fr.tp.inf112.projects.robotsim.persistence;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import fr.tp.inf112.projects.canvas.model.Canvas;
+import fr.tp.inf112.projects.robotsim.persistence.PersistenceProtocol.Frame;
+
+/**
+ * Client of the persistence server keeping a few connections open, over which
+ * the requests of all threads are spread. Thread safe.
+ *
+ * The canvases read and persisted are kept in a cache with their version, so
+ * that reading them again only asks the server whether they changed. Each read
+ * decodes a canvas of its own.
+ */
+public class PersistenceClientPool implements Closeable {
+
+    public static final int DEFAULT_SIZE = 4;
+
+    public static final int DEFAULT_TIMEOUT_MS = 3000;
+
+    public static final long DEFAULT_CACHE_BYTES = 16L << 20;
+
+    private final PersistenceConnection[] connections;
+    private final AtomicInteger nextConnection = new AtomicInteger();
+    private final CanvasCache cache;
+
+    public PersistenceClientPool(final String host, final int port) {
+        this(host, port, DEFAULT_SIZE, DEFAULT_TIMEOUT_MS);
+    }
+
+    public PersistenceClientPool(final String host, final int port, final int size, final int timeoutMs) {
+        this(host, port, size, timeoutMs, DEFAULT_CACHE_BYTES);
+    }
+
+    /**
+     * @param cacheBytes the size of the canvases kept to read them again, {@code 0} to keep none.
+     */
+    public PersistenceClientPool(final String host, final int port, final int size, final int timeoutMs, final long cacheBytes) {
+        cache = new CanvasCache(cacheBytes);
+        if (size <= 0) {
+            throw new IllegalArgumentException("Pool size must be positive: " + size);
+        }
+
+        connections = new PersistenceConnection[size];
+        for (int index = 0; index < size; index++) {
+            connections[index] = new PersistenceConnection(host, port, timeoutMs);
+        }
+    }
+
+    /**
+     * @return the canvas, or {@code null} if the server has none with this id.
+     */
+    public Canvas read(final String canvasId) throws IOException {
+        final String id = PersistenceProtocol.safeId(canvasId);
+        final CanvasCache.Entry cachedEntry = cache.get(id);
+        final Frame response = cachedEntry == null ?
+                request(PersistenceProtocol.READ, PersistenceProtocol.idPayload(canvasId, new byte[0])) :
+                request(PersistenceProtocol.READ_IF_MODIFIED, PersistenceProtocol.idPayload(canvasId, PersistenceProtocol.versionPayload(cachedEntry.version(), new byte[0])));
+
+        switch (response.code()) {
+            case PersistenceProtocol.NOT_FOUND:
+                cache.remove(id);
+                return null;
+            case PersistenceProtocol.NOT_MODIFIED:
+                return PersistenceProtocol.decodeVersionedCanvas(cachedEntry.payload());
+            default:
+                checkStatus(response);
+                cache.put(id, new CanvasCache.Entry(PersistenceProtocol.getVersion(response.payload()), response.payload()));
+                return PersistenceProtocol.decodeVersionedCanvas(response.payload());
+        }
+    }
+
+    /**
+     * Stores the canvas under the base name of its id.
+     */
+    public void persist(final Canvas canvasModel) throws IOException {
+        final byte[] canvasBytes = PersistenceProtocol.encodeCanvas(canvasModel);
+        final Frame response = request(PersistenceProtocol.PERSIST, PersistenceProtocol.idPayload(canvasModel.getId(), canvasBytes));
+        checkStatus(response);
+
+        // Canvases without id are stored under an id chosen by the server
+        if (canvasModel.getId() == null || canvasModel.getId().isEmpty()) {
+            return;
+        }
+
+        final long version = PersistenceProtocol.getVersion(response.payload());
+        cache.put(PersistenceProtocol.safeId(canvasModel.getId()), new CanvasCache.Entry(version, PersistenceProtocol.versionPayload(version, canvasBytes)));
+    }
+
+    public String[] list() throws IOException {
+        final Frame response = request(PersistenceProtocol.LIST, new byte[0]);
+        checkStatus(response);
+
+        final DataInputStream input = new DataInputStream(new ByteArrayInputStream(response.payload()));
+        final String[] ids = new String[input.readInt()];
+        for (int index = 0; index < ids.length; index++) {
+            ids[index] = input.readUTF();
+        }
+
+        return ids;
+    }
+
+    private Frame request(final byte operation, final byte[] payload) throws IOException {
+        final PersistenceConnection connection = connections[Math.floorMod(nextConnection.getAndIncrement(), connections.length)];
+        try {
+            return connection.request(operation, payload);
+        } catch (final InterruptedIOException e) {
+            // Timed out or interrupted: not sent again
+            throw e;
+        } catch (final IOException e) {
+            // The server may have closed an idle connection: requests are idempotent, so sent again once
+            return connection.request(operation, payload);
+        }
+    }
+
+    private static void checkStatus(final Frame response) throws IOException {
+        if (response.code() != PersistenceProtocol.OK) {
+            throw new IOException("Persistence server error: " + new String(response.payload(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Override
+    public void close() {
+        for (final PersistenceConnection connection : connections) {
+            connection.close();
+        }
+    }
+}
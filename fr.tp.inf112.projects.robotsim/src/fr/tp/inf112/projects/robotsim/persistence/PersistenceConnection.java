@@ -0,0 +1,148 @@
+package fr.tp.inf112.projects.robotsim.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import fr.tp.inf112.projects.robotsim.persistence.PersistenceProtocol.Frame;
+
+/**
+ * Connection to the persistence server shared by several threads: requests are
+ * written as soon as they are made, and a reader thread hands each response to
+ * the thread waiting for it. The connection is opened on the first request, and
+ * again on the first request after it was lost.
+ */
+final class PersistenceConnection implements Closeable {
+
+    private final String host;
+    private final int port;
+    private final int timeoutMs;
+    private final AtomicInteger nextRequestId = new AtomicInteger();
+
+    // Guarded by this
+    private Link link;
+
+    PersistenceConnection(final String host, final int port, final int timeoutMs) {
+        this.host = host;
+        this.port = port;
+        this.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * @return the response of the server, within the timeout.
+     */
+    Frame request(final byte operation, final byte[] payload) throws IOException {
+        final int requestId = nextRequestId.incrementAndGet();
+        final CompletableFuture<Frame> response = new CompletableFuture<>();
+        final Link requestLink;
+
+        synchronized (this) {
+            requestLink = open();
+            requestLink.pending.put(requestId, response);
+            try {
+                PersistenceProtocol.writeFrame(requestLink.output, new Frame(requestId, operation, payload));
+                requestLink.output.flush();
+            } catch (final IOException e) {
+                requestLink.close(e);
+                throw e;
+            }
+        }
+
+        try {
+            return response.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (final TimeoutException e) {
+            throw new SocketTimeoutException("No response from persistence server " + host + ":" + port + " within " + timeoutMs + " ms");
+        } catch (final ExecutionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the persistence server");
+        } finally {
+            requestLink.pending.remove(requestId);
+        }
+    }
+
+    private Link open() throws IOException {
+        if (link == null || link.closed) {
+            final Socket socket = new Socket();
+            try {
+                socket.connect(new InetSocketAddress(host, port), timeoutMs);
+                socket.setTcpNoDelay(true);
+                link = new Link(socket);
+            } catch (final IOException e) {
+                socket.close();
+                throw e;
+            }
+
+            final Link readLink = link;
+            Thread.ofVirtual().name("persistence-client-reader").start(readLink::readResponses);
+        }
+
+        return link;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (link != null) {
+            link.close(new IOException("Connection closed"));
+            link = null;
+        }
+    }
+
+    /**
+     * One socket, and the requests waiting for a response on it.
+     */
+    private static final class Link {
+
+        private final Socket socket;
+        private final DataOutputStream output;
+        private final DataInputStream input;
+        private final Map<Integer, CompletableFuture<Frame>> pending = new ConcurrentHashMap<>();
+        private volatile boolean closed;
+
+        private Link(final Socket socket) throws IOException {
+            this.socket = socket;
+            output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        }
+
+        private void readResponses() {
+            try {
+                while (!closed) {
+                    final Frame frame = PersistenceProtocol.readFrame(input);
+                    final CompletableFuture<Frame> response = pending.remove(frame.requestId());
+                    // Requests timed out in the meantime are no longer pending
+                    if (response != null) {
+                        response.complete(frame);
+                    }
+                }
+            } catch (final IOException e) {
+                close(e);
+            }
+        }
+
+        private void close(final IOException cause) {
+            closed = true;
+            try {
+                socket.close();
+            } catch (final IOException ignore) {}
+
+            pending.values().forEach(response -> response.completeExceptionally(cause));
+            pending.clear();
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package fr.tp.inf112.projects.robotsim.persistence;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import fr.tp.inf112.projects.canvas.model.Canvas;
+import fr.tp.inf112.projects.robotsim.model.Factory;
+import fr.tp.inf112.projects.robotsim.model.FactoryCodec;
+
+/**
+ * Framed protocol of the persistence server. Each request and response is a
+ * frame made of its length, the id of the request, an operation or status code
+ * and a payload, so that clients keep their connection open and send several
+ * requests without waiting for the previous responses.
+ *
+ * Canvases travel as the bytes of their file: factories encoded with the
+ * {@link FactoryCodec}, other canvases with Java serialization. Each file has a
+ * version, increasing at each persist, so that clients holding a canvas only
+ * receive it again once it changed.
+ */
+public final class PersistenceProtocol {
+
+    public static final int DEFAULT_PORT = 1957;
+
+    static final int MAX_FRAME_SIZE = 64 << 20;
+
+    /** Payload: canvas id. Response: version and canvas bytes, or NOT_FOUND. */
+    static final byte READ = 1;
+
+    /** Payload: canvas id and canvas bytes. Response: version. */
+    static final byte PERSIST = 2;
+
+    /** Payload: empty. Response: number of ids and ids. */
+    static final byte LIST = 3;
+
+    /**
+     * Payload: canvas id and version. Response: version and canvas bytes, NOT_MODIFIED if
+     * the canvas is still at the given version, or NOT_FOUND.
+     */
+    static final byte READ_IF_MODIFIED = 4;
+
+    static final byte OK = 0;
+
+    static final byte NOT_FOUND = 1;
+
+    static final byte ERROR = 2;
+
+    static final byte NOT_MODIFIED = 3;
+
+    /** Version of no canvas file. */
+    static final long NO_VERSION = -1;
+
+    private static final int JAVA_SERIALIZATION_MAGIC = 0xACED0005;
+
+    record Frame(int requestId, byte code, byte[] payload) {}
+
+    private PersistenceProtocol() {
+    }
+
+    static Frame readFrame(final DataInputStream input) throws IOException {
+        final int length = input.readInt();
+        if (length < Integer.BYTES + 1 || length > MAX_FRAME_SIZE) {
+            throw new IOException("Invalid frame length " + length);
+        }
+
+        final int requestId = input.readInt();
+        final byte code = input.readByte();
+        final byte[] payload = new byte[length - Integer.BYTES - 1];
+        input.readFully(payload);
+
+        return new Frame(requestId, code, payload);
+    }
+
+    /**
+     * Writes the frame without flushing, so that pipelined frames share packets.
+     */
+    static void writeFrame(final DataOutputStream output, final Frame frame) throws IOException {
+        output.writeInt(Integer.BYTES + 1 + frame.payload().length);
+        output.writeInt(frame.requestId());
+        output.writeByte(frame.code());
+        output.write(frame.payload());
+    }
+
+    // Only the base name of ids is sent, so that clients do not choose where the server writes
+    static String safeId(final String canvasId) {
+        return canvasId == null ? null : new File(canvasId).getName();
+    }
+
+    static byte[] idPayload(final String canvasId, final byte[] canvasBytes) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(canvasBytes.length + 64);
+        final DataOutputStream output = new DataOutputStream(bytes);
+        output.writeUTF(canvasId == null ? "" : safeId(canvasId));
+        output.write(canvasBytes);
+
+        return bytes.toByteArray();
+    }
+
+    static byte[] versionPayload(final long version, final byte[] canvasBytes) {
+        return ByteBuffer.allocate(Long.BYTES + canvasBytes.length).putLong(version).put(canvasBytes).array();
+    }
+
+    static long getVersion(final byte[] versionPayload) {
+        return ByteBuffer.wrap(versionPayload).getLong();
+    }
+
+    static byte[] encodeCanvas(final Canvas canvas) throws IOException {
+        if (canvas instanceof Factory) {
+            try {
+                return FactoryCodec.encode((Factory) canvas);
+            } catch (final IllegalArgumentException e) {
+                // Not covered by the codec: sent with Java serialization
+            }
+        }
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+            output.writeObject(canvas);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes the canvas of a response payload starting with its version.
+     */
+    static Canvas decodeVersionedCanvas(final byte[] versionPayload) throws IOException {
+        return decodeCanvas(Arrays.copyOfRange(versionPayload, Long.BYTES, versionPayload.length));
+    }
+
+    static Canvas decodeCanvas(final byte[] bytes) throws IOException {
+        if (FactoryCodec.isEncoded(bytes)) {
+            return FactoryCodec.decode(bytes);
+        }
+
+        try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return (Canvas) input.readObject();
+        } catch (final ClassNotFoundException | ClassCastException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * @return {@code true} if the bytes are in one of the formats of {@link #encodeCanvas(Canvas)}.
+     */
+    static boolean isCanvas(final byte[] bytes) {
+        return FactoryCodec.isEncoded(bytes) ||
+               bytes.length >= Integer.BYTES && ByteBuffer.wrap(bytes).getInt() == JAVA_SERIALIZATION_MAGIC;
+    }
+}
@@ -1,43 +1,104 @@
 package fr.tp.inf112.projects.robotsim.persistence;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.net.ServerSocket;
 import java.net.Socket;
 
+import fr.tp.inf112.projects.robotsim.model.JournalFactoryPersistenceManager;
+
 /**
- * Simple persistence server that accepts serialized requests from clients
+ * Simple persistence server that accepts framed requests from clients
  * and stores/loads Canvas objects in the server storage directory.
+ * Each connection is served by a virtual thread, for as long as the client keeps it open.
+ * Started with {@code --journal}, the server saves the factories to their journal, see
+ * {@link JournalFactoryPersistenceManager}.
  */
-public class PersistenceServer {
+public class PersistenceServer implements Closeable {
+
+    /** Idle connections are closed after this delay, clients opening a new one when needed. */
+    private static final int IDLE_TIMEOUT_MS = 5 * 60 * 1000;
+
+    /** Size of the files kept in memory for the read requests. */
+    public static final long DEFAULT_CACHE_BYTES = 64L << 20;
 
     private final int port;
     private final File storageDir;
+    private final CanvasCache cache;
+    private final CanvasVersions versions = new CanvasVersions();
+    private final JournalFactoryPersistenceManager journalManager;
+    private volatile ServerSocket serverSocket;
 
     public PersistenceServer(final int port, final File storageDir) {
+        this(port, storageDir, DEFAULT_CACHE_BYTES);
+    }
+
+    public PersistenceServer(final int port, final File storageDir, final long cacheBytes) {
+        this(port, storageDir, cacheBytes, null);
+    }
+
+    /**
+     * @param journalManager the manager saving the factories to their journal, or {@code null}
+     * to store the files as they are. Closed with the server.
+     */
+    public PersistenceServer(final int port, final File storageDir, final long cacheBytes,
+                             final JournalFactoryPersistenceManager journalManager) {
         this.port = port;
         this.storageDir = storageDir;
+        this.cache = new CanvasCache(cacheBytes);
+        this.journalManager = journalManager;
         if (!this.storageDir.exists()) {
             this.storageDir.mkdirs();
         }
     }
 
+    /**
+     * Serves the clients until the server is closed.
+     */
     public void start() throws IOException {
         try (ServerSocket server = new ServerSocket(port)) {
+            serverSocket = server;
             System.out.println("PersistenceServer listening on port " + port + " storing in " + storageDir.getAbsolutePath());
-            while (true) {
-                final Socket socket = server.accept();
-                final Thread t = new Thread(new RequestProcessor(socket, storageDir));
-                t.setDaemon(true);
-                t.start();
+            while (!server.isClosed()) {
+                final Socket socket;
+                try {
+                    socket = server.accept();
+                } catch (final IOException e) {
+                    if (server.isClosed()) {
+                        return;
+                    }
+                    throw e;
+                }
+
+                socket.setTcpNoDelay(true);
+                socket.setSoTimeout(IDLE_TIMEOUT_MS);
+                Thread.ofVirtual().name("persistence-connection").start(new RequestProcessor(socket, storageDir, cache, versions, journalManager));
             }
         }
     }
 
+    /**
+     * Stops accepting connections. The open ones are served until their clients close them,
+     * their next saves to a journal starting a new segment.
+     */
+    @Override
+    public void close() throws IOException {
+        final ServerSocket server = serverSocket;
+        if (server != null) {
+            server.close();
+        }
+        if (journalManager != null) {
+            journalManager.close();
+        }
+    }
+
     public static void main(final String[] args) throws Exception {
-        final int port = 1957;
+        final int port = PersistenceProtocol.DEFAULT_PORT;
         final File storage = new File("server_storage");
-        final PersistenceServer srv = new PersistenceServer(port, storage);
+        final boolean journal = args.length > 0 && "--journal".equals(args[0]);
+        final PersistenceServer srv = new PersistenceServer(port, storage, DEFAULT_CACHE_BYTES,
+                                                            journal ? new JournalFactoryPersistenceManager(null) : null);
         srv.start();
     }
 }
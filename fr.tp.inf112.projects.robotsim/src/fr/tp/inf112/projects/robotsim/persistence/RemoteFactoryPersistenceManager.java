@@ -1,53 +1,28 @@
 package fr.tp.inf112.projects.robotsim.persistence;
 
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.IOException;
-import java.net.InetSocketAddress;
-import java.net.Socket;
 
 import fr.tp.inf112.projects.canvas.model.Canvas;
 import fr.tp.inf112.projects.canvas.model.CanvasChooser;
 import fr.tp.inf112.projects.canvas.model.impl.AbstractCanvasPersistenceManager;
 
 /**
- * Remote persistence manager: sends Canvas objects or ids to a remote persistence server.
+ * Remote persistence manager: sends Canvas objects or ids to a remote persistence server,
+ * over connections kept open between requests.
  */
 public class RemoteFactoryPersistenceManager extends AbstractCanvasPersistenceManager {
 
-    private final String host;
-    private final int port;
-    private final int timeoutMs = 3000;
+    private final PersistenceClientPool clientPool;
 
     public RemoteFactoryPersistenceManager(final CanvasChooser chooser, final String host, final int port) {
         super(chooser);
-        this.host = host;
-        this.port = port;
+        this.clientPool = new PersistenceClientPool(host, port);
     }
 
     @Override
     public Canvas read(final String canvasId) throws IOException {
-        try (Socket socket = new Socket()) {
-            socket.connect(new InetSocketAddress(host, port), timeoutMs);
-            try (ObjectOutputStream oos = new ObjectOutputStream(socket.getOutputStream());
-                 ObjectInputStream ois = new ObjectInputStream(socket.getInputStream())) {
-
-                // send only the base name to avoid sending client paths to the server
-                final String safeId = canvasId == null ? null : new java.io.File(canvasId).getName();
-                oos.flush();
-                oos.writeObject(safeId);
-                oos.flush();
-
-                final Object resp = ois.readObject();
-                if (resp instanceof Canvas) {
-                    return (Canvas) resp;
-                }
-                return null;
-            }
-            catch (final ClassNotFoundException ex) {
-                throw new IOException(ex);
-            }
-        }
+        // only the base name is sent, to avoid sending client paths to the server
+        return clientPool.read(canvasId);
     }
 
     @Override
@@ -62,26 +37,11 @@ public class RemoteFactoryPersistenceManager extends AbstractCanvasPersistenceMa
         final String safeId = new java.io.File(canvasModel.getId()).getName();
         canvasModel.setId(safeId);
 
-        try (Socket socket = new Socket()) {
-            socket.connect(new InetSocketAddress(host, port), timeoutMs);
-            try (ObjectOutputStream oos = new ObjectOutputStream(socket.getOutputStream());
-                 ObjectInputStream ois = new ObjectInputStream(socket.getInputStream())) {
-
-                oos.flush();
-                oos.writeObject(canvasModel);
-                oos.flush();
-
-                final Object resp = ois.readObject();
-                if (resp instanceof Boolean && Boolean.TRUE.equals(resp)) {
-                    return;
-                }
-                else {
-                    throw new IOException("Remote persist failed");
-                }
-            }
-            catch (final ClassNotFoundException ex) {
-                throw new IOException(ex);
-            }
+        try {
+            clientPool.persist(canvasModel);
+        }
+        catch (final IOException ex) {
+            throw new IOException("Remote persist failed", ex);
         }
     }
 
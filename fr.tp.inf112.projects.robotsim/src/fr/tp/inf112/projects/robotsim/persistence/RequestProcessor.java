@@ -1,95 +1,263 @@
 package fr.tp.inf112.projects.robotsim.persistence;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.IOException;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
-import fr.tp.inf112.projects.canvas.model.Canvas;
+import fr.tp.inf112.projects.robotsim.model.Factory;
+import fr.tp.inf112.projects.robotsim.model.FactoryCodec;
+import fr.tp.inf112.projects.robotsim.model.JournalFactoryPersistenceManager;
+import fr.tp.inf112.projects.robotsim.persistence.PersistenceProtocol.Frame;
 
 /**
- * Handles one client request: read or persist Canvas (Factory) objects
+ * Handles the requests of one client connection: read or persist Canvas (Factory) files,
+ * until the client closes the connection.
+ *
+ * Requests are handled in the order they are received, so that a read sent after a persist
+ * on the same connection sees it. Files are sent and stored as they are, without being
+ * deserialized by the server, and read from the cache shared by the connections as long
+ * as their version is the cached one.
+ *
+ * Versions are kept by the server in {@link CanvasVersions}, as the modification time of a
+ * file may not change between two persists within the resolution of the file system clock.
+ *
+ * With a {@link JournalFactoryPersistenceManager}, the factories written with the
+ * {@link FactoryCodec} are decoded and saved to their journal instead, and read back from
+ * it. The other canvases are still stored as they are.
  */
 public class RequestProcessor implements Runnable {
 
+    private static final String TEMPORARY_PREFIX = ".persist-";
+
     private final Socket socket;
     private final File storageDir;
+    private final CanvasCache cache;
+    private final CanvasVersions versions;
+    private final JournalFactoryPersistenceManager journalManager;
 
-    public RequestProcessor(final Socket socket, final File storageDir) {
+    /**
+     * @param journalManager the manager saving the factories to their journal, or {@code null}
+     * to store the files as they are.
+     */
+    public RequestProcessor(final Socket socket, final File storageDir, final CanvasCache cache, final CanvasVersions versions,
+                            final JournalFactoryPersistenceManager journalManager) {
         this.socket = socket;
         this.storageDir = storageDir;
+        this.cache = cache;
+        this.versions = versions;
+        this.journalManager = journalManager;
     }
 
     @Override
     public void run() {
-        try (ObjectOutputStream oos = new ObjectOutputStream(socket.getOutputStream());
-             ObjectInputStream ois = new ObjectInputStream(socket.getInputStream())) {
-
-            // flush header
-            oos.flush();
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+             DataOutputStream output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
 
-            final Object request = ois.readObject();
-
-            if (request instanceof String) {
-                final String cmd = (String) request;
-                if ("__LIST__".equals(cmd)) {
-                    final String[] names = storageDir.list();
-                    oos.writeObject(names);
-                    oos.flush();
+            while (true) {
+                final Frame request;
+                try {
+                    request = PersistenceProtocol.readFrame(input);
+                } catch (final EOFException | SocketTimeoutException e) {
+                    // Client closed the connection, or left it idle
                     return;
                 }
 
-                // Sanitize incoming id (client may send a path); use only the base name
-                final String safeName = cmd == null ? null : new File(cmd).getName();
-                final File file = new File(storageDir, safeName);
-                if (file.exists()) {
-                    try (ObjectInputStream fis = new ObjectInputStream(new FileInputStream(file))) {
-                        final Object loaded = fis.readObject();
-                        oos.writeObject(loaded);
-                        oos.flush();
-                    } catch (final Exception e) {
-                        // error reading file: return null to client
-                        oos.writeObject(null);
-                        oos.flush();
-                    }
-                }
-                else {
-                    oos.writeObject(null);
-                    oos.flush();
+                PersistenceProtocol.writeFrame(output, process(request));
+                // Responses to pipelined requests are flushed together
+                if (input.available() == 0) {
+                    output.flush();
                 }
             }
-            else if (request instanceof Canvas) {
-                final Canvas canvas = (Canvas) request;
-                final String id = canvas.getId() == null ? String.valueOf(System.currentTimeMillis()) : new File(canvas.getId()).getName();
-                final File file = new File(storageDir, id);
-                try (ObjectOutputStream fos = new ObjectOutputStream(new FileOutputStream(file))) {
-                    fos.writeObject(canvas);
-                    fos.flush();
-                    // Log the saved file so the server console confirms the write
-                    System.out.println("Saved canvas id='" + id + "' -> " + file.getAbsolutePath());
-                    oos.writeObject(Boolean.TRUE);
-                    oos.flush();
-                } catch (final Exception e) {
-                    System.err.println("Failed to persist canvas: " + e.getMessage());
-                    try {
-                        oos.writeObject(Boolean.FALSE);
-                        oos.flush();
-                    } catch (final Exception ignore) {}
-                }
-            }
-            else {
-                oos.writeObject(Boolean.FALSE);
-                oos.flush();
-            }
         }
-        catch (final Exception ex) {
+        catch (final IOException ex) {
             System.err.println("RequestProcessor error: " + ex.getMessage());
         }
         finally {
             try { socket.close(); } catch (final IOException ignore) {}
         }
     }
+
+    private Frame process(final Frame request) {
+        try {
+            final DataInputStream payload = new DataInputStream(new ByteArrayInputStream(request.payload()));
+            switch (request.code()) {
+                case PersistenceProtocol.READ:
+                    return read(request.requestId(), payload.readUTF(), PersistenceProtocol.NO_VERSION);
+                case PersistenceProtocol.READ_IF_MODIFIED:
+                    return read(request.requestId(), payload.readUTF(), payload.readLong());
+                case PersistenceProtocol.PERSIST:
+                    return persist(request.requestId(), payload.readUTF(), payload.readAllBytes());
+                case PersistenceProtocol.LIST:
+                    return list(request.requestId());
+                default:
+                    return error(request.requestId(), "Unknown operation " + request.code());
+            }
+        }
+        catch (final IOException e) {
+            System.err.println("Failed to process request: " + e.getMessage());
+            return error(request.requestId(), String.valueOf(e.getMessage()));
+        }
+    }
+
+    private Frame read(final int requestId, final String canvasId, final long clientVersion) throws IOException {
+        final Path file = getFile(canvasId);
+        final String id = file.getFileName().toString();
+        try {
+            final long version = versions.get(id, getLastSaveFile(file));
+            if (version == clientVersion) {
+                return new Frame(requestId, PersistenceProtocol.NOT_MODIFIED, new byte[0]);
+            }
+
+            CanvasCache.Entry entry = cache.get(id);
+            if (entry == null || entry.version() != version) {
+                // Newer bytes under an older version at worst, if persisted in between: read again next time
+                entry = new CanvasCache.Entry(version, PersistenceProtocol.versionPayload(version, readBytes(file)));
+                cache.put(id, entry);
+            }
+
+            return new Frame(requestId, PersistenceProtocol.OK, entry.payload());
+        }
+        catch (final NoSuchFileException e) {
+            cache.remove(id);
+            versions.remove(id);
+            return new Frame(requestId, PersistenceProtocol.NOT_FOUND, new byte[0]);
+        }
+    }
+
+    private Frame persist(final int requestId, final String canvasId, final byte[] canvasBytes) throws IOException {
+        if (!PersistenceProtocol.isCanvas(canvasBytes)) {
+            return error(requestId, "Not a canvas");
+        }
+
+        final String id = canvasId.isEmpty() ? String.valueOf(System.currentTimeMillis()) : canvasId;
+        final Path file = getFile(id);
+        final String fileName = file.getFileName().toString();
+        if (journalManager != null && FactoryCodec.isEncoded(canvasBytes)) {
+            return persistToJournal(requestId, file, canvasBytes);
+        }
+
+        // Written aside then moved, so that concurrent reads get the previous or the new file
+        final Path temporaryFile = Files.createTempFile(storageDir.toPath(), TEMPORARY_PREFIX, ".tmp");
+        final long version;
+        try {
+            Files.write(temporaryFile, canvasBytes);
+            // Persists from other connections of the server wait, so that versions increase
+            synchronized (storageDir) {
+                final Path previousFile = getLastSaveFile(file);
+                if (Files.exists(previousFile)) {
+                    // Seeds the version of a file written before the server started, which the new one passes
+                    versions.get(fileName, previousFile);
+                }
+
+                Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                version = versions.next(fileName, file);
+                cache.put(fileName, new CanvasCache.Entry(version, PersistenceProtocol.versionPayload(version, canvasBytes)));
+            }
+        }
+        finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+
+        // Log the saved file so the server console confirms the write
+        System.out.println("Saved canvas id='" + id + "' -> " + file.toAbsolutePath());
+        return new Frame(requestId, PersistenceProtocol.OK, PersistenceProtocol.versionPayload(version, new byte[0]));
+    }
+
+    /**
+     * Appends the changes of the factory to its journal, whose records are read back rather
+     * than the bytes sent, so that the bytes are not cached.
+     */
+    private Frame persistToJournal(final int requestId, final Path file, final byte[] canvasBytes) throws IOException {
+        final String fileName = file.getFileName().toString();
+        final Factory factory = FactoryCodec.decode(canvasBytes);
+        factory.setId(file.toString());
+        final long version;
+        synchronized (storageDir) {
+            final Path previousFile = getLastSaveFile(file);
+            if (Files.exists(previousFile)) {
+                versions.get(fileName, previousFile);
+            }
+
+            journalManager.persist(factory);
+            version = versions.next(fileName, getLastSaveFile(file));
+            cache.remove(fileName);
+        }
+
+        System.out.println("Saved canvas id='" + fileName + "' -> journal of " + file.toAbsolutePath());
+        return new Frame(requestId, PersistenceProtocol.OK, PersistenceProtocol.versionPayload(version, new byte[0]));
+    }
+
+    /**
+     * @return the file written by the last persist of the canvas, the last segment of its
+     * journal if saved there.
+     */
+    private Path getLastSaveFile(final Path file) throws IOException {
+        if (journalManager == null) {
+            return file;
+        }
+
+        final Path lastSaveFile = journalManager.getLastSaveFile(file.toString());
+        return lastSaveFile == null ? file : lastSaveFile;
+    }
+
+    private byte[] readBytes(final Path file) throws IOException {
+        if (journalManager != null && JournalFactoryPersistenceManager.isSegment(getLastSaveFile(file))) {
+            return FactoryCodec.encode((Factory) journalManager.read(file.toString()));
+        }
+
+        return Files.readAllBytes(file);
+    }
+
+    private Frame list(final int requestId) throws IOException {
+        final Set<String> ids = new LinkedHashSet<>();
+        final String[] names = storageDir.list();
+        if (names != null) {
+            for (final String name : names) {
+                final String segmentCanvasName = journalManager == null ? null : JournalFactoryPersistenceManager.getCanvasFileName(name);
+                if (segmentCanvasName != null) {
+                    ids.add(segmentCanvasName);
+                } else if (!name.startsWith(TEMPORARY_PREFIX)) {
+                    ids.add(name);
+                }
+            }
+        }
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream output = new DataOutputStream(bytes);
+        output.writeInt(ids.size());
+        for (final String id : ids) {
+            output.writeUTF(id);
+        }
+
+        return new Frame(requestId, PersistenceProtocol.OK, bytes.toByteArray());
+    }
+
+    // Sanitize incoming id (client may send a path); use only the base name
+    private Path getFile(final String canvasId) throws IOException {
+        final String safeName = PersistenceProtocol.safeId(canvasId);
+        if (safeName.isEmpty() || safeName.startsWith(TEMPORARY_PREFIX) || ".".equals(safeName) || "..".equals(safeName)) {
+            throw new IOException("Invalid canvas id '" + canvasId + "'");
+        }
+
+        return new File(storageDir, safeName).toPath();
+    }
+
+    private static Frame error(final int requestId, final String message) {
+        return new Frame(requestId, PersistenceProtocol.ERROR, message.getBytes(StandardCharsets.UTF_8));
+    }
 }
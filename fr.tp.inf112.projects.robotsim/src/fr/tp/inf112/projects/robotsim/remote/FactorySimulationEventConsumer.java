@@ -4,6 +4,7 @@ import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
 import org.apache.kafka.common.serialization.StringDeserializer;
 
 import java.time.Duration;
@@ -12,7 +13,7 @@ import java.util.Properties;
 
 public class FactorySimulationEventConsumer implements Runnable {
 
-    private final KafkaConsumer<String, String> consumer;
+    private final KafkaConsumer<String, byte[]> consumer;
     private final RemoteSimulatorController controller;
     private final String factoryId;
 
@@ -21,7 +22,7 @@ public class FactorySimulationEventConsumer implements Runnable {
         this.factoryId = factoryId;
         final Properties props = SimulationServiceUtils.getDefaultConsumerProperties();
         props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class);
         this.consumer = new KafkaConsumer<>(props);
         final String topicName = SimulationTopicsUtils.getTopicName(factoryId);
         this.consumer.subscribe(Collections.singletonList(topicName));
@@ -31,9 +32,9 @@ public class FactorySimulationEventConsumer implements Runnable {
     public void run() {
         try {
             while (controller.isPolling()) {
-                final ConsumerRecords<String, String> records = consumer.poll(Duration.ofMillis(200));
-                for (final ConsumerRecord<String, String> record : records) {
-                    controller.deliverFromJson(record.value());
+                final ConsumerRecords<String, byte[]> records = consumer.poll(Duration.ofMillis(200));
+                for (final ConsumerRecord<String, byte[]> record : records) {
+                    controller.deliver(record.value());
                 }
             }
         } finally {
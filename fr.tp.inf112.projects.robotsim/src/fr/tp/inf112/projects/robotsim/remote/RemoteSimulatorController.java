@@ -6,15 +6,20 @@ import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
+import java.util.Optional;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import fr.tp.inf112.projects.robotsim.model.Factory;
+import fr.tp.inf112.projects.robotsim.model.FactoryCodec;
+import fr.tp.inf112.projects.robotsim.model.notifier.FactoryModelEvent;
 
 /**
  * Remote simulator controller: start/stop remote simulation and poll the microservice for the
  * live Factory model. Consumers can register a listener to receive Factory updates.
+ * With event consumption, the listener receives the factory of the last keyframe, updated in
+ * place by the deltas that follow it.
  */
 public class RemoteSimulatorController {
 
@@ -31,6 +36,10 @@ public class RemoteSimulatorController {
     private Thread pollingThread;
     private final AtomicBoolean polling = new AtomicBoolean(false);
 
+    // Factory rebuilt from the Kafka events, and the last event applied to it
+    private Factory eventFactory;
+    private FactoryModelEvent lastEvent;
+
     public RemoteSimulatorController(final String baseUrl, final ObjectMapper objectMapper) {
         this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
         this.objectMapper = objectMapper;
@@ -45,15 +54,30 @@ public class RemoteSimulatorController {
         return polling.get();
     }
 
-    // Deliver JSON from Kafka consumer
-    public void deliverFromJson(final String json) {
+    // Deliver events from Kafka consumer: binary ones, or JSON ones as published before the binary codec
+    public void deliver(final byte[] bytes) {
         try {
-            if (json == null || json.isBlank()) return;
-            final Factory f = objectMapper.readValue(json, Factory.class);
-            if (listener != null) listener.onFactoryUpdate(f);
+            if (bytes == null || bytes.length == 0) return;
+            if (FactoryCodec.isEncodedEvent(bytes)) {
+                deliver(FactoryCodec.decodeEvent(bytes));
+            } else {
+                deliver(objectMapper.readValue(bytes, FactoryModelEvent.class));
+            }
         } catch (Exception ignored) { }
     }
 
+    private synchronized void deliver(final FactoryModelEvent event) {
+        if (!event.isDelta()) {
+            eventFactory = event.keyframe();
+        } else if (!event.follows(lastEvent) || !event.applyTo(eventFactory)) {
+            // An event was missed: skip the deltas until the next keyframe
+            return;
+        }
+
+        lastEvent = event;
+        if (listener != null) listener.onFactoryUpdate(eventFactory);
+    }
+
     public boolean startRemoteSimulation(final String id) throws IOException, InterruptedException {
         final HttpRequest req = HttpRequest.newBuilder()
                 .uri(URI.create(baseUrl + "/simulation/start?id=" + id))
@@ -77,22 +101,29 @@ public class RemoteSimulatorController {
     }
 
     public Factory fetchFactory(final String id) throws IOException, InterruptedException {
+        // Binary form preferred, JSON still accepted from older services
         final HttpRequest req = HttpRequest.newBuilder()
                 .uri(URI.create(baseUrl + "/simulation/" + id))
                 .timeout(Duration.ofSeconds(5))
+                .header("Accept", FactoryCodec.MEDIA_TYPE + ", application/json;q=0.5")
                 .GET()
                 .build();
 
-        final HttpResponse<String> resp = httpClient.send(req, HttpResponse.BodyHandlers.ofString());
+        final HttpResponse<byte[]> resp = httpClient.send(req, HttpResponse.BodyHandlers.ofByteArray());
         if (resp.statusCode() / 100 != 2) {
             return null;
         }
 
-        final String body = resp.body();
-        if (body == null || body.trim().isEmpty()) {
+        final byte[] body = resp.body();
+        if (body == null || body.length == 0) {
             return null;
         }
 
+        final Optional<String> contentType = resp.headers().firstValue("Content-Type");
+        if (contentType.isPresent() && contentType.get().startsWith(FactoryCodec.MEDIA_TYPE)) {
+            return FactoryCodec.decode(body);
+        }
+
         return objectMapper.readValue(body, Factory.class);
     }
 
@@ -137,6 +168,10 @@ public class RemoteSimulatorController {
     // Event-driven consumption via Kafka
     public void startEventConsumption(final String id) {
         if (polling.get()) return;
+        synchronized (this) {
+            eventFactory = null;
+            lastEvent = null;
+        }
         polling.set(true);
         pollingThread = new Thread(new FactorySimulationEventConsumer(this, id), "RemoteSimulatorController-kafka");
         pollingThread.setDaemon(true);
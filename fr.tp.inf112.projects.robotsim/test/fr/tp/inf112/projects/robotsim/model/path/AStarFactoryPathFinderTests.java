@@ -0,0 +1,104 @@
+package fr.tp.inf112.projects.robotsim.model.path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import fr.tp.inf112.projects.robotsim.model.Component;
+import fr.tp.inf112.projects.robotsim.model.Position;
+
+public class AStarFactoryPathFinderTests {
+
+	private TwoRoomFactory layout;
+
+	@BeforeEach
+	public void createFactory() {
+		layout = new TwoRoomFactory();
+	}
+
+	@Test
+	public void pathsAreShortest() {
+		final FactoryPathFinder finder = new AStarFactoryPathFinder(layout.factory, TwoRoomFactory.RESOLUTION);
+
+		new ReferenceGrid(layout.factory, TwoRoomFactory.RESOLUTION).assertShortestPaths(finder, layout.getComponents());
+	}
+
+	@Test
+	public void closedDoorIsWalkedAround() {
+		final FactoryPathFinder finder = new AStarFactoryPathFinder(layout.factory, TwoRoomFactory.RESOLUTION);
+		final int distance = finder.findPath(layout.rightStation, layout.leftStation).size();
+
+		layout.leftInnerDoor.close();
+
+		final ReferenceGrid grid = new ReferenceGrid(layout.factory, TwoRoomFactory.RESOLUTION);
+		final List<Position> path = finder.findPath(layout.rightStation, layout.leftStation);
+		assertTrue(path.size() > distance);
+		assertEquals(grid.getDistance(layout.rightStation, layout.leftStation), path.size());
+		grid.assertPath(path, layout.rightStation, layout.leftStation, DiagonalMoves.NONE);
+	}
+
+	@Test
+	public void closedRoomHasNoPath() {
+		final FactoryPathFinder finder = new AStarFactoryPathFinder(layout.factory, TwoRoomFactory.RESOLUTION);
+
+		layout.leftInnerDoor.close();
+		layout.leftOuterDoor.close();
+
+		assertTrue(finder.findPath(layout.firstRobot, layout.leftStation).isEmpty());
+		new ReferenceGrid(layout.factory, TwoRoomFactory.RESOLUTION).assertShortestPaths(finder, layout.getComponents());
+	}
+
+	@Test
+	public void diagonalPathsWithoutCornerCuttingAreCheapest() {
+		assertCheapestPaths(DiagonalMoves.NO_CORNER_CUTTING);
+	}
+
+	@Test
+	public void diagonalPathsWithoutSqueezingAreCheapest() {
+		assertCheapestPaths(DiagonalMoves.NO_SQUEEZING);
+	}
+
+	@Test
+	public void diagonalPathsAreCheapestAfterLayoutChanges() {
+		final FactoryPathFinder finder = new AStarFactoryPathFinder(layout.factory, TwoRoomFactory.RESOLUTION, GridHeuristic.OCTILE, DiagonalMoves.NO_CORNER_CUTTING);
+		finder.findPath(layout.firstRobot, layout.leftStation);
+
+		layout.leftOuterDoor.close();
+
+		assertCheapestPaths(finder, DiagonalMoves.NO_CORNER_CUTTING);
+	}
+
+	private void assertCheapestPaths(final DiagonalMoves diagonalMoves) {
+		assertCheapestPaths(new AStarFactoryPathFinder(layout.factory, TwoRoomFactory.RESOLUTION, GridHeuristic.OCTILE, diagonalMoves), diagonalMoves);
+	}
+
+	/**
+	 * Asserts that the finder finds a path of the lowest cost between each pair of
+	 * components with the given diagonal moves, or none if they cannot reach each
+	 * other.
+	 */
+	private void assertCheapestPaths(final FactoryPathFinder finder,
+									 final DiagonalMoves diagonalMoves) {
+		final ReferenceGrid grid = new ReferenceGrid(layout.factory, TwoRoomFactory.RESOLUTION);
+
+		for (final Component source : layout.getComponents()) {
+			for (final Component target : layout.getComponents()) {
+				final List<Position> path = finder.findPath(source, target);
+				final int cost = grid.getCost(source, target, diagonalMoves);
+				final String query = source.getName() + " -> " + target.getName();
+
+				if (cost == ReferenceGrid.UNREACHABLE) {
+					assertTrue(path.isEmpty(), query + " should have no path");
+				}
+				else {
+					assertEquals(cost, ReferenceGrid.getCost(grid.snap(source.getPosition()), path), query + " should be a cheapest path");
+					grid.assertPath(path, source, target, diagonalMoves);
+				}
+			}
+		}
+	}
+}
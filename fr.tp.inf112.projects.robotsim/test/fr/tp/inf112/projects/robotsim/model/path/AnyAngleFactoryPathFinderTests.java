@@ -0,0 +1,123 @@
+package fr.tp.inf112.projects.robotsim.model.path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import fr.tp.inf112.projects.robotsim.model.Component;
+import fr.tp.inf112.projects.robotsim.model.Position;
+
+public class AnyAngleFactoryPathFinderTests {
+
+	/** Length added to a step by rounding the coordinates of both its ends. */
+	private static final double MAX_ROUNDING_LENGTH = Math.sqrt(2);
+
+	private TwoRoomFactory layout;
+
+	@BeforeEach
+	public void createFactory() {
+		layout = new TwoRoomFactory();
+	}
+
+	@Test
+	public void smoothedGridPathsAreValid() {
+		assertSmoothedPaths(new AStarFactoryPathFinder(layout.factory, TwoRoomFactory.RESOLUTION), TwoRoomFactory.RESOLUTION);
+	}
+
+	@Test
+	public void openFloorPathsAreStraightened() {
+		final AStarFactoryPathFinder gridFinder = new AStarFactoryPathFinder(layout.factory, TwoRoomFactory.RESOLUTION);
+		final List<Position> path = new AnyAngleFactoryPathFinder(gridFinder).findPath(layout.firstRobot, layout.secondRobot);
+
+		assertEquals(Math.hypot(175, 30), getLength(layout.firstRobot.getPosition(), path), 1);
+	}
+
+	@Test
+	public void smoothedDiagonalPathsAreValid() {
+		assertSmoothedPaths(new AStarFactoryPathFinder(layout.factory, TwoRoomFactory.RESOLUTION, GridHeuristic.OCTILE, DiagonalMoves.NO_CORNER_CUTTING),
+							TwoRoomFactory.RESOLUTION * Math.sqrt(2));
+	}
+
+	@Test
+	public void smoothedPathsAreValidAfterLayoutChanges() {
+		final AStarFactoryPathFinder gridFinder = new AStarFactoryPathFinder(layout.factory, TwoRoomFactory.RESOLUTION);
+		new AnyAngleFactoryPathFinder(gridFinder).findPath(layout.firstRobot, layout.rightStation);
+
+		layout.leftInnerDoor.close();
+		layout.rightDoor.close();
+
+		assertSmoothedPaths(gridFinder, TwoRoomFactory.RESOLUTION);
+	}
+
+	@Test
+	public void cooperativePathsCannotBeSmoothed() {
+		final CooperativeAStarFactoryPathFinder cooperativeFinder = new CooperativeAStarFactoryPathFinder(layout.factory,
+																										  TwoRoomFactory.RESOLUTION,
+																										  new ReservationTable(() -> 0));
+
+		assertThrows(IllegalArgumentException.class, () -> new AnyAngleFactoryPathFinder(cooperativeFinder));
+	}
+
+	/**
+	 * Asserts that the smoothed path between each pair of components ends at the
+	 * same node as the grid path, is not longer than it, and moves by steps no
+	 * longer than the grid moves, up to the rounding of their coordinates, whose
+	 * cell sized squares overlap no obstacle.
+	 *
+	 * @param maxMoveLength the length of the longest move of the grid finder.
+	 */
+	private void assertSmoothedPaths(final AbstractFactoryPathFinder<?, ?> gridFinder,
+									 final double maxMoveLength) {
+		final FactoryPathFinder finder = new AnyAngleFactoryPathFinder(gridFinder);
+		final int resolution = TwoRoomFactory.RESOLUTION;
+
+		for (final Component source : layout.getComponents()) {
+			for (final Component target : layout.getComponents()) {
+				final List<Position> gridPath = gridFinder.findPath(source, target);
+				final List<Position> path = finder.findPath(source, target);
+				final String query = source.getName() + " -> " + target.getName();
+
+				if (gridPath.isEmpty()) {
+					assertTrue(path.isEmpty(), query + " should have no path");
+
+					continue;
+				}
+
+				assertEquals(gridPath.get(gridPath.size() - 1), path.get(path.size() - 1), query + " should end at the node of the target");
+				assertTrue(getLength(source.getPosition(), path) <= getLength(source.getPosition(), gridPath),
+						   query + " should not be longer than the grid path");
+
+				Position previousPosition = source.getPosition();
+
+				for (final Position position : path) {
+					final String step = query + ": " + previousPosition + " -> " + position;
+					assertTrue(getLength(previousPosition, List.of(position)) <= maxMoveLength + MAX_ROUNDING_LENGTH,
+							   step + " should not be longer than a grid move");
+					assertFalse(layout.factory.hasObstacleAt(position.getxCoordinate(), position.getyCoordinate(), resolution, resolution),
+								step + " should not overlap an obstacle");
+					previousPosition = position;
+				}
+			}
+		}
+	}
+
+	private static double getLength(final Position sourcePosition,
+									final List<Position> path) {
+		double length = 0;
+		Position previousPosition = sourcePosition;
+
+		for (final Position position : path) {
+			length += Math.hypot(position.getxCoordinate() - previousPosition.getxCoordinate(),
+								 position.getyCoordinate() - previousPosition.getyCoordinate());
+			previousPosition = position;
+		}
+
+		return length;
+	}
+}
@@ -0,0 +1,52 @@
+package fr.tp.inf112.projects.robotsim.model.path;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class ContractionHierarchyFactoryPathFinderTests {
+
+	private TwoRoomFactory layout;
+
+	@BeforeEach
+	public void createFactory() {
+		layout = new TwoRoomFactory();
+	}
+
+	@Test
+	public void pathsAreShortest() {
+		final ContractionHierarchyFactoryPathFinder finder = new ContractionHierarchyFactoryPathFinder(layout.factory, TwoRoomFactory.RESOLUTION);
+		finder.awaitHierarchy();
+
+		assertTrue(finder.isHierarchyReady());
+		new ReferenceGrid(layout.factory, TwoRoomFactory.RESOLUTION).assertShortestPaths(finder, layout.getComponents());
+	}
+
+	@Test
+	public void hierarchyIsSharedByTheFindersOfAFactory() {
+		new ContractionHierarchyFactoryPathFinder(layout.factory, TwoRoomFactory.RESOLUTION).awaitHierarchy();
+
+		assertTrue(new ContractionHierarchyFactoryPathFinder(layout.factory, TwoRoomFactory.RESOLUTION).isHierarchyReady());
+	}
+
+	@Test
+	public void hierarchyIsRecomputedAfterLayoutChanges() {
+		final ContractionHierarchyFactoryPathFinder finder = new ContractionHierarchyFactoryPathFinder(layout.factory, TwoRoomFactory.RESOLUTION);
+		finder.awaitHierarchy();
+
+		layout.leftInnerDoor.close();
+
+		assertFalse(finder.isHierarchyReady());
+
+		// Answered by Dijkstra until the new hierarchy is ready
+		final ReferenceGrid grid = new ReferenceGrid(layout.factory, TwoRoomFactory.RESOLUTION);
+		grid.assertShortestPaths(finder, layout.getComponents());
+
+		finder.awaitHierarchy();
+
+		assertTrue(finder.isHierarchyReady());
+		grid.assertShortestPaths(finder, layout.getComponents());
+	}
+}
@@ -0,0 +1,119 @@
+package fr.tp.inf112.projects.robotsim.model.path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import fr.tp.inf112.projects.robotsim.model.Battery;
+import fr.tp.inf112.projects.robotsim.model.ChargingStation;
+import fr.tp.inf112.projects.robotsim.model.Component;
+import fr.tp.inf112.projects.robotsim.model.Factory;
+import fr.tp.inf112.projects.robotsim.model.Position;
+import fr.tp.inf112.projects.robotsim.model.Robot;
+import fr.tp.inf112.projects.robotsim.model.shapes.CircularShape;
+import fr.tp.inf112.projects.robotsim.model.shapes.RectangularShape;
+
+public class CooperativeAStarFactoryPathFinderTests {
+
+	/** Long enough for the whole paths of the test factories to be returned. */
+	private static final int WINDOW = 128;
+
+	@Test
+	public void pathsOfASingleRobotAreShortest() {
+		final TwoRoomFactory layout = new TwoRoomFactory();
+		final ReferenceGrid grid = new ReferenceGrid(layout.factory, TwoRoomFactory.RESOLUTION);
+		final CooperativeAStarFactoryPathFinder finder = new CooperativeAStarFactoryPathFinder(layout.factory,
+																							   TwoRoomFactory.RESOLUTION,
+																							   new ReservationTable(() -> 0),
+																							   WINDOW);
+
+		for (final Robot robot : List.of(layout.firstRobot, layout.secondRobot)) {
+			for (final ChargingStation station : List.of(layout.leftStation, layout.rightStation)) {
+				final List<Position> path = finder.findPath(robot, station);
+				finder.releasePath(robot);
+
+				assertEquals(grid.getDistance(robot, station), path.size());
+				grid.assertPath(path, robot, station, DiagonalMoves.NONE);
+			}
+		}
+	}
+
+	@Test
+	public void robotsCrossingGiveWayToReservedCells() {
+		final Factory factory = new Factory(100, 100, "crossing");
+		final ReferenceGrid grid = new ReferenceGrid(factory, TwoRoomFactory.RESOLUTION);
+		final Robot leftRobot = new Robot(factory, null, new CircularShape(10, 50, 2), new Battery(10), "left-robot");
+		final Robot rightRobot = new Robot(factory, null, new CircularShape(90, 50, 2), new Battery(10), "right-robot");
+		final Component leftStation = new ChargingStation(factory, new RectangularShape(10, 50, 5, 5), "left-station");
+		final Component rightStation = new ChargingStation(factory, new RectangularShape(90, 50, 5, 5), "right-station");
+		final ReservationTable reservationTable = new ReservationTable(() -> 0);
+		final CooperativeAStarFactoryPathFinder leftFinder = new CooperativeAStarFactoryPathFinder(factory, TwoRoomFactory.RESOLUTION, reservationTable, WINDOW);
+		final CooperativeAStarFactoryPathFinder rightFinder = new CooperativeAStarFactoryPathFinder(factory, TwoRoomFactory.RESOLUTION, reservationTable, WINDOW);
+
+		// Head on along the same row
+		final List<Position> leftPath = leftFinder.findPath(leftRobot, rightStation);
+		final List<Position> rightPath = rightFinder.findPath(rightRobot, leftStation);
+
+		assertEquals(grid.getDistance(leftRobot, rightStation), leftPath.size());
+		assertTrue(rightPath.size() > grid.getDistance(rightRobot, leftStation), "The right robot should give way");
+		assertSchedule(grid, leftPath, leftRobot, rightStation);
+		assertSchedule(grid, rightPath, rightRobot, leftStation);
+
+		final Position leftStart = grid.snap(leftRobot.getPosition());
+		final Position rightStart = grid.snap(rightRobot.getPosition());
+		final int tickCount = Math.max(leftPath.size(), rightPath.size()) + 1;
+
+		for (int tick = 0; tick < tickCount; tick++) {
+			final Position leftPosition = getPosition(leftStart, leftPath, tick);
+			final Position rightPosition = getPosition(rightStart, rightPath, tick);
+			assertNotEquals(leftPosition, rightPosition, "Robots should not meet at tick " + tick);
+			assertFalse(leftPosition.equals(getPosition(rightStart, rightPath, tick + 1)) &&
+						rightPosition.equals(getPosition(leftStart, leftPath, tick + 1)),
+						"Robots should not swap their cells at tick " + tick);
+		}
+
+		// Once the left robot released its cells, the right one goes straight
+		leftFinder.releasePath(leftRobot);
+		assertEquals(grid.getDistance(rightRobot, leftStation), rightFinder.findPath(rightRobot, leftStation).size());
+	}
+
+	/**
+	 * Asserts that the schedule leads to the node of the target, each tick either
+	 * moving to an adjacent free cell or waiting.
+	 */
+	private static void assertSchedule(final ReferenceGrid grid,
+									   final List<Position> path,
+									   final Component source,
+									   final Component target) {
+		Position previousPosition = grid.snap(source.getPosition());
+
+		for (final Position position : path) {
+			if (!position.equals(previousPosition)) {
+				grid.assertMove(previousPosition, position, DiagonalMoves.NONE);
+			}
+
+			previousPosition = position;
+		}
+
+		assertEquals(grid.snap(target.getPosition()), previousPosition);
+	}
+
+	/**
+	 * @return the position of the schedule at the given tick, the start position
+	 * being at tick zero and the last one kept once reached.
+	 */
+	private static Position getPosition(final Position startPosition,
+										final List<Position> path,
+										final int tick) {
+		if (tick == 0) {
+			return startPosition;
+		}
+
+		return path.get(Math.min(tick, path.size()) - 1);
+	}
+}
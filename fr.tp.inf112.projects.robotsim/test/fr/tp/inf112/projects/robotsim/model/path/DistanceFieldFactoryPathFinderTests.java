@@ -0,0 +1,64 @@
+package fr.tp.inf112.projects.robotsim.model.path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import fr.tp.inf112.projects.robotsim.model.Component;
+import fr.tp.inf112.projects.robotsim.model.Position;
+
+public class DistanceFieldFactoryPathFinderTests {
+
+	private TwoRoomFactory layout;
+
+	@BeforeEach
+	public void createFactory() {
+		layout = new TwoRoomFactory();
+	}
+
+	@Test
+	public void pathsAreShortest() {
+		final FactoryPathFinder finder = new DistanceFieldFactoryPathFinder(layout.factory, TwoRoomFactory.RESOLUTION);
+
+		new ReferenceGrid(layout.factory, TwoRoomFactory.RESOLUTION).assertShortestPaths(finder, layout.getComponents());
+	}
+
+	@Test
+	public void precomputedFieldsAreRefreshedAfterLayoutChanges() {
+		final DistanceFieldFactoryPathFinder finder = new DistanceFieldFactoryPathFinder(layout.factory, TwoRoomFactory.RESOLUTION);
+		finder.precompute(layout.getComponents());
+
+		layout.leftInnerDoor.close();
+		finder.refresh();
+		new ReferenceGrid(layout.factory, TwoRoomFactory.RESOLUTION).assertShortestPaths(finder, layout.getComponents());
+
+		layout.leftInnerDoor.open();
+		layout.leftOuterDoor.close();
+		new ReferenceGrid(layout.factory, TwoRoomFactory.RESOLUTION).assertShortestPaths(finder, layout.getComponents());
+	}
+
+	@Test
+	public void batchPathsAreTheSinglePaths() {
+		final FactoryPathFinder finder = new DistanceFieldFactoryPathFinder(layout.factory, TwoRoomFactory.RESOLUTION);
+		final List<PathQuery> queries = new ArrayList<>();
+
+		for (final Component source : layout.getComponents()) {
+			for (final Component target : layout.getComponents()) {
+				queries.add(new PathQuery(source, target));
+			}
+		}
+
+		final List<List<Position>> paths = finder.findPaths(queries).join();
+
+		assertEquals(queries.size(), paths.size());
+
+		for (int index = 0; index < queries.size(); index++) {
+			final PathQuery query = queries.get(index);
+			assertEquals(finder.findPath(query.sourceComponent(), query.targetComponent()), paths.get(index));
+		}
+	}
+}
@@ -0,0 +1,80 @@
+package fr.tp.inf112.projects.robotsim.model.path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import fr.tp.inf112.projects.robotsim.model.Component;
+import fr.tp.inf112.projects.robotsim.model.Position;
+
+public class HierarchicalFactoryPathFinderTests {
+
+	private TwoRoomFactory layout;
+
+	@BeforeEach
+	public void createFactory() {
+		layout = new TwoRoomFactory();
+	}
+
+	@Test
+	public void pathsAreValid() {
+		assertValidPaths(new HierarchicalFactoryPathFinder(layout.factory, TwoRoomFactory.RESOLUTION));
+	}
+
+	@Test
+	public void pathsThroughSmallClustersAreValid() {
+		assertValidPaths(new HierarchicalFactoryPathFinder(layout.factory, TwoRoomFactory.RESOLUTION, 8));
+	}
+
+	@Test
+	public void doorTogglesAreRepaired() {
+		final HierarchicalFactoryPathFinder finder = new HierarchicalFactoryPathFinder(layout.factory, TwoRoomFactory.RESOLUTION);
+		finder.findPath(layout.firstRobot, layout.leftStation);
+		final int gatewayCount = finder.getGatewayCount();
+
+		layout.leftInnerDoor.close();
+		layout.leftOuterDoor.close();
+
+		assertTrue(finder.findPath(layout.firstRobot, layout.leftStation).isEmpty());
+		assertEquals(gatewayCount, finder.getGatewayCount());
+		assertValidPaths(finder);
+
+		layout.leftOuterDoor.open();
+
+		final ReferenceGrid grid = new ReferenceGrid(layout.factory, TwoRoomFactory.RESOLUTION);
+		final List<Position> path = finder.findPath(layout.firstRobot, layout.leftStation);
+		assertEquals(new HierarchicalFactoryPathFinder(layout.factory, TwoRoomFactory.RESOLUTION).findPath(layout.firstRobot, layout.leftStation),
+					 path);
+		grid.assertPath(path, layout.firstRobot, layout.leftStation, DiagonalMoves.NONE);
+		assertValidPaths(finder);
+	}
+
+	/**
+	 * Asserts that the finder finds a path between each pair of components that
+	 * can reach each other, possibly longer than the shortest one, and none
+	 * between the others.
+	 */
+	private void assertValidPaths(final FactoryPathFinder finder) {
+		final ReferenceGrid grid = new ReferenceGrid(layout.factory, TwoRoomFactory.RESOLUTION);
+
+		for (final Component source : layout.getComponents()) {
+			for (final Component target : layout.getComponents()) {
+				final List<Position> path = finder.findPath(source, target);
+				final int distance = grid.getDistance(source, target);
+				final String query = source.getName() + " -> " + target.getName();
+
+				if (distance == ReferenceGrid.UNREACHABLE) {
+					assertTrue(path.isEmpty(), query + " should have no path");
+				}
+				else {
+					assertTrue(path.size() >= distance, query + " should not be shorter than the shortest path");
+					grid.assertPath(path, source, target, DiagonalMoves.NONE);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,35 @@
+package fr.tp.inf112.projects.robotsim.model.path;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import fr.tp.inf112.projects.robotsim.model.Room;
+import fr.tp.inf112.projects.robotsim.model.shapes.RectangularShape;
+
+public class JumpPointSearchFactoryPathFinderTests {
+
+	private TwoRoomFactory layout;
+
+	@BeforeEach
+	public void createFactory() {
+		layout = new TwoRoomFactory();
+	}
+
+	@Test
+	public void pathsAreShortest() {
+		final FactoryPathFinder finder = new JumpPointSearchFactoryPathFinder(layout.factory, TwoRoomFactory.RESOLUTION);
+
+		new ReferenceGrid(layout.factory, TwoRoomFactory.RESOLUTION).assertShortestPaths(finder, layout.getComponents());
+	}
+
+	@Test
+	public void pathsAreShortestAfterLayoutChanges() {
+		final FactoryPathFinder finder = new JumpPointSearchFactoryPathFinder(layout.factory, TwoRoomFactory.RESOLUTION);
+		finder.findPath(layout.firstRobot, layout.rightStation);
+
+		layout.rightDoor.close();
+		new Room(layout.factory, new RectangularShape(40, 120, 60, 50), "lower-room");
+
+		new ReferenceGrid(layout.factory, TwoRoomFactory.RESOLUTION).assertShortestPaths(finder, layout.getComponents());
+	}
+}
@@ -0,0 +1,77 @@
+package fr.tp.inf112.projects.robotsim.model.path;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import fr.tp.inf112.projects.robotsim.model.Door;
+
+public class NavigationGraphCacheTests {
+
+	private TwoRoomFactory layout;
+
+	@BeforeEach
+	public void createFactory() {
+		layout = new TwoRoomFactory();
+	}
+
+	@Test
+	public void finderTypesShareTheirGrid() {
+		final AbstractFactoryPathFinder<?, ?> finder = new JGraphTDijkstraFactoryPathFinder(layout.factory, TwoRoomFactory.RESOLUTION);
+
+		assertSame(NavigationGraphCache.getGrid(finder),
+				   NavigationGraphCache.getGrid(new JGraphTDijkstraFactoryPathFinder(layout.factory, TwoRoomFactory.RESOLUTION)));
+	}
+
+	@Test
+	public void jgraphtDijkstraGridIsRepairedOnDoorToggles() {
+		assertRepairedOnDoorToggles(new JGraphTDijkstraFactoryPathFinder(layout.factory, TwoRoomFactory.RESOLUTION));
+	}
+
+	@Test
+	public void jgraphtAStarGridIsRepairedOnDoorToggles() {
+		assertRepairedOnDoorToggles(new JGraphTAStarFactoryPathFinder(layout.factory, TwoRoomFactory.RESOLUTION));
+	}
+
+	@Test
+	public void customDijkstraGridIsRepairedOnDoorToggles() {
+		assertRepairedOnDoorToggles(new CustomDijkstraFactoryPathFinder(layout.factory, TwoRoomFactory.RESOLUTION));
+	}
+
+	@Test
+	public void gridLatticeBfsGridIsRepairedOnDoorToggles() {
+		assertRepairedOnDoorToggles(new GridLatticeBfsFactoryPathFinder(layout.factory, TwoRoomFactory.RESOLUTION));
+	}
+
+	/**
+	 * Asserts that the finder keeps finding the shortest paths while the doors
+	 * are opened and closed, its grid being repaired rather than rebuilt.
+	 */
+	private void assertRepairedOnDoorToggles(final AbstractFactoryPathFinder<?, ?> finder) {
+		finder.findPath(layout.firstRobot, layout.leftStation);
+		final NavigationGrid<?, ?> grid = NavigationGraphCache.getGrid(finder);
+
+		setOpen(layout.leftInnerDoor, false, finder);
+		setOpen(layout.leftOuterDoor, false, finder);
+		setOpen(layout.leftInnerDoor, true, finder);
+		setOpen(layout.rightDoor, false, finder);
+		setOpen(layout.leftOuterDoor, true, finder);
+		setOpen(layout.rightDoor, true, finder);
+
+		assertSame(grid, NavigationGraphCache.getGrid(finder));
+	}
+
+	private void setOpen(final Door door,
+						 final boolean open,
+						 final FactoryPathFinder finder) {
+		if (open) {
+			door.open();
+		}
+		else {
+			door.close();
+		}
+
+		new ReferenceGrid(layout.factory, TwoRoomFactory.RESOLUTION).assertShortestPaths(finder, layout.getComponents());
+	}
+}
@@ -0,0 +1,255 @@
+package fr.tp.inf112.projects.robotsim.model.path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Queue;
+
+import fr.tp.inf112.projects.robotsim.model.Component;
+import fr.tp.inf112.projects.robotsim.model.Factory;
+import fr.tp.inf112.projects.robotsim.model.Position;
+import fr.tp.inf112.projects.robotsim.model.shapes.RectangularShape;
+
+/**
+ * Grid of the current layout of a factory, computed independently of the path
+ * finders as the reference of their paths: a cell of the resolution size at each
+ * grid node, free unless it overlaps an obstacle.
+ */
+final class ReferenceGrid {
+
+	static final int UNREACHABLE = -1;
+
+	private static final int[] X_STEPS = { 0, 1, 0, -1, 1, 1, -1, -1 };
+
+	private static final int[] Y_STEPS = { -1, 0, 1, 0, -1, 1, 1, -1 };
+
+	private final int resolution;
+
+	private final int xSize;
+
+	private final int ySize;
+
+	private final boolean[] obstacleCells;
+
+	ReferenceGrid(final Factory factory,
+				  final int resolution) {
+		this.resolution = resolution;
+		this.xSize = factory.getWidth() / resolution;
+		this.ySize = factory.getHeight() / resolution;
+		this.obstacleCells = new boolean[xSize * ySize];
+
+		for (int yIndex = 0; yIndex < ySize; yIndex++) {
+			for (int xIndex = 0; xIndex < xSize; xIndex++) {
+				obstacleCells[yIndex * xSize + xIndex] = factory.hasObstacleAt(new RectangularShape(xIndex * resolution,
+																									 yIndex * resolution,
+																									 resolution,
+																									 resolution));
+			}
+		}
+	}
+
+	/**
+	 * @return the grid node nearest to the given position, the lower one when two
+	 * are as near, positions outside the grid going to its border.
+	 */
+	Position snap(final Position position) {
+		return new Position(snapIndex(position.getxCoordinate(), xSize) * resolution,
+							snapIndex(position.getyCoordinate(), ySize) * resolution);
+	}
+
+	private int snapIndex(final int coordinate,
+						  final int size) {
+		final int lowerIndex = Math.floorDiv(coordinate, resolution);
+		final boolean nearerUpper = (lowerIndex + 1) * resolution - coordinate < coordinate - lowerIndex * resolution;
+
+		return Math.max(0, Math.min(size - 1, nearerUpper ? lowerIndex + 1 : lowerIndex));
+	}
+
+	/**
+	 * @return {@code true} if the position is a grid node whose cell does not
+	 * overlap an obstacle.
+	 */
+	boolean isFree(final Position position) {
+		return position.getxCoordinate() % resolution == 0 && position.getyCoordinate() % resolution == 0 &&
+			   isFree(position.getxCoordinate() / resolution, position.getyCoordinate() / resolution);
+	}
+
+	private boolean isFree(final int xIndex,
+						   final int yIndex) {
+		return xIndex >= 0 && xIndex < xSize && yIndex >= 0 && yIndex < ySize && !obstacleCells[yIndex * xSize + xIndex];
+	}
+
+	/**
+	 * @return the number of moves between adjacent free cells of the shortest path
+	 * between the nodes of the given components, found breadth first, or
+	 * {@link #UNREACHABLE}.
+	 */
+	int getDistance(final Component source,
+					final Component target) {
+		final int sourceCell = getCell(snap(source.getPosition()));
+		final int targetCell = getCell(snap(target.getPosition()));
+		final int[] distances = new int[xSize * ySize];
+		final Queue<Integer> openCells = new ArrayDeque<>();
+		Arrays.fill(distances, UNREACHABLE);
+		distances[sourceCell] = 0;
+		openCells.add(sourceCell);
+
+		while (!openCells.isEmpty() && distances[targetCell] == UNREACHABLE) {
+			final int cell = openCells.remove();
+
+			for (int direction = 0; direction < 4; direction++) {
+				final int succxIndex = cell % xSize + X_STEPS[direction];
+				final int succyIndex = cell / xSize + Y_STEPS[direction];
+
+				if (isFree(succxIndex, succyIndex) && distances[succyIndex * xSize + succxIndex] == UNREACHABLE) {
+					distances[succyIndex * xSize + succxIndex] = distances[cell] + 1;
+					openCells.add(succyIndex * xSize + succxIndex);
+				}
+			}
+		}
+
+		return distances[targetCell];
+	}
+
+	/**
+	 * @return the cost of the cheapest path between the nodes of the given
+	 * components with the given diagonal moves, as weighted by
+	 * {@link GridHeuristic}, or {@link #UNREACHABLE}.
+	 */
+	int getCost(final Component source,
+				final Component target,
+				final DiagonalMoves diagonalMoves) {
+		final int sourceCell = getCell(snap(source.getPosition()));
+		final int targetCell = getCell(snap(target.getPosition()));
+		final int[] costs = new int[xSize * ySize];
+		final PriorityQueue<int[]> openCells = new PriorityQueue<>((cell1, cell2) -> Integer.compare(cell1[0], cell2[0]));
+		Arrays.fill(costs, Integer.MAX_VALUE);
+		costs[sourceCell] = 0;
+		openCells.add(new int[] { 0, sourceCell });
+
+		while (!openCells.isEmpty()) {
+			final int[] openCell = openCells.remove();
+			final int cell = openCell[1];
+
+			if (openCell[0] > costs[cell]) {
+				continue;
+			}
+
+			final int xIndex = cell % xSize;
+			final int yIndex = cell / xSize;
+
+			for (int direction = 0; direction < X_STEPS.length; direction++) {
+				final int succxIndex = xIndex + X_STEPS[direction];
+				final int succyIndex = yIndex + Y_STEPS[direction];
+				final boolean diagonal = direction >= 4;
+
+				if (!isFree(succxIndex, succyIndex) ||
+					diagonal && !diagonalMoves.allows(isFree(succxIndex, yIndex), isFree(xIndex, succyIndex))) {
+					continue;
+				}
+
+				final int succCost = costs[cell] + (diagonal ? GridHeuristic.DIAGONAL_COST : GridHeuristic.STRAIGHT_COST);
+
+				if (succCost < costs[succyIndex * xSize + succxIndex]) {
+					costs[succyIndex * xSize + succxIndex] = succCost;
+					openCells.add(new int[] { succCost, succyIndex * xSize + succxIndex });
+				}
+			}
+		}
+
+		return costs[targetCell] == Integer.MAX_VALUE ? UNREACHABLE : costs[targetCell];
+	}
+
+	/**
+	 * Asserts that the finder finds a shortest 4-connected path between each pair
+	 * of the given components, or none if they cannot reach each other.
+	 */
+	void assertShortestPaths(final FactoryPathFinder finder,
+							 final List<? extends Component> components) {
+		for (final Component source : components) {
+			for (final Component target : components) {
+				final List<Position> path = finder.findPath(source, target);
+				final int distance = getDistance(source, target);
+				final String query = source.getName() + " -> " + target.getName();
+
+				if (distance == UNREACHABLE) {
+					assertTrue(path.isEmpty(), query + " should have no path");
+				}
+				else {
+					assertEquals(distance, path.size(), query + " should be a shortest path");
+					assertPath(path, source, target, DiagonalMoves.NONE);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Asserts that the path leads from the node of the source component to the
+	 * node of the target one, one move at a time through free cells.
+	 *
+	 * @param path the path, excluding the source node.
+	 */
+	void assertPath(final List<Position> path,
+					final Component source,
+					final Component target,
+					final DiagonalMoves diagonalMoves) {
+		Position previousPosition = snap(source.getPosition());
+
+		for (final Position position : path) {
+			assertMove(previousPosition, position, diagonalMoves);
+			previousPosition = position;
+		}
+
+		assertEquals(snap(target.getPosition()), previousPosition, "Path should end at the node of " + target.getName());
+	}
+
+	/**
+	 * Asserts that a component can move from a free node to another one in one
+	 * step with the given diagonal moves.
+	 */
+	void assertMove(final Position fromPosition,
+					final Position toPosition,
+					final DiagonalMoves diagonalMoves) {
+		assertTrue(isFree(toPosition), toPosition + " should be a free grid node");
+
+		final int xStep = (toPosition.getxCoordinate() - fromPosition.getxCoordinate()) / resolution;
+		final int yStep = (toPosition.getyCoordinate() - fromPosition.getyCoordinate()) / resolution;
+		final String move = fromPosition + " -> " + toPosition;
+
+		if (Math.abs(xStep) + Math.abs(yStep) == 2) {
+			final int xIndex = fromPosition.getxCoordinate() / resolution;
+			final int yIndex = fromPosition.getyCoordinate() / resolution;
+			assertTrue(Math.abs(xStep) == 1 && diagonalMoves.allows(isFree(xIndex + xStep, yIndex), isFree(xIndex, yIndex + yStep)),
+					   move + " should be an allowed diagonal move");
+		}
+		else {
+			assertEquals(1, Math.abs(xStep) + Math.abs(yStep), move + " should move to an adjacent node");
+		}
+	}
+
+	/**
+	 * @return the cost of the path as weighted by {@link GridHeuristic}.
+	 */
+	static int getCost(final Position sourcePosition,
+					   final List<Position> path) {
+		int cost = 0;
+		Position previousPosition = sourcePosition;
+
+		for (final Position position : path) {
+			final boolean diagonal = position.getxCoordinate() != previousPosition.getxCoordinate() &&
+									 position.getyCoordinate() != previousPosition.getyCoordinate();
+			cost += diagonal ? GridHeuristic.DIAGONAL_COST : GridHeuristic.STRAIGHT_COST;
+			previousPosition = position;
+		}
+
+		return cost;
+	}
+
+	private int getCell(final Position node) {
+		return node.getyCoordinate() / resolution * xSize + node.getxCoordinate() / resolution;
+	}
+}
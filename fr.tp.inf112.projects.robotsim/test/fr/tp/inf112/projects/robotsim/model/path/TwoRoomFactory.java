@@ -0,0 +1,57 @@
+package fr.tp.inf112.projects.robotsim.model.path;
+
+import java.util.List;
+
+import fr.tp.inf112.projects.robotsim.model.Battery;
+import fr.tp.inf112.projects.robotsim.model.ChargingStation;
+import fr.tp.inf112.projects.robotsim.model.Component;
+import fr.tp.inf112.projects.robotsim.model.Door;
+import fr.tp.inf112.projects.robotsim.model.Factory;
+import fr.tp.inf112.projects.robotsim.model.Robot;
+import fr.tp.inf112.projects.robotsim.model.Room;
+import fr.tp.inf112.projects.robotsim.model.shapes.CircularShape;
+import fr.tp.inf112.projects.robotsim.model.shapes.RectangularShape;
+
+/**
+ * Factory of 200 x 200 with two rooms side by side, a charging station in each
+ * room and two robots outside of them. The left room has a door towards the
+ * outside and a door towards the aisle between the rooms, and the right room a
+ * door towards this aisle.
+ */
+final class TwoRoomFactory {
+
+	static final int RESOLUTION = 5;
+
+	final Factory factory;
+
+	final Door leftOuterDoor;
+
+	final Door leftInnerDoor;
+
+	final Door rightDoor;
+
+	final ChargingStation leftStation;
+
+	final ChargingStation rightStation;
+
+	final Robot firstRobot;
+
+	final Robot secondRobot;
+
+	TwoRoomFactory() {
+		factory = new Factory(200, 200, "two-rooms");
+		final Room leftRoom = new Room(factory, new RectangularShape(20, 20, 75, 75), "left-room");
+		final Room rightRoom = new Room(factory, new RectangularShape(120, 22, 75, 75), "right-room");
+		leftOuterDoor = new Door(leftRoom, Room.WALL.BOTTOM, 10, 20, true, "left-outer-door");
+		rightDoor = new Door(rightRoom, Room.WALL.LEFT, 10, 20, true, "right-door");
+		leftInnerDoor = new Door(leftRoom, Room.WALL.RIGHT, 30, 20, true, "left-inner-door");
+		leftStation = new ChargingStation(factory, new RectangularShape(50, 50, 15, 15), "left-station");
+		rightStation = new ChargingStation(factory, new RectangularShape(150, 50, 15, 15), "right-station");
+		firstRobot = new Robot(factory, null, new CircularShape(5, 150, 2), new Battery(10), "first-robot");
+		secondRobot = new Robot(factory, null, new CircularShape(180, 180, 2), new Battery(10), "second-robot");
+	}
+
+	List<Component> getComponents() {
+		return List.of(leftStation, rightStation, firstRobot, secondRobot);
+	}
+}
@@ -1,7 +1,7 @@
 package fr.tp.slr201.projects.robotsim.service.simulation.config;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import fr.tp.inf112.projects.robotsim.model.Factory;
+import fr.tp.inf112.projects.robotsim.model.notifier.FactoryModelEvent;
+import fr.tp.slr201.projects.robotsim.service.simulation.kafka.FactoryModelEventSerializer;
 import org.apache.kafka.clients.admin.AdminClient;
 import org.apache.kafka.clients.admin.AdminClientConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
@@ -13,7 +13,6 @@ import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaAdmin;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.core.ProducerFactory;
-import org.springframework.kafka.support.serializer.JsonSerializer;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -37,19 +36,17 @@ public class SimulationKafkaConfig {
     }
 
     @Bean
-    public ProducerFactory<String, Factory> producerFactory(final ObjectMapper mapper) {
+    public ProducerFactory<String, FactoryModelEvent> producerFactory() {
         final Map<String, Object> config = new HashMap<>();
         config.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, BOOTSTRAP_SERVERS);
         config.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        // Value serializer uses our primary ObjectMapper
-        final JsonSerializer<Factory> factorySerializer = new JsonSerializer<>(mapper);
-        factorySerializer.setAddTypeInfo(false);
-        return new DefaultKafkaProducerFactory<>(config, new StringSerializer(), factorySerializer);
+        // Binary events: a fraction of the size and encoding time of the typed JSON
+        return new DefaultKafkaProducerFactory<>(config, new StringSerializer(), new FactoryModelEventSerializer());
     }
 
     @Bean
     @Primary
-    public KafkaTemplate<String, Factory> kafkaTemplate(final ProducerFactory<String, Factory> pf) {
+    public KafkaTemplate<String, FactoryModelEvent> kafkaTemplate(final ProducerFactory<String, FactoryModelEvent> pf) {
         return new KafkaTemplate<>(pf);
     }
 }
@@ -14,6 +14,7 @@ import java.util.List;
 import org.springframework.web.bind.annotation.RestController;
 
 import fr.tp.inf112.projects.robotsim.model.Factory;
+import fr.tp.inf112.projects.robotsim.model.FactoryCodec;
 import fr.tp.slr201.projects.robotsim.service.simulation.dto.FactoryDTO;
 import fr.tp.slr201.projects.robotsim.service.simulation.service.SimulationService;
 
@@ -61,6 +62,20 @@ public class SimulationController {
         return ResponseEntity.ok(f);
     }
 
+    /**
+     * Binary form of the factory model, for clients accepting the factory codec media type.
+     */
+    @GetMapping(value = "/{id}", produces = FactoryCodec.MEDIA_TYPE)
+    public ResponseEntity<byte[]> getEncoded(@PathVariable("id") final String id) {
+        LOG.debug("REST get encoded called for id='{}'", id);
+        final Factory f = simulationService.getFactory(id);
+        if (f == null) {
+            LOG.warn("Factory id='{}' not found among running simulations (encoded)", id);
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(FactoryCodec.encode(f));
+    }
+
     /**
      * Stop a running simulation.
      */
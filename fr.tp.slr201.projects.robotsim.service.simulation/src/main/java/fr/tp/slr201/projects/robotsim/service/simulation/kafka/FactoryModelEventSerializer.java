@@ -0,0 +1,17 @@
+package fr.tp.slr201.projects.robotsim.service.simulation.kafka;
+
+import fr.tp.inf112.projects.robotsim.model.FactoryCodec;
+import fr.tp.inf112.projects.robotsim.model.notifier.FactoryModelEvent;
+import org.apache.kafka.common.serialization.Serializer;
+
+/**
+ * Writes the factory events with the binary {@link FactoryCodec}, read back by
+ * the remote simulator controller.
+ */
+public class FactoryModelEventSerializer implements Serializer<FactoryModelEvent> {
+
+    @Override
+    public byte[] serialize(final String topic, final FactoryModelEvent event) {
+        return event == null ? null : FactoryCodec.encodeEvent(event);
+    }
+}
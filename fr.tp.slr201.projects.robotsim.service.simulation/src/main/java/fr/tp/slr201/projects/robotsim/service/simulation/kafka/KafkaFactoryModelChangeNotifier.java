@@ -2,6 +2,8 @@ package fr.tp.slr201.projects.robotsim.service.simulation.kafka;
 
 import fr.tp.inf112.projects.robotsim.model.Factory;
 import fr.tp.inf112.projects.robotsim.model.notifier.FactoryModelChangedNotifier;
+import fr.tp.inf112.projects.robotsim.model.notifier.FactoryModelEvent;
+import fr.tp.inf112.projects.robotsim.model.notifier.FactoryModelEventEncoder;
 import org.apache.kafka.clients.admin.AdminClient;
 import org.apache.kafka.clients.admin.NewTopic;
 import org.slf4j.Logger;
@@ -14,20 +16,27 @@ import org.springframework.messaging.support.MessageBuilder;
 import java.util.Collections;
 import java.util.concurrent.CompletableFuture;
 
+/**
+ * Publishes the changes of a factory as {@link FactoryModelEvent}s: keyframes
+ * of the whole model from time to time, and deltas of the components that
+ * moved in between.
+ */
 public class KafkaFactoryModelChangeNotifier implements FactoryModelChangedNotifier {
 
     private static final Logger LOG = LoggerFactory.getLogger(KafkaFactoryModelChangeNotifier.class);
 
     private final Factory factoryModel;
-    private final KafkaTemplate<String, Factory> kafkaTemplate;
+    private final KafkaTemplate<String, FactoryModelEvent> kafkaTemplate;
     private final AdminClient adminClient;
+    private final FactoryModelEventEncoder eventEncoder;
 
     public KafkaFactoryModelChangeNotifier(final Factory factoryModel,
-                                           final KafkaTemplate<String, Factory> kafkaTemplate,
+                                           final KafkaTemplate<String, FactoryModelEvent> kafkaTemplate,
                                            final AdminClient adminClient) {
         this.factoryModel = factoryModel;
         this.kafkaTemplate = kafkaTemplate;
         this.adminClient = adminClient;
+        this.eventEncoder = new FactoryModelEventEncoder(factoryModel);
 
         ensureTopicExists();
     }
@@ -46,10 +55,21 @@ public class KafkaFactoryModelChangeNotifier implements FactoryModelChangedNotif
         }
     }
 
+    /**
+     * Events are encoded and handed to the producer under the lock of the
+     * notifier, so that they are published in the order of their sequence
+     * numbers. The producer serializes a keyframe before returning, so it holds
+     * every move recorded by the encoder.
+     */
     @Override
-    public void notifyObservers() {
+    public synchronized void notifyObservers() {
         try {
-            final Message<Factory> message = MessageBuilder.withPayload(factoryModel)
+            final FactoryModelEvent event = eventEncoder.nextEvent();
+            if (event == null) {
+                return;
+            }
+
+            final Message<FactoryModelEvent> message = MessageBuilder.withPayload(event)
                     .setHeader(KafkaHeaders.TOPIC, topicName())
                     .build();
             final CompletableFuture<?> result = kafkaTemplate.send(message);
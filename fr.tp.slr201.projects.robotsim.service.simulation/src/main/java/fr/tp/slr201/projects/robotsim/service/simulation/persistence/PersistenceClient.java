@@ -1,30 +1,34 @@
 package fr.tp.slr201.projects.robotsim.service.simulation.persistence;
 
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.net.InetSocketAddress;
-import java.net.Socket;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import fr.tp.inf112.projects.canvas.model.Canvas;
 import fr.tp.inf112.projects.robotsim.model.Factory;
+import fr.tp.inf112.projects.robotsim.persistence.PersistenceClientPool;
 
 /**
- * Small client to talk to the existing socket-based persistence server.
+ * Small client to talk to the existing socket-based persistence server,
+ * over a pool of connections kept open between reads.
  */
-public class PersistenceClient {
+public class PersistenceClient implements AutoCloseable {
 
     private static final Logger LOG = LoggerFactory.getLogger(PersistenceClient.class);
 
     private final String host;
     private final int port;
-    private final int timeoutMs = 3000;
+    private final PersistenceClientPool clientPool;
 
     public PersistenceClient(final String host, final int port) {
+        this(host, port, PersistenceClientPool.DEFAULT_SIZE);
+    }
+
+    public PersistenceClient(final String host, final int port, final int poolSize) {
         this.host = host;
         this.port = port;
+        this.clientPool = new PersistenceClientPool(host, port, poolSize, PersistenceClientPool.DEFAULT_TIMEOUT_MS);
     }
 
     /**
@@ -32,34 +36,26 @@ public class PersistenceClient {
      * Returns null if not found or on error.
      */
     public Factory readFactory(final String id) {
-        try (Socket socket = new Socket()) {
-            socket.connect(new InetSocketAddress(host, port), timeoutMs);
-            try (ObjectOutputStream oos = new ObjectOutputStream(socket.getOutputStream());
-                 ObjectInputStream ois = new ObjectInputStream(socket.getInputStream())) {
-
-                final String safeId = id == null ? null : new java.io.File(id).getName();
-                LOG.debug("Requesting factory id='{}' from persistence server {}:{}", safeId, host, port);
-
-                oos.flush();
-                oos.writeObject(safeId);
-                oos.flush();
-
-                final Object resp = ois.readObject();
-                if (resp instanceof Factory) {
-                    LOG.info("Received factory id='{}' from persistence server", safeId);
-                    return (Factory) resp;
-                }
-
-                LOG.warn("Persistence server returned unexpected response type: {}", resp == null ? "null" : resp.getClass());
-                return null;
-            }
-            catch (final ClassNotFoundException ex) {
-                LOG.error("Error deserializing response from persistence server", ex);
-                return null;
+        final String safeId = id == null ? null : new java.io.File(id).getName();
+        LOG.debug("Requesting factory id='{}' from persistence server {}:{}", safeId, host, port);
+
+        try {
+            final Canvas resp = clientPool.read(safeId);
+            if (resp instanceof Factory) {
+                LOG.info("Received factory id='{}' from persistence server", safeId);
+                return (Factory) resp;
             }
+
+            LOG.warn("Persistence server returned unexpected response type: {}", resp == null ? "null" : resp.getClass());
+            return null;
         } catch (final IOException e) {
             LOG.error("IO error talking to persistence server {}:{}", host, port, e);
             return null;
         }
     }
+
+    @Override
+    public void close() {
+        clientPool.close();
+    }
 }
@@ -3,6 +3,8 @@ package fr.tp.slr201.projects.robotsim.service.simulation.service;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
+import jakarta.annotation.PreDestroy;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -15,6 +17,8 @@ import fr.tp.inf112.projects.robotsim.model.Conveyor;
 import fr.tp.inf112.projects.robotsim.model.Room;
 import fr.tp.inf112.projects.robotsim.model.Area;
 import fr.tp.inf112.projects.robotsim.model.Machine;
+import fr.tp.inf112.projects.robotsim.model.notifier.CoalescingFactoryModelChangedNotifier;
+import fr.tp.inf112.projects.robotsim.model.notifier.FactoryModelEvent;
 import fr.tp.inf112.projects.robotsim.model.shapes.CircularShape;
 import fr.tp.inf112.projects.robotsim.model.shapes.RectangularShape;
 import fr.tp.slr201.projects.robotsim.service.simulation.persistence.PersistenceClient;
@@ -39,16 +43,21 @@ public class SimulationService {
 
     private final boolean fallbackOnMissing;
 
-    private final KafkaTemplate<String, Factory> kafkaTemplate;
+    private final int maxNotificationRate;
+
+    private final KafkaTemplate<String, FactoryModelEvent> kafkaTemplate;
     private final AdminClient adminClient;
 
     public SimulationService(@Value("${persistence.host:localhost}") final String host,
                              @Value("${persistence.port:1957}") final int port,
+                             @Value("${persistence.poolSize:4}") final int persistencePoolSize,
                              @Value("${simulation.fallbackOnMissing:true}") final boolean fallbackOnMissing,
-                             final KafkaTemplate<String, Factory> kafkaTemplate,
+                             @Value("${simulation.maxNotificationRate:20}") final int maxNotificationRate,
+                             final KafkaTemplate<String, FactoryModelEvent> kafkaTemplate,
                              final AdminClient adminClient) {
-        this.persistenceClient = new PersistenceClient(host, port);
+        this.persistenceClient = new PersistenceClient(host, port, persistencePoolSize);
         this.fallbackOnMissing = fallbackOnMissing;
+        this.maxNotificationRate = maxNotificationRate;
         this.kafkaTemplate = kafkaTemplate;
         this.adminClient = adminClient;
     }
@@ -82,9 +91,10 @@ public class SimulationService {
         }
 
         factory.setId(id);
-        // Set Kafka notifier so every model change publishes an event
+        // Set Kafka notifier so model changes publish an event, at most maxNotificationRate times per second
         try {
-            factory.setNotifier(new KafkaFactoryModelChangeNotifier(factory, kafkaTemplate, adminClient));
+            factory.setNotifier(new CoalescingFactoryModelChangedNotifier(new KafkaFactoryModelChangeNotifier(factory, kafkaTemplate, adminClient),
+                                                                          maxNotificationRate));
         } catch (final Exception e) {
             LOG.warn("Unable to configure Kafka notifier for id='{}': {}", id, e.getMessage());
         }
@@ -180,7 +190,22 @@ public class SimulationService {
             return false;
         }
         task.stop();
+        if (task.getFactory().getNotifier() instanceof CoalescingFactoryModelChangedNotifier notifier) {
+            notifier.shutdown();
+        }
         LOG.info("Simulation stopped for id='{}'", id);
         return true;
     }
+
+    /**
+     * Stop the running simulations and close the persistence connections when the application stops.
+     */
+    @PreDestroy
+    public void shutdown() {
+        for (final String id : new ArrayList<>(running.keySet())) {
+            stopSimulation(id);
+        }
+
+        persistenceClient.close();
+    }
 }
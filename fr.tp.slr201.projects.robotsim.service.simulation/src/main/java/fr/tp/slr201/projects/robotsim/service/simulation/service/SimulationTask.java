@@ -91,6 +91,7 @@ public class SimulationTask implements Runnable {
                             }
                             c.getPosition().setxCoordinate(x + dx);
                             c.getPosition().setyCoordinate(y + dy);
+                            factory.componentMoved(c);
                             // Notify observers so Kafka events are published
                             try { factory.notifyObservers(); } catch (Exception ignored) {}
                         }
@@ -2,6 +2,8 @@ package fr.tp.slr201.projects.robotsim.service.simulation;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 import java.io.IOException;
 import java.io.OutputStream;
@@ -20,12 +22,16 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
 import fr.tp.inf112.projects.robotsim.model.Factory;
+import fr.tp.inf112.projects.robotsim.model.FactoryCodec;
 import fr.tp.inf112.projects.robotsim.model.Puck;
 import fr.tp.inf112.projects.robotsim.model.shapes.CircularShape;
 
 import fr.tp.inf112.projects.robotsim.model.Conveyor;
 import fr.tp.inf112.projects.robotsim.model.shapes.RectangularShape;
 import fr.tp.inf112.projects.robotsim.model.ChargingStation;
+import fr.tp.inf112.projects.robotsim.model.Component;
+import fr.tp.inf112.projects.robotsim.model.notifier.FactoryModelEvent;
+import fr.tp.inf112.projects.robotsim.model.notifier.FactoryModelEventEncoder;
 
 import fr.tp.inf112.projects.robotsim.remote.RemoteSimulatorController;
 
@@ -107,4 +113,31 @@ public class JacksonFactoryTests {
         httpServer.stop(0);
         httpServer = null;
     }
+
+    @Test
+    public void remoteControllerAppliesDeltaEvents() throws Exception {
+        final Factory f = createSampleFactory();
+        final FactoryModelEventEncoder encoder = new FactoryModelEventEncoder(f);
+        final Factory[] received = new Factory[1];
+
+        final RemoteSimulatorController controller = new RemoteSimulatorController("http://localhost:1", mapper);
+        controller.setListener(factory -> received[0] = factory);
+        controller.deliver(FactoryCodec.encodeEvent(encoder.nextEvent()));
+        assertNotNull(received[0]);
+        final Factory keyframe = received[0];
+
+        assertNull(encoder.nextEvent());
+
+        final Component puck = f.getComponents().get(0);
+        puck.getPosition().setxCoordinate(15);
+        puck.getPosition().setyCoordinate(12);
+        final FactoryModelEvent delta = encoder.nextEvent();
+        assertEquals(1, delta.componentIndexes().length);
+
+        // Events published as JSON before the binary codec are still applied
+        controller.deliver(mapper.writeValueAsBytes(delta));
+        assertSame(keyframe, received[0]);
+        assertEquals(15, received[0].getComponents().get(0).getxCoordinate());
+        assertEquals(12, received[0].getComponents().get(0).getyCoordinate());
+    }
 }
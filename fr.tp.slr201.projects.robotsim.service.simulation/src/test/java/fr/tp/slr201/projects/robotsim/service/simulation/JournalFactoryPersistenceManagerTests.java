@@ -0,0 +1,161 @@
+package fr.tp.slr201.projects.robotsim.service.simulation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import fr.tp.inf112.projects.robotsim.model.Battery;
+import fr.tp.inf112.projects.robotsim.model.Component;
+import fr.tp.inf112.projects.robotsim.model.Conveyor;
+import fr.tp.inf112.projects.robotsim.model.Factory;
+import fr.tp.inf112.projects.robotsim.model.JournalFactoryPersistenceManager;
+import fr.tp.inf112.projects.robotsim.model.Robot;
+import fr.tp.inf112.projects.robotsim.model.shapes.CircularShape;
+import fr.tp.inf112.projects.robotsim.model.shapes.PositionedShape;
+import fr.tp.inf112.projects.robotsim.model.shapes.RectangularShape;
+
+public class JournalFactoryPersistenceManagerTests {
+
+    /** Component the factory codec does not cover. */
+    private static final class Marker extends Component {
+
+        private static final long serialVersionUID = 1L;
+
+        private Marker(final Factory factory, final PositionedShape shape, final String name) {
+            super(factory, shape, name);
+        }
+    }
+
+    @TempDir
+    Path storageDir;
+
+    private JournalFactoryPersistenceManager manager;
+    private String factoryId;
+
+    @BeforeEach
+    public void createManager() {
+        manager = new JournalFactoryPersistenceManager(null, 60_000, 60_000);
+        factoryId = storageDir.resolve("factory").toString();
+    }
+
+    @AfterEach
+    public void closeManager() throws IOException {
+        manager.close();
+    }
+
+    private Factory createFactory(final int robotX) {
+        final Factory factory = new Factory(80, 60, "test-factory");
+        factory.setId(factoryId);
+        new Robot(factory, null, new CircularShape(robotX, 10, 2), new Battery(10), "r1");
+        new Conveyor(factory, new RectangularShape(20, 20, 4, 2), "c1");
+        return factory;
+    }
+
+    private static int getRobotX(final Factory factory) {
+        return factory.getComponents().get(0).getxCoordinate();
+    }
+
+    private List<Path> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(storageDir)) {
+            return files.filter(JournalFactoryPersistenceManager::isSegment).sorted().toList();
+        }
+    }
+
+    @Test
+    public void savedPositionsAreReadBack() throws Exception {
+        final Factory factory = createFactory(10);
+        manager.persist(factory);
+        factory.getComponents().get(0).getPositionedShape().setxCoordinate(11);
+        manager.persist(factory);
+
+        assertEquals(11, getRobotX((Factory) manager.read(factoryId)));
+        assertEquals(1, listSegments().size());
+    }
+
+    @Test
+    public void savesOfDecodedCopiesAreJournaledAsPositions() throws Exception {
+        for (int robotX = 10; robotX < 20; robotX++) {
+            manager.persist(createFactory(robotX));
+        }
+
+        assertEquals(19, getRobotX((Factory) manager.read(factoryId)));
+        assertEquals(1, listSegments().size());
+    }
+
+    @Test
+    public void tornLastRecordIsSkipped() throws Exception {
+        manager.persist(createFactory(10));
+        manager.persist(createFactory(11));
+        manager.persist(createFactory(12));
+        manager.close();
+
+        // Last byte of the last record, as when the application stopped while writing it
+        final Path segment = listSegments().get(0);
+        final byte[] bytes = Files.readAllBytes(segment);
+        bytes[bytes.length - 1] ^= 0x5A;
+        Files.write(segment, bytes);
+
+        assertEquals(11, getRobotX((Factory) manager.read(factoryId)));
+    }
+
+    @Test
+    public void truncatedSegmentIsReadUpToItsLastCompleteRecord() throws Exception {
+        manager.persist(createFactory(10));
+        manager.persist(createFactory(11));
+        manager.persist(createFactory(12));
+        manager.close();
+
+        final Path segment = listSegments().get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        assertEquals(11, getRobotX((Factory) manager.read(factoryId)));
+    }
+
+    @Test
+    public void replayCallsTheListenerWithEachSave() throws Exception {
+        for (int robotX = 10; robotX < 15; robotX++) {
+            manager.persist(createFactory(robotX));
+        }
+
+        final List<Integer> robotXs = new ArrayList<>();
+        manager.replay(factoryId, Long.MIN_VALUE, Long.MAX_VALUE, (timestampMs, factory) -> robotXs.add(getRobotX(factory)));
+
+        assertEquals(List.of(10, 11, 12, 13, 14), robotXs);
+    }
+
+    @Test
+    public void factorySavedAsWholeKeepsItsJournal() throws Exception {
+        manager.persist(createFactory(10));
+        manager.persist(createFactory(11));
+        final List<Path> segments = listSegments();
+
+        final Factory factory = createFactory(12);
+        new Marker(factory, new RectangularShape(40, 40, 2, 2), "m1");
+        manager.persist(factory);
+
+        assertEquals(segments, listSegments());
+        assertTrue(Files.exists(storageDir.resolve("factory")));
+        final Factory readFactory = (Factory) manager.read(factoryId);
+        assertEquals(3, readFactory.getComponents().size());
+        assertEquals(12, getRobotX(readFactory));
+
+        final List<Integer> robotXs = new ArrayList<>();
+        manager.replay(factoryId, Long.MIN_VALUE, Long.MAX_VALUE, (timestampMs, replayedFactory) -> robotXs.add(getRobotX(replayedFactory)));
+        assertEquals(List.of(10, 11), robotXs);
+    }
+}
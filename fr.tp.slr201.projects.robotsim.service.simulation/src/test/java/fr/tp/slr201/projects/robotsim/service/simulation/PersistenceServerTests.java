@@ -0,0 +1,241 @@
+package fr.tp.slr201.projects.robotsim.service.simulation;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import fr.tp.inf112.projects.canvas.model.Canvas;
+import fr.tp.inf112.projects.robotsim.model.Battery;
+import fr.tp.inf112.projects.robotsim.model.Conveyor;
+import fr.tp.inf112.projects.robotsim.model.Factory;
+import fr.tp.inf112.projects.robotsim.model.FactoryCodec;
+import fr.tp.inf112.projects.robotsim.model.JournalFactoryPersistenceManager;
+import fr.tp.inf112.projects.robotsim.model.Robot;
+import fr.tp.inf112.projects.robotsim.model.shapes.CircularShape;
+import fr.tp.inf112.projects.robotsim.model.shapes.RectangularShape;
+import fr.tp.inf112.projects.robotsim.persistence.PersistenceClientPool;
+import fr.tp.inf112.projects.robotsim.persistence.PersistenceServer;
+
+public class PersistenceServerTests {
+
+    @TempDir
+    Path storageDir;
+
+    private PersistenceServer server;
+    private int port;
+
+    @BeforeEach
+    public void startServer() throws Exception {
+        startServer(null);
+    }
+
+    private void startServer(final JournalFactoryPersistenceManager journalManager) throws Exception {
+        port = freePort();
+        server = new PersistenceServer(port, storageDir.toFile(), PersistenceServer.DEFAULT_CACHE_BYTES, journalManager);
+        final Thread serverThread = new Thread(() -> {
+            try {
+                server.start();
+            } catch (final IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }, "persistence-server");
+        serverThread.setDaemon(true);
+        serverThread.start();
+        awaitListening(port);
+    }
+
+    @AfterEach
+    public void stopServer() throws Exception {
+        server.close();
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static void awaitListening(final int port) throws InterruptedException {
+        for (int attempt = 0; attempt < 100; attempt++) {
+            try (Socket socket = new Socket("localhost", port)) {
+                return;
+            } catch (final IOException e) {
+                Thread.sleep(20);
+            }
+        }
+        throw new IllegalStateException("Persistence server not listening on port " + port);
+    }
+
+    private static Factory createFactory(final String id, final int robotX) {
+        final Factory factory = new Factory(80, 60, "test-factory");
+        factory.setId(id);
+        new Robot(factory, null, new CircularShape(robotX, 10, 2), new Battery(10), "r1");
+        new Conveyor(factory, new RectangularShape(20, 20, 4, 2), "c1");
+        return factory;
+    }
+
+    @Test
+    public void persistedFactoryIsReadBack() throws Exception {
+        try (PersistenceClientPool writer = new PersistenceClientPool("localhost", port);
+             PersistenceClientPool reader = new PersistenceClientPool("localhost", port)) {
+            writer.persist(createFactory("round-trip", 10));
+
+            final Canvas canvas = reader.read("round-trip");
+            assertTrue(canvas instanceof Factory);
+            assertEquals(2, ((Factory) canvas).getComponents().size());
+            assertEquals(10, ((Factory) canvas).getComponents().get(0).getxCoordinate());
+            assertArrayEquals(new String[] { "round-trip" }, reader.list());
+        }
+    }
+
+    @Test
+    public void missingFactoryReadsAsNull() throws Exception {
+        try (PersistenceClientPool pool = new PersistenceClientPool("localhost", port)) {
+            assertNull(pool.read("missing"));
+        }
+    }
+
+    @Test
+    public void pipelinedReadsAreAnsweredToTheirThreads() throws Exception {
+        try (PersistenceClientPool pool = new PersistenceClientPool("localhost", port, 2, PersistenceClientPool.DEFAULT_TIMEOUT_MS, 0)) {
+            for (int index = 0; index < 4; index++) {
+                pool.persist(createFactory("factory-" + index, 10 + index));
+            }
+
+            final ExecutorService executor = Executors.newFixedThreadPool(16);
+            try {
+                final List<Future<Integer>> xCoordinates = new ArrayList<>();
+                for (int request = 0; request < 200; request++) {
+                    final int index = request % 4;
+                    xCoordinates.add(executor.submit(() -> ((Factory) pool.read("factory-" + index)).getComponents().get(0).getxCoordinate()));
+                }
+
+                for (int request = 0; request < xCoordinates.size(); request++) {
+                    assertEquals(10 + request % 4, xCoordinates.get(request).get().intValue());
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    @Test
+    public void requestIsSentAgainOnceAfterConnectionLoss() throws Exception {
+        try (ServerSocket fakeServer = new ServerSocket(0);
+             PersistenceClientPool pool = new PersistenceClientPool("localhost", fakeServer.getLocalPort(), 1, PersistenceClientPool.DEFAULT_TIMEOUT_MS)) {
+            final Thread fakeServerThread = new Thread(() -> {
+                try {
+                    // First connection closed upon its request, as by an idle timeout
+                    try (Socket socket = fakeServer.accept()) {
+                        readRequestId(socket);
+                    }
+                    try (Socket socket = fakeServer.accept()) {
+                        final int requestId = readRequestId(socket);
+                        final DataOutputStream output = new DataOutputStream(socket.getOutputStream());
+                        final byte[] id = "after-retry".getBytes(StandardCharsets.UTF_8);
+                        output.writeInt(Integer.BYTES + 1 + Integer.BYTES + Short.BYTES + id.length);
+                        output.writeInt(requestId);
+                        output.writeByte(0);
+                        output.writeInt(1);
+                        output.writeShort(id.length);
+                        output.write(id);
+                        output.flush();
+                        socket.getInputStream().read();
+                    }
+                } catch (final IOException ignored) {
+                }
+            }, "fake-persistence-server");
+            fakeServerThread.setDaemon(true);
+            fakeServerThread.start();
+
+            assertArrayEquals(new String[] { "after-retry" }, pool.list());
+        }
+    }
+
+    private static int readRequestId(final Socket socket) throws IOException {
+        final DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        final int length = input.readInt();
+        final int requestId = input.readInt();
+        input.readFully(new byte[length - Integer.BYTES]);
+        return requestId;
+    }
+
+    @Test
+    public void conditionalReadSeesEveryPersist() throws Exception {
+        try (PersistenceClientPool writer = new PersistenceClientPool("localhost", port);
+             PersistenceClientPool reader = new PersistenceClientPool("localhost", port)) {
+            writer.persist(createFactory("shared", 10));
+            assertNotNull(reader.read("shared"));
+            final FileTime modificationTime = Files.getLastModifiedTime(storageDir.resolve("shared"));
+
+            for (int robotX = 11; robotX < 60; robotX++) {
+                writer.persist(createFactory("shared", robotX));
+                // As with a coarse file system clock, the modification time does not change
+                Files.setLastModifiedTime(storageDir.resolve("shared"), modificationTime);
+                // The reader holds the previous version, which the server must not answer as unmodified
+                assertEquals(robotX, ((Factory) reader.read("shared")).getComponents().get(0).getxCoordinate());
+                assertEquals(robotX, ((Factory) reader.read("shared")).getComponents().get(0).getxCoordinate());
+            }
+        }
+    }
+
+    @Test
+    public void factoryChangedBehindTheServerIsReadAgain() throws Exception {
+        try (PersistenceClientPool pool = new PersistenceClientPool("localhost", port)) {
+            pool.persist(createFactory("edited", 10));
+            assertEquals(10, ((Factory) pool.read("edited")).getComponents().get(0).getxCoordinate());
+
+            // Written by another process, the server only seeing the modification time move
+            final Path file = storageDir.resolve("edited");
+            final FileTime modificationTime = Files.getLastModifiedTime(file);
+            Files.write(file, FactoryCodec.encode(createFactory("edited", 30)));
+            Files.setLastModifiedTime(file, FileTime.fromMillis(modificationTime.toMillis() + 1_000));
+
+            assertEquals(30, ((Factory) pool.read("edited")).getComponents().get(0).getxCoordinate());
+        }
+    }
+
+    @Test
+    public void journalStorageReadsTheLastSave() throws Exception {
+        server.close();
+        startServer(new JournalFactoryPersistenceManager(null));
+
+        try (PersistenceClientPool writer = new PersistenceClientPool("localhost", port);
+             PersistenceClientPool reader = new PersistenceClientPool("localhost", port)) {
+            for (int robotX = 10; robotX < 20; robotX++) {
+                writer.persist(createFactory("journaled", robotX));
+                assertEquals(robotX, ((Factory) reader.read("journaled")).getComponents().get(0).getxCoordinate());
+            }
+
+            assertArrayEquals(new String[] { "journaled" }, reader.list());
+        }
+
+        try (Stream<Path> files = Files.list(storageDir)) {
+            assertEquals(1, files.filter(JournalFactoryPersistenceManager::isSegment).count());
+        }
+    }
+}